@@ -0,0 +1,60 @@
+package cs544.project.EnhancedRAG.ingestion;
+
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Deterministic inputs for the ingestion benchmarks, built from the bundled sample documents.
+ */
+final class BenchmarkCorpus {
+
+    private BenchmarkCorpus() {
+    }
+
+    /**
+     * The bundled markdown and text documents, repeated until the text has {@code chars} characters.
+     */
+    static String text(int chars) throws IOException {
+        StringBuilder source = new StringBuilder();
+        PathMatchingResourcePatternResolver resolver = new PathMatchingResourcePatternResolver();
+        for (String pattern : new String[]{"classpath:documents/markdown/*.md", "classpath:documents/text/*.txt"}) {
+            for (Resource resource : resolver.getResources(pattern)) {
+                try (InputStream inputStream = resource.getInputStream()) {
+                    source.append(new String(inputStream.readAllBytes(), StandardCharsets.UTF_8)).append("\n\n");
+                }
+            }
+        }
+        
+        StringBuilder corpus = new StringBuilder(chars);
+        while (corpus.length() < chars) {
+            corpus.append(source, 0, Math.min(source.length(), chars - corpus.length()));
+        }
+        return corpus.toString();
+    }
+
+    /**
+     * A config-export style JSON document: {@code records} services, each with nested objects and
+     * arrays three levels deep.
+     */
+    static byte[] nestedJson(int records) {
+        StringBuilder json = new StringBuilder("{\"exported_at\":\"2024-01-01T00:00:00Z\",\"services\":[");
+        for (int i = 0; i < records; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("{\"id\":").append(i)
+                    .append(",\"name\":\"service-").append(i).append('"')
+                    .append(",\"datasource\":{\"url\":\"jdbc:postgresql://db-").append(i % 7).append(":5432/app\"")
+                    .append(",\"pool\":{\"maximum_pool_size\":").append(10 + i % 40)
+                    .append(",\"minimum_idle\":5,\"connection_timeout_ms\":30000}}")
+                    .append(",\"security\":{\"roles\":[\"ADMIN\",\"USER\"],\"csrf\":").append(i % 2 == 0)
+                    .append(",\"cors\":{\"allowed_origins\":[\"https://app.example.com\"],\"max_age\":3600}}")
+                    .append(",\"tags\":[],\"notes\":null}");
+        }
+        return json.append("]}").toString().getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,41 @@
+package cs544.project.EnhancedRAG.ingestion;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link TextChunker#chunkContent} with both chunking strategies on corpora of growing size.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ChunkingBenchmark {
+
+    @Param({"10000", "100000", "1000000"})
+    private int corpusChars;
+
+    @Param({"token", "character"})
+    private String chunker;
+
+    private String corpus;
+    private TextChunker textChunker;
+
+    @Setup
+    public void setUp() throws IOException {
+        corpus = BenchmarkCorpus.text(corpusChars);
+        textChunker = new TextChunker("token".equals(chunker)
+                ? new TokenChunkingStrategy("text-embedding-ada-002", 1500, 50)
+                : new CharacterChunkingStrategy());
+    }
+
+    @Benchmark
+    public List<String> chunkContent() {
+        return textChunker.chunkContent(corpus);
+    }
+}
@@ -0,0 +1,78 @@
+package cs544.project.EnhancedRAG.ingestion;
+
+import cs544.project.EnhancedRAG.config.IngestionProperties;
+import cs544.project.EnhancedRAG.model.DocumentType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.core.io.ClassPathResource;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Text extraction: JSON flattening on nested documents of growing size, and PDF extraction of the
+ * bundled {@code springsecurity.pdf} single-threaded and on the parallel page-range pool.
+ */
+@State(Scope.Benchmark)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class ExtractionBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Json {
+
+        @Param({"100", "1000", "10000"})
+        private int records;
+
+        private byte[] json;
+        private JsonFlattener jsonFlattener;
+
+        @Setup
+        public void setUp() {
+            json = BenchmarkCorpus.nestedJson(records);
+            jsonFlattener = new JsonFlattener(new ObjectMapper().getFactory());
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Pdf {
+
+        @Param({"1", "4"})
+        private int parallelism;
+
+        private DocumentExtractor documentExtractor;
+        private ClassPathResource pdf;
+
+        @Setup
+        public void setUp() {
+            IngestionProperties properties = new IngestionProperties();
+            properties.setPdfParallelism(parallelism);
+            // The bundled PDF is below the production threshold; split it whenever a pool exists
+            properties.setPdfParallelMinPages(1);
+            documentExtractor = new DocumentExtractor(properties);
+            pdf = new ClassPathResource("documents/pdf/springsecurity.pdf");
+        }
+
+        @TearDown
+        public void tearDown() {
+            documentExtractor.close();
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public void flattenJson(Json state, Blackhole blackhole) throws IOException {
+        state.jsonFlattener.flatten(new ByteArrayInputStream(state.json), blackhole::consume);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public void extractPdf(Pdf state, Blackhole blackhole) throws IOException {
+        state.documentExtractor.extractSegments(state.pdf, DocumentType.PDF, blackhole::consume);
+    }
+}
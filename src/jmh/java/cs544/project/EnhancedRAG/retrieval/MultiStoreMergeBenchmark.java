@@ -0,0 +1,86 @@
+package cs544.project.EnhancedRAG.retrieval;
+
+import cs544.project.EnhancedRAG.config.CacheProperties;
+import cs544.project.EnhancedRAG.config.RetrievalProperties;
+import cs544.project.EnhancedRAG.embedding.QueryEmbeddingService;
+import cs544.project.EnhancedRAG.metrics.RagMetrics;
+import cs544.project.EnhancedRAG.model.DocumentType;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.rag.Query;
+
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fan-out and merge of {@link MultiStoreDocumentRetriever} over four in-memory stores, so the
+ * result reflects the retriever's own overhead (task submission, deadlines, merging, metrics)
+ * rather than Redis. The query vector is passed in the context, as the service does.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MultiStoreMergeBenchmark {
+
+    private static final int DIMENSIONS = 1536;
+
+    @Param({"4", "50"})
+    private int hitsPerStore;
+
+    private ExecutorService executor;
+    private MultiStoreDocumentRetriever retriever;
+    private Query query;
+
+    @Setup
+    public void setUp() {
+        Map<DocumentType, List<Document>> stores = new EnumMap<>(DocumentType.class);
+        Random random = new Random(42);
+        for (DocumentType type : DocumentType.values()) {
+            List<Document> hits = new ArrayList<>();
+            for (int i = 0; i < hitsPerStore; i++) {
+                double score = 0.9 + random.nextDouble() * 0.1;
+                hits.add(Document.builder()
+                        .id(type.name().toLowerCase() + "-" + i)
+                        .text("Chunk " + i + " of the " + type + " store")
+                        .metadata(Map.of("document_type", type.name().toLowerCase(), "source", "stub"))
+                        .score(score)
+                        .build());
+            }
+            hits.sort(Comparator.comparingDouble(Document::getScore).reversed());
+            stores.put(type, hits);
+        }
+        StoreSearcher inMemory = (type, vector, topK, threshold) -> stores.get(type);
+
+        RagMetrics metrics = new RagMetrics(new SimpleMeterRegistry());
+        // The embedding model is never called: the query vector comes with the query context
+        QueryEmbeddingService queryEmbeddingService = new QueryEmbeddingService(null, new CacheProperties(), metrics);
+        executor = Executors.newVirtualThreadPerTaskExecutor();
+        retriever = new MultiStoreDocumentRetriever(EnumSet.allOf(DocumentType.class), queryEmbeddingService,
+                inMemory, null, executor, new RetrievalProperties(), metrics);
+
+        float[] vector = new float[DIMENSIONS];
+        for (int i = 0; i < DIMENSIONS; i++) {
+            vector[i] = random.nextFloat();
+        }
+        query = Query.builder()
+                .text("How do I configure connection pooling?")
+                .context(Map.of(MultiStoreDocumentRetriever.QUERY_VECTOR_KEY, vector))
+                .build();
+    }
+
+    @TearDown
+    public void tearDown() {
+        executor.close();
+    }
+
+    @Benchmark
+    public List<Document> retrieve() {
+        return retriever.retrieve(query);
+    }
+}
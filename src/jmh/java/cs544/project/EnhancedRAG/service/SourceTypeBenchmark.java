@@ -0,0 +1,36 @@
+package cs544.project.EnhancedRAG.service;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@code MultiDocumentRAGService.determineSourceType}, run for every source returned with an answer,
+ * over the source names ingestion actually writes.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SourceTypeBenchmark {
+
+    private final String[] sourceNames = {
+            "class path resource [documents/pdf/springsecurity.pdf]",
+            "class path resource [documents/markdown/spring-security-guide.md]",
+            "class path resource [documents/json/database-config.json]",
+            "class path resource [documents/text/security-faq.txt]",
+            "file [/opt/rag/documents/markdown/redis-caching-guide.md]",
+            "manual-upload",
+            "document-3"
+    };
+
+    @Benchmark
+    public void determineSourceType(Blackhole blackhole) {
+        for (String sourceName : sourceNames) {
+            blackhole.consume(MultiDocumentRAGService.determineSourceType(sourceName));
+        }
+    }
+}
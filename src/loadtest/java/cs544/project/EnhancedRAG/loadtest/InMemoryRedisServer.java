@@ -0,0 +1,812 @@
+package cs544.project.EnhancedRAG.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Single-process stand-in for Redis Stack that speaks RESP2 on a local port, so the application
+ * (and older builds of it) run unmodified against it. It implements the subset of commands the
+ * application, Jedis and Lettuce issue: keys, hashes, {@code JSON.SET}, {@code SCAN}/{@code KEYS}
+ * and RediSearch indexes with brute-force {@code KNN} queries and optional {@code TAG} pre-filters.
+ * <p>
+ * Commands run one at a time under a single lock, like in Redis itself, so a slow search holds up
+ * everything behind it just as it would against a real server.
+ */
+public class InMemoryRedisServer implements AutoCloseable {
+
+    private static final Logger logger = Logger.getLogger(InMemoryRedisServer.class.getName());
+
+    private static final Pattern KNN_QUERY = Pattern.compile(
+            "^(.*?)\\s*=>\\s*\\[KNN\\s+(\\S+)\\s+@(\\w+)\\s+\\$(\\w+)(?:\\s+EF_RUNTIME\\s+(\\S+))?(?:\\s+AS\\s+(\\w+))?\\s*]$", Pattern.CASE_INSENSITIVE);
+    private static final Pattern TAG_FILTER = Pattern.compile("@(\\w+):\\{([^}]*)}");
+    private static final Set<String> FIELD_FLAGS = Set.of("SORTABLE", "NOSTEM", "NOINDEX", "UNF", "CASESENSITIVE",
+            "WITHSUFFIXTRIE", "INDEXEMPTY", "INDEXMISSING");
+    private static final Set<String> FIELD_OPTIONS = Set.of("WEIGHT", "SEPARATOR", "PHONETIC");
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final ServerSocket serverSocket;
+    private final ExecutorService connections = Executors.newVirtualThreadPerTaskExecutor();
+
+    // Values are ObjectNode for JSON keys and Map<String, byte[]> for hashes
+    private final Map<String, Object> data = new HashMap<>();
+    private final Map<String, Long> expiries = new HashMap<>();
+    private final Map<String, SearchIndex> indexes = new LinkedHashMap<>();
+
+    private record SchemaField(String path, String alias, String type, Map<String, String> vectorAttributes) {}
+
+    private record SearchIndex(String name, boolean json, List<String> prefixes, Map<String, SchemaField> fields) {
+
+        boolean covers(String key, Object value) {
+            return (json ? value instanceof ObjectNode : value instanceof Map)
+                    && prefixes.stream().anyMatch(key::startsWith);
+        }
+    }
+
+    private static final class RedisError extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        RedisError(String message) {
+            super(message);
+        }
+    }
+
+    private InMemoryRedisServer(int port) throws IOException {
+        this.serverSocket = new ServerSocket(port, 128, InetAddress.getLoopbackAddress());
+    }
+
+    /**
+     * Listens on {@code port} (0 picks a free one) and starts accepting connections.
+     */
+    public static InMemoryRedisServer start(int port) throws IOException {
+        InMemoryRedisServer server = new InMemoryRedisServer(port);
+        Thread.ofVirtual().name("fake-redis-accept").start(server::acceptLoop);
+        logger.info("In-memory Redis listening on port " + server.getPort());
+        return server;
+    }
+
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    private void acceptLoop() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+                connections.submit(() -> serve(socket));
+            } catch (IOException e) {
+                if (!serverSocket.isClosed()) {
+                    logger.warning("Accept failed: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    private void serve(Socket socket) {
+        try (socket;
+             InputStream in = new BufferedInputStream(socket.getInputStream());
+             OutputStream out = new BufferedOutputStream(socket.getOutputStream())) {
+            socket.setTcpNoDelay(true);
+            List<byte[]> command;
+            while ((command = readCommand(in)) != null) {
+                Object reply;
+                try {
+                    synchronized (this) {
+                        reply = execute(command);
+                    }
+                } catch (RedisError e) {
+                    reply = e;
+                } catch (RuntimeException e) {
+                    reply = new RedisError("ERR " + e);
+                }
+                writeReply(out, reply);
+                // Pipelined commands are answered in one write
+                if (in.available() == 0) {
+                    out.flush();
+                }
+            }
+        } catch (IOException e) {
+            // Client went away
+        }
+    }
+
+    // ---- Protocol -------------------------------------------------------------------------------
+
+    private static List<byte[]> readCommand(InputStream in) throws IOException {
+        int type = in.read();
+        if (type == -1) {
+            return null;
+        }
+        if (type != '*') {
+            throw new IOException("Inline commands are not supported");
+        }
+        int count = Integer.parseInt(readLine(in));
+        List<byte[]> args = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            if (in.read() != '$') {
+                throw new IOException("Expected a bulk string");
+            }
+            int length = Integer.parseInt(readLine(in));
+            byte[] arg = in.readNBytes(length);
+            in.skipNBytes(2);
+            args.add(arg);
+        }
+        return args;
+    }
+
+    private static String readLine(InputStream in) throws IOException {
+        StringBuilder line = new StringBuilder();
+        int c;
+        while ((c = in.read()) != '\r') {
+            if (c == -1) {
+                throw new EOFException();
+            }
+            line.append((char) c);
+        }
+        in.read();
+        return line.toString();
+    }
+
+    private record Status(String value) {}
+
+    private static final Status OK = new Status("OK");
+
+    private static void writeReply(OutputStream out, Object reply) throws IOException {
+        switch (reply) {
+            case null -> out.write("$-1\r\n".getBytes(StandardCharsets.US_ASCII));
+            case Status status -> out.write(("+" + status.value() + "\r\n").getBytes(StandardCharsets.UTF_8));
+            case RedisError error -> out.write(("-" + error.getMessage() + "\r\n").getBytes(StandardCharsets.UTF_8));
+            case Long number -> out.write((":" + number + "\r\n").getBytes(StandardCharsets.US_ASCII));
+            case Integer number -> out.write((":" + number + "\r\n").getBytes(StandardCharsets.US_ASCII));
+            case String text -> writeBulk(out, text.getBytes(StandardCharsets.UTF_8));
+            case byte[] bytes -> writeBulk(out, bytes);
+            case List<?> items -> {
+                out.write(("*" + items.size() + "\r\n").getBytes(StandardCharsets.US_ASCII));
+                for (Object item : items) {
+                    writeReply(out, item);
+                }
+            }
+            default -> throw new IllegalArgumentException("Unsupported reply " + reply.getClass());
+        }
+    }
+
+    private static void writeBulk(OutputStream out, byte[] bytes) throws IOException {
+        out.write(("$" + bytes.length + "\r\n").getBytes(StandardCharsets.US_ASCII));
+        out.write(bytes);
+        out.write('\r');
+        out.write('\n');
+    }
+
+    // ---- Commands -------------------------------------------------------------------------------
+
+    private Object execute(List<byte[]> command) {
+        String name = string(command.get(0)).toUpperCase(Locale.ROOT);
+        List<String> args = command.subList(1, command.size()).stream().map(InMemoryRedisServer::string).toList();
+        switch (name) {
+            case "PING":
+                return args.isEmpty() ? new Status("PONG") : args.get(0);
+            case "ECHO":
+                return args.get(0);
+            case "CLIENT":
+            case "SELECT":
+                return OK;
+            case "INFO":
+                return "# Server\r\nredis_version:7.2.4\r\nredis_mode:standalone\r\n";
+            case "DBSIZE":
+                purgeExpired();
+                return (long) data.size();
+            case "FLUSHALL":
+            case "FLUSHDB":
+                data.clear();
+                expiries.clear();
+                return OK;
+            case "EXISTS":
+                return args.stream().filter(key -> lookup(key) != null).count();
+            case "DEL":
+            case "UNLINK":
+            case "JSON.DEL":
+                return args.stream().filter(key -> remove(key) != null).count();
+            case "EXPIRE":
+            case "PEXPIRE": {
+                if (lookup(args.get(0)) == null) {
+                    return 0L;
+                }
+                long ttl = Long.parseLong(args.get(1));
+                expiries.put(args.get(0), System.currentTimeMillis() + (name.equals("PEXPIRE") ? ttl : ttl * 1000));
+                return 1L;
+            }
+            case "KEYS":
+                return matchingKeys(args.get(0));
+            case "SCAN":
+                return scan(args);
+            case "GET":
+                return stringValue(args.get(0));
+            case "INCR": {
+                byte[] value = stringValue(args.get(0));
+                long next = (value == null ? 0 : Long.parseLong(string(value))) + 1;
+                data.put(args.get(0), Long.toString(next).getBytes(StandardCharsets.UTF_8));
+                return next;
+            }
+            case "HSET":
+                return hset(command);
+            case "HGET": {
+                byte[] value = hash(args.get(0)).get(args.get(1));
+                return value;
+            }
+            case "HDEL": {
+                Map<String, byte[]> hash = hash(args.get(0));
+                long removed = args.subList(1, args.size()).stream().filter(field -> hash.remove(field) != null).count();
+                if (hash.isEmpty()) {
+                    remove(args.get(0));
+                }
+                return removed;
+            }
+            case "HKEYS":
+                return new ArrayList<>(hash(args.get(0)).keySet());
+            case "HLEN":
+                return (long) hash(args.get(0)).size();
+            case "HGETALL": {
+                List<Object> reply = new ArrayList<>();
+                hash(args.get(0)).forEach((field, value) -> {
+                    reply.add(field);
+                    reply.add(value);
+                });
+                return reply;
+            }
+            case "JSON.SET":
+                return jsonSet(args);
+            case "JSON.GET":
+                return jsonGet(args);
+            case "FT._LIST":
+                return new ArrayList<>(indexes.keySet());
+            case "FT.CREATE":
+                return ftCreate(args);
+            case "FT.DROPINDEX":
+                return ftDropIndex(args);
+            case "FT.INFO":
+                return ftInfo(args.get(0));
+            case "FT.SEARCH":
+                return ftSearch(command);
+            default:
+                throw new RedisError("ERR unknown command '" + name + "'");
+        }
+    }
+
+    private Object lookup(String key) {
+        Long expiry = expiries.get(key);
+        if (expiry != null && expiry <= System.currentTimeMillis()) {
+            remove(key);
+            return null;
+        }
+        return data.get(key);
+    }
+
+    private Object remove(String key) {
+        expiries.remove(key);
+        return data.remove(key);
+    }
+
+    private void purgeExpired() {
+        long now = System.currentTimeMillis();
+        expiries.entrySet().removeIf(entry -> {
+            if (entry.getValue() <= now) {
+                data.remove(entry.getKey());
+                return true;
+            }
+            return false;
+        });
+    }
+
+    private List<Object> matchingKeys(String pattern) {
+        purgeExpired();
+        Pattern regex = glob(pattern);
+        return data.keySet().stream().filter(key -> regex.matcher(key).matches()).map(key -> (Object) key).toList();
+    }
+
+    /**
+     * The cursor is a position in the sorted key set, so every call walks only {@code COUNT} keys.
+     */
+    private List<Object> scan(List<String> args) {
+        int cursor = Integer.parseInt(args.get(0));
+        Pattern regex = null;
+        int count = 10;
+        for (int i = 1; i + 1 < args.size(); i += 2) {
+            switch (args.get(i).toUpperCase(Locale.ROOT)) {
+                case "MATCH" -> regex = glob(args.get(i + 1));
+                case "COUNT" -> count = Integer.parseInt(args.get(i + 1));
+                default -> { }
+            }
+        }
+        purgeExpired();
+        List<String> keys = new ArrayList<>(data.keySet());
+        Collections.sort(keys);
+        int end = Math.min(keys.size(), cursor + count);
+        List<Object> page = new ArrayList<>();
+        for (String key : keys.subList(Math.min(cursor, end), end)) {
+            if (regex == null || regex.matcher(key).matches()) {
+                page.add(key);
+            }
+        }
+        return List.of(end >= keys.size() ? "0" : Integer.toString(end), page);
+    }
+
+    private static Pattern glob(String pattern) {
+        StringBuilder regex = new StringBuilder();
+        for (char c : pattern.toCharArray()) {
+            switch (c) {
+                case '*' -> regex.append(".*");
+                case '?' -> regex.append('.');
+                default -> regex.append(Pattern.quote(String.valueOf(c)));
+            }
+        }
+        return Pattern.compile(regex.toString(), Pattern.DOTALL);
+    }
+
+    private byte[] stringValue(String key) {
+        Object value = lookup(key);
+        if (value != null && !(value instanceof byte[])) {
+            throw new RedisError("WRONGTYPE Operation against a key holding the wrong kind of value");
+        }
+        return (byte[]) value;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, byte[]> hash(String key) {
+        Object value = lookup(key);
+        if (value == null) {
+            return new LinkedHashMap<>();
+        }
+        if (!(value instanceof Map)) {
+            throw new RedisError("WRONGTYPE Operation against a key holding the wrong kind of value");
+        }
+        return (Map<String, byte[]>) value;
+    }
+
+    private long hset(List<byte[]> command) {
+        String key = string(command.get(1));
+        Map<String, byte[]> hash = hash(key);
+        long added = 0;
+        for (int i = 2; i + 1 < command.size(); i += 2) {
+            if (hash.put(string(command.get(i)), command.get(i + 1)) == null) {
+                added++;
+            }
+        }
+        data.put(key, hash);
+        return added;
+    }
+
+    private Object jsonSet(List<String> args) {
+        String key = args.get(0);
+        String path = args.get(1);
+        JsonNode value = readJson(args.get(2));
+        Object existing = lookup(key);
+        String condition = args.size() > 3 ? args.get(3).toUpperCase(Locale.ROOT) : "";
+        if (!condition.isEmpty()) {
+            boolean exists = existing instanceof ObjectNode object
+                    && ("$".equals(path) || ".".equals(path) || object.has(topLevelField(path)));
+            if (condition.equals("NX") == exists) {
+                return null;
+            }
+        }
+        if ("$".equals(path) || ".".equals(path)) {
+            if (!(value instanceof ObjectNode object)) {
+                throw new RedisError("ERR only JSON objects are supported at the root");
+            }
+            data.put(key, object);
+            expiries.remove(key);
+            return OK;
+        }
+        if (!(existing instanceof ObjectNode object)) {
+            throw new RedisError("ERR new objects must be created at the root");
+        }
+        object.set(topLevelField(path), value);
+        return OK;
+    }
+
+    private Object jsonGet(List<String> args) {
+        if (!(lookup(args.get(0)) instanceof ObjectNode object)) {
+            return null;
+        }
+        if (args.size() < 2 || ".".equals(args.get(1))) {
+            return object.toString();
+        }
+        JsonNode value = "$".equals(args.get(1)) ? object : object.get(topLevelField(args.get(1)));
+        return value == null ? "[]" : "[" + value + "]";
+    }
+
+    /**
+     * {@code $.name} or {@code .name}; nested paths are not needed by the application.
+     */
+    private static String topLevelField(String path) {
+        String field = path.startsWith("$.") ? path.substring(2) : path.startsWith(".") ? path.substring(1) : path;
+        if (field.contains(".") || field.contains("[")) {
+            throw new RedisError("ERR nested JSON paths are not supported: " + path);
+        }
+        return field;
+    }
+
+    private Object ftCreate(List<String> args) {
+        String name = args.get(0);
+        if (indexes.containsKey(name)) {
+            throw new RedisError("Index already exists");
+        }
+        boolean json = false;
+        List<String> prefixes = new ArrayList<>();
+        int i = 1;
+        while (i < args.size() && !"SCHEMA".equalsIgnoreCase(args.get(i))) {
+            switch (args.get(i).toUpperCase(Locale.ROOT)) {
+                case "ON" -> json = "JSON".equalsIgnoreCase(args.get(++i));
+                case "PREFIX" -> {
+                    int count = Integer.parseInt(args.get(++i));
+                    for (int p = 0; p < count; p++) {
+                        prefixes.add(args.get(++i));
+                    }
+                }
+                default -> { }
+            }
+            i++;
+        }
+        if (prefixes.isEmpty()) {
+            prefixes.add("");
+        }
+
+        Map<String, SchemaField> fields = new LinkedHashMap<>();
+        i++;
+        while (i < args.size()) {
+            String path = args.get(i++);
+            String alias = path;
+            if (i < args.size() && "AS".equalsIgnoreCase(args.get(i))) {
+                alias = args.get(i + 1);
+                i += 2;
+            }
+            String type = args.get(i++).toUpperCase(Locale.ROOT);
+            Map<String, String> vectorAttributes = new HashMap<>();
+            if ("VECTOR".equals(type)) {
+                vectorAttributes.put("ALGORITHM", args.get(i++).toUpperCase(Locale.ROOT));
+                int count = Integer.parseInt(args.get(i++));
+                for (int a = 0; a + 1 < count; a += 2) {
+                    vectorAttributes.put(args.get(i + a).toUpperCase(Locale.ROOT), args.get(i + a + 1));
+                }
+                i += count;
+            } else {
+                while (i < args.size()) {
+                    String option = args.get(i).toUpperCase(Locale.ROOT);
+                    if (FIELD_FLAGS.contains(option)) {
+                        i++;
+                    } else if (FIELD_OPTIONS.contains(option)) {
+                        i += 2;
+                    } else {
+                        break;
+                    }
+                }
+            }
+            fields.put(alias, new SchemaField(path, alias, type, vectorAttributes));
+        }
+        indexes.put(name, new SearchIndex(name, json, prefixes, fields));
+        return OK;
+    }
+
+    private Object ftDropIndex(List<String> args) {
+        SearchIndex index = indexes.remove(args.get(0));
+        if (index == null) {
+            throw new RedisError("Unknown Index name");
+        }
+        if (args.size() > 1 && "DD".equalsIgnoreCase(args.get(1))) {
+            data.entrySet().removeIf(entry -> index.covers(entry.getKey(), entry.getValue()));
+        }
+        return OK;
+    }
+
+    private Object ftInfo(String name) {
+        SearchIndex index = index(name);
+        purgeExpired();
+        long documents = data.entrySet().stream().filter(entry -> index.covers(entry.getKey(), entry.getValue())).count();
+        List<Object> attributes = new ArrayList<>();
+        for (SchemaField field : index.fields().values()) {
+            List<Object> attribute = new ArrayList<>(List.of(
+                    "identifier", field.path(), "attribute", field.alias(), "type", field.type()));
+            if ("VECTOR".equals(field.type())) {
+                attribute.addAll(List.of("algorithm", field.vectorAttributes().get("ALGORITHM"),
+                        "data_type", field.vectorAttributes().getOrDefault("TYPE", "FLOAT32")));
+            }
+            attributes.add(attribute);
+        }
+        return List.of(
+                "index_name", name,
+                "index_definition", List.of("key_type", index.json() ? "JSON" : "HASH",
+                        "prefixes", new ArrayList<Object>(index.prefixes())),
+                "attributes", attributes,
+                "num_docs", Long.toString(documents));
+    }
+
+    private SearchIndex index(String name) {
+        SearchIndex index = indexes.get(name);
+        if (index == null) {
+            throw new RedisError("Unknown Index name");
+        }
+        return index;
+    }
+
+    private record Hit(String key, Object value, double distance) {}
+
+    private record ReturnField(String identifier, String alias) {}
+
+    private Object ftSearch(List<byte[]> command) {
+        SearchIndex index = index(string(command.get(1)));
+        String queryString = string(command.get(2));
+
+        List<ReturnField> returnFields = null;
+        Map<String, byte[]> params = new HashMap<>();
+        int offset = 0;
+        int limit = 10;
+        boolean noContent = false;
+        boolean descending = false;
+        for (int i = 3; i < command.size(); i++) {
+            switch (string(command.get(i)).toUpperCase(Locale.ROOT)) {
+                case "RETURN" -> {
+                    int count = Integer.parseInt(string(command.get(++i)));
+                    int end = i + count;
+                    returnFields = new ArrayList<>();
+                    while (i < end) {
+                        String identifier = string(command.get(++i));
+                        String alias = identifier;
+                        if (i < end && "AS".equalsIgnoreCase(string(command.get(i + 1)))) {
+                            alias = string(command.get(i + 2));
+                            i += 2;
+                        }
+                        returnFields.add(new ReturnField(identifier, alias));
+                    }
+                }
+                case "PARAMS" -> {
+                    int count = Integer.parseInt(string(command.get(++i)));
+                    for (int p = 0; p < count; p += 2) {
+                        params.put(string(command.get(i + 1 + p)), command.get(i + 2 + p));
+                    }
+                    i += count;
+                }
+                case "LIMIT" -> {
+                    offset = Integer.parseInt(string(command.get(++i)));
+                    limit = Integer.parseInt(string(command.get(++i)));
+                }
+                case "SORTBY" -> {
+                    i++;
+                    if (i + 1 < command.size() && "DESC".equalsIgnoreCase(string(command.get(i + 1)))) {
+                        descending = true;
+                        i++;
+                    } else if (i + 1 < command.size() && "ASC".equalsIgnoreCase(string(command.get(i + 1)))) {
+                        i++;
+                    }
+                }
+                case "DIALECT", "TIMEOUT", "SLOP", "LANGUAGE", "SCORER" -> i++;
+                case "NOCONTENT" -> noContent = true;
+                default -> { }
+            }
+        }
+
+        purgeExpired();
+        Matcher knn = KNN_QUERY.matcher(queryString.trim());
+        String filter = knn.matches() ? knn.group(1) : queryString;
+        List<Hit> hits = new ArrayList<>();
+        for (Map.Entry<String, Object> entry : data.entrySet()) {
+            if (index.covers(entry.getKey(), entry.getValue()) && matchesFilter(index, entry.getValue(), filter)) {
+                hits.add(new Hit(entry.getKey(), entry.getValue(), 0));
+            }
+        }
+
+        String scoreAlias = null;
+        if (knn.matches()) {
+            String k = knn.group(2);
+            int topK = Integer.parseInt(k.startsWith("$") ? string(params.get(k.substring(1))) : k);
+            SchemaField vectorField = index.fields().get(knn.group(3));
+            if (vectorField == null || !"VECTOR".equals(vectorField.type())) {
+                throw new RedisError("Unknown vector field " + knn.group(3));
+            }
+            if (knn.group(5) != null && !"HNSW".equals(vectorField.vectorAttributes().get("ALGORITHM"))) {
+                throw new RedisError("EF_RUNTIME is only valid for HNSW vector fields");
+            }
+            float[] query = toFloats(params.get(knn.group(4)), vectorField);
+            String metric = vectorField.vectorAttributes().getOrDefault("DISTANCE_METRIC", "COSINE");
+            scoreAlias = knn.group(6) != null ? knn.group(6) : "__" + vectorField.alias() + "_score";
+
+            List<Hit> scored = new ArrayList<>();
+            for (Hit hit : hits) {
+                float[] vector = vector(index, vectorField, hit.value());
+                if (vector != null && vector.length == query.length) {
+                    scored.add(new Hit(hit.key(), hit.value(), distance(metric, query, vector)));
+                }
+            }
+            scored.sort(Comparator.comparingDouble(Hit::distance));
+            hits = scored.subList(0, Math.min(topK, scored.size()));
+            if (descending) {
+                hits = new ArrayList<>(hits);
+                Collections.reverse(hits);
+            }
+        } else {
+            hits.sort(Comparator.comparing(Hit::key));
+        }
+
+        List<Object> reply = new ArrayList<>();
+        reply.add((long) hits.size());
+        for (Hit hit : hits.subList(Math.min(offset, hits.size()), Math.min(offset + limit, hits.size()))) {
+            reply.add(hit.key());
+            if (!noContent) {
+                reply.add(returnValues(index, hit, returnFields, scoreAlias));
+            }
+        }
+        return reply;
+    }
+
+    private boolean matchesFilter(SearchIndex index, Object value, String filter) {
+        String trimmed = filter.trim();
+        if (trimmed.isEmpty() || "*".equals(trimmed)) {
+            return true;
+        }
+        Matcher tags = TAG_FILTER.matcher(trimmed);
+        boolean any = false;
+        while (tags.find()) {
+            any = true;
+            SchemaField field = index.fields().get(tags.group(1));
+            if (field == null) {
+                throw new RedisError("Unknown field " + tags.group(1));
+            }
+            String actual = fieldText(index, field, value);
+            boolean matched = false;
+            for (String option : tags.group(2).split("\\|")) {
+                if (actual != null && actual.equalsIgnoreCase(option.trim().replace("\\", ""))) {
+                    matched = true;
+                    break;
+                }
+            }
+            if (!matched) {
+                return false;
+            }
+        }
+        if (!any) {
+            throw new RedisError("Syntax error: only '*' and @field:{tags} filters are supported");
+        }
+        return true;
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Object> returnValues(SearchIndex index, Hit hit, List<ReturnField> returnFields, String scoreAlias) {
+        List<Object> values = new ArrayList<>();
+        if (returnFields == null) {
+            if (hit.value() instanceof ObjectNode object) {
+                values.add("$");
+                values.add(object.toString());
+            } else {
+                ((Map<String, byte[]>) hit.value()).forEach((field, value) -> {
+                    values.add(field);
+                    values.add(value);
+                });
+            }
+            if (scoreAlias != null) {
+                values.add(scoreAlias);
+                values.add(Double.toString(hit.distance()));
+            }
+            return values;
+        }
+
+        for (ReturnField returnField : returnFields) {
+            Object value;
+            if (returnField.identifier().equals(scoreAlias)) {
+                value = Double.toString(hit.distance());
+            } else if (hit.value() instanceof ObjectNode) {
+                SchemaField schemaField = index.fields().get(returnField.identifier());
+                String path = schemaField != null ? schemaField.path() : returnField.identifier();
+                value = fieldText(index, new SchemaField(path, returnField.alias(), "TEXT", Map.of()), hit.value());
+            } else {
+                value = ((Map<String, byte[]>) hit.value()).get(returnField.identifier());
+            }
+            if (value != null) {
+                values.add(returnField.alias());
+                values.add(value);
+            }
+        }
+        return values;
+    }
+
+    @SuppressWarnings("unchecked")
+    private String fieldText(SearchIndex index, SchemaField field, Object value) {
+        if (value instanceof ObjectNode object) {
+            JsonNode node = object.get(topLevelField(field.path()));
+            if (node == null || node.isNull()) {
+                return null;
+            }
+            return node.isValueNode() ? node.asText() : node.toString();
+        }
+        byte[] bytes = ((Map<String, byte[]>) value).get(field.path());
+        return bytes == null ? null : string(bytes);
+    }
+
+    @SuppressWarnings("unchecked")
+    private float[] vector(SearchIndex index, SchemaField field, Object value) {
+        if (value instanceof ObjectNode object) {
+            JsonNode node = object.get(topLevelField(field.path()));
+            if (node == null || !node.isArray()) {
+                return null;
+            }
+            float[] vector = new float[node.size()];
+            for (int i = 0; i < vector.length; i++) {
+                vector[i] = (float) node.get(i).asDouble();
+            }
+            return vector;
+        }
+        byte[] bytes = ((Map<String, byte[]>) value).get(field.path());
+        return bytes == null ? null : toFloats(bytes, field);
+    }
+
+    /**
+     * Decodes a vector blob in the field's {@code TYPE}; like Redis, a blob of the wrong size for the
+     * field's {@code DIM} is rejected.
+     */
+    private static float[] toFloats(byte[] bytes, SchemaField field) {
+        if (bytes == null) {
+            throw new RedisError("Missing vector parameter");
+        }
+        boolean half = "FLOAT16".equalsIgnoreCase(field.vectorAttributes().get("TYPE"));
+        int elementSize = half ? Short.BYTES : Float.BYTES;
+        String dim = field.vectorAttributes().get("DIM");
+        if (dim != null && bytes.length != Integer.parseInt(dim) * elementSize) {
+            throw new RedisError("Error parsing vector similarity query: query vector blob size (" + bytes.length +
+                    ") does not match index's expected size (" + Integer.parseInt(dim) * elementSize + ").");
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+        float[] vector = new float[bytes.length / elementSize];
+        for (int i = 0; i < vector.length; i++) {
+            vector[i] = half ? Float.float16ToFloat(buffer.getShort()) : buffer.getFloat();
+        }
+        return vector;
+    }
+
+    private static double distance(String metric, float[] a, float[] b) {
+        double dot = 0;
+        double normA = 0;
+        double normB = 0;
+        double squared = 0;
+        for (int i = 0; i < a.length; i++) {
+            dot += a[i] * b[i];
+            normA += a[i] * a[i];
+            normB += b[i] * b[i];
+            double diff = a[i] - b[i];
+            squared += diff * diff;
+        }
+        return switch (metric.toUpperCase(Locale.ROOT)) {
+            case "L2" -> squared;
+            case "IP" -> 1 - dot;
+            default -> normA == 0 || normB == 0 ? 1 : 1 - dot / Math.sqrt(normA * normB);
+        };
+    }
+
+    private JsonNode readJson(String json) {
+        try {
+            return objectMapper.readTree(json);
+        } catch (IOException e) {
+            throw new RedisError("ERR invalid JSON: " + e.getMessage());
+        }
+    }
+
+    private static String string(byte[] bytes) {
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+        connections.shutdownNow();
+    }
+}
@@ -0,0 +1,513 @@
+package cs544.project.EnhancedRAG.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.springframework.boot.convert.DurationStyle;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Offline end-to-end load test. Starts the application jar against {@link InMemoryRedisServer} and
+ * {@link StubOpenAiServer}, ingests the bundled documents, then drives {@code /api/rag/query} (and
+ * optionally {@code /api/rag/query/stream} and repeated {@code /api/rag/ingest}) from concurrent
+ * virtual users and writes p50/p95/p99 latency, throughput and error rate per scenario to a JSON
+ * report.
+ * <pre>
+ * run     [--jar target/EnhancedRAG-0.0.1-SNAPSHOT.jar] [--baseline-jar other.jar]
+ *         [--users 16] [--duration 60s] [--warmup 10s] [--think-time 0ms]
+ *         [--stream-ratio 0] [--ingest-interval 0s] [--unique-questions true]
+ *         [--embedding-latency 40ms] [--chat-latency 800ms] [--first-token-latency 200ms] [--answer-tokens 80]
+ *         [--redis-port 6379] [--out target/loadtest/report.json] [--app-arg name=value]...
+ *         [--app-jvm-arg -Xmx1g]...
+ * compare baseline.json candidate.json [--tolerance 0.10]
+ * </pre>
+ * With {@code --baseline-jar} both builds run with identical settings and fresh stand-ins, one after
+ * the other, and the candidate is compared against the baseline. {@code compare} exits with 1 when
+ * the candidate is worse than the tolerance allows, so it can gate a CI job.
+ */
+public class LoadTest {
+
+    static final String QUERY = "query";
+    static final String QUERY_STREAM = "query_stream";
+    static final String QUERY_STREAM_FIRST_EVENT = "query_stream_first_event";
+    static final String INGEST = "ingest";
+
+    private static final List<String> QUESTIONS = List.of(
+            "How do I configure JWT authentication in Spring Security?",
+            "What is the recommended database connection pool size?",
+            "How should I set TTL values for Redis caching?",
+            "How do I enable CSRF protection for a REST API?",
+            "Which HikariCP settings matter for high throughput?",
+            "How do I invalidate cached entries after an update?",
+            "What are the security implications of caching user sessions in Redis?",
+            "How do I tune PostgreSQL for read-heavy workloads?",
+            "How do I configure OAuth2 login with a custom user service?",
+            "What eviction policy should a Redis cache use?",
+            "How can I monitor connection pool exhaustion?",
+            "How do I secure actuator endpoints?");
+
+    private static final ObjectMapper objectMapper = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+
+    public static void main(String[] args) throws Exception {
+        if (args.length == 0) {
+            usage();
+        }
+        switch (args[0]) {
+            case "run" -> run(Options.parse(Arrays.copyOfRange(args, 1, args.length)));
+            case "compare" -> {
+                if (args.length < 3) {
+                    usage();
+                }
+                Options options = Options.parse(Arrays.copyOfRange(args, 3, args.length));
+                LoadTestReport baseline = objectMapper.readValue(Path.of(args[1]).toFile(), LoadTestReport.class);
+                LoadTestReport candidate = objectMapper.readValue(Path.of(args[2]).toFile(), LoadTestReport.class);
+                System.exit(compare(baseline, candidate, options.tolerance()) ? 0 : 1);
+            }
+            default -> usage();
+        }
+    }
+
+    private static void usage() {
+        System.err.println("Usage: LoadTest run [options] | LoadTest compare <baseline.json> <candidate.json> [--tolerance 0.10]");
+        System.exit(2);
+    }
+
+    private static void run(Options options) throws Exception {
+        Path out = options.out();
+        Files.createDirectories(out.toAbsolutePath().getParent());
+
+        if (options.baselineJar() != null) {
+            Path baselineOut = out.resolveSibling(stripJson(out.getFileName().toString()) + "-baseline.json");
+            LoadTestReport baseline = runBuild("baseline", options.baselineJar(), options, baselineOut);
+            LoadTestReport candidate = runBuild("candidate", options.jar(), options, out);
+            System.exit(compare(baseline, candidate, options.tolerance()) ? 0 : 1);
+        }
+        runBuild("candidate", options.jar(), options, out);
+    }
+
+    private static String stripJson(String fileName) {
+        return fileName.endsWith(".json") ? fileName.substring(0, fileName.length() - 5) : fileName;
+    }
+
+    private static LoadTestReport runBuild(String label, Path jar, Options options, Path out) throws Exception {
+        if (!Files.isRegularFile(jar)) {
+            throw new IllegalArgumentException("Application jar not found: " + jar + " (run mvn package first)");
+        }
+        Path workDir = Files.createTempDirectory("rag-loadtest-" + label);
+        long startedAt = System.currentTimeMillis();
+        System.out.println("== " + label + ": " + jar);
+
+        try (InMemoryRedisServer redis = InMemoryRedisServer.start(options.redisPort());
+             StubOpenAiServer openAi = StubOpenAiServer.start(options.embeddingLatency(), options.chatLatency(),
+                     options.firstTokenLatency(), options.answerTokens());
+             ExecutorService users = Executors.newVirtualThreadPerTaskExecutor()) {
+
+            int port = freePort();
+            Process app = launch(jar, port, openAi.getBaseUrl(), redis.getPort(), workDir,
+                    out.resolveSibling(stripJson(out.getFileName().toString()) + "-app.log"), options);
+            try {
+                HttpClient client = HttpClient.newBuilder()
+                        .version(HttpClient.Version.HTTP_1_1)
+                        .connectTimeout(Duration.ofSeconds(10))
+                        .executor(users)
+                        .build();
+                String baseUrl = "http://localhost:" + port;
+                awaitReady(client, baseUrl, app);
+
+                Map<String, Recorder> recorders = new LinkedHashMap<>();
+                for (String scenario : List.of(QUERY, QUERY_STREAM, QUERY_STREAM_FIRST_EVENT, INGEST)) {
+                    recorders.put(scenario, new Recorder());
+                }
+
+                // The initial ingestion fills the stores and is measured like any other ingest
+                System.out.println("Ingesting bundled documents...");
+                ingest(client, baseUrl, recorders.get(INGEST));
+
+                double seconds = drive(client, baseUrl, users, recorders, options);
+
+                Map<String, LoadTestReport.ScenarioStats> scenarios = new LinkedHashMap<>();
+                recorders.forEach((scenario, recorder) -> {
+                    if (recorder.count() > 0) {
+                        // The initial ingest is outside the measured window, so its rate is not meaningful
+                        scenarios.put(scenario, recorder.stats(INGEST.equals(scenario) ? 0 : seconds));
+                    }
+                });
+                LoadTestReport report = new LoadTestReport(label, jar.toString(), startedAt, options.settings(),
+                        scenarios, openAi.getEmbeddingRequests(), openAi.getChatRequests());
+                objectMapper.writeValue(out.toFile(), report);
+                print(report);
+                System.out.println("Report written to " + out);
+                return report;
+            } finally {
+                app.destroy();
+                if (!app.waitFor(30, TimeUnit.SECONDS)) {
+                    app.destroyForcibly();
+                }
+            }
+        } finally {
+            deleteRecursively(workDir);
+        }
+    }
+
+    private static Process launch(Path jar, int port, String openAiUrl, int redisPort, Path workDir, Path log,
+                                  Options options) throws IOException {
+        List<String> command = new ArrayList<>(List.of(
+                Path.of(System.getProperty("java.home"), "bin", "java").toString()));
+        command.addAll(options.appJvmArgs());
+        command.addAll(List.of(
+                "-jar", jar.toAbsolutePath().toString(),
+                "--server.port=" + port,
+                "--spring.ai.openai.base-url=" + openAiUrl,
+                "--spring.ai.openai.api-key=stub",
+                "--spring.data.redis.port=" + redisPort,
+                "--spring.ai.vectorstore.redis.uri=redis://localhost:" + redisPort,
+                "--rag.cache.document-embedding.directory=" + workDir.resolve("embedding-cache"),
+                // Every question would otherwise be answered from the cache after the first one
+                "--rag.cache.answer.enabled=false"));
+        options.appArgs().forEach(arg -> command.add("--" + arg));
+
+        return new ProcessBuilder(command)
+                .directory(workDir.toFile())
+                .redirectErrorStream(true)
+                .redirectOutput(log.toFile())
+                .start();
+    }
+
+    private static void awaitReady(HttpClient client, String baseUrl, Process app) throws Exception {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(120);
+        HttpRequest health = HttpRequest.newBuilder(URI.create(baseUrl + "/api/rag/health")).GET().build();
+        while (System.nanoTime() < deadline) {
+            if (!app.isAlive()) {
+                throw new IllegalStateException("Application exited with code " + app.exitValue() + " during startup");
+            }
+            try {
+                if (client.send(health, HttpResponse.BodyHandlers.discarding()).statusCode() == 200) {
+                    return;
+                }
+            } catch (IOException e) {
+                // Not listening yet
+            }
+            Thread.sleep(250);
+        }
+        throw new IllegalStateException("Application did not become ready within 120s");
+    }
+
+    /**
+     * Runs the virtual users for the warm-up plus the measured duration and returns the length of
+     * the measured window in seconds. Samples completed during the warm-up are discarded.
+     */
+    private static double drive(HttpClient client, String baseUrl, ExecutorService users,
+                                Map<String, Recorder> recorders, Options options) throws Exception {
+        long start = System.nanoTime();
+        long measureFrom = start + options.warmup().toNanos();
+        long end = measureFrom + options.duration().toNanos();
+        System.out.println("Running " + options.users() + " virtual users for " + options.duration().toSeconds()
+                + "s after a " + options.warmup().toSeconds() + "s warm-up...");
+
+        List<java.util.concurrent.Future<?>> tasks = new ArrayList<>();
+        for (int user = 0; user < options.users(); user++) {
+            int userId = user;
+            tasks.add(users.submit(() -> {
+                Random random = new Random(userId);
+                for (int iteration = 0; System.nanoTime() < end; iteration++) {
+                    String question = QUESTIONS.get((userId * 7 + iteration) % QUESTIONS.size());
+                    if (options.uniqueQuestions()) {
+                        question += " (user " + userId + ", request " + iteration + ")";
+                    }
+                    boolean measured = System.nanoTime() >= measureFrom;
+                    if (random.nextDouble() < options.streamRatio()) {
+                        streamQuery(client, baseUrl, question,
+                                measured ? recorders.get(QUERY_STREAM) : null,
+                                measured ? recorders.get(QUERY_STREAM_FIRST_EVENT) : null);
+                    } else {
+                        query(client, baseUrl, question, measured ? recorders.get(QUERY) : null);
+                    }
+                    if (!options.thinkTime().isZero()) {
+                        Thread.sleep(options.thinkTime());
+                    }
+                }
+                return null;
+            }));
+        }
+        if (!options.ingestInterval().isZero()) {
+            tasks.add(users.submit(() -> {
+                while (true) {
+                    Thread.sleep(options.ingestInterval());
+                    if (System.nanoTime() >= end) {
+                        return null;
+                    }
+                    ingest(client, baseUrl, System.nanoTime() >= measureFrom ? recorders.get(INGEST) : null);
+                }
+            }));
+        }
+        for (java.util.concurrent.Future<?> task : tasks) {
+            task.get();
+        }
+        return (Math.max(end, System.nanoTime()) - measureFrom) / 1e9;
+    }
+
+    private static void query(HttpClient client, String baseUrl, String question, Recorder recorder) {
+        long start = System.nanoTime();
+        boolean ok;
+        try {
+            HttpResponse<String> response = client.send(post(baseUrl + "/api/rag/query", question),
+                    HttpResponse.BodyHandlers.ofString());
+            ok = response.statusCode() == 200;
+        } catch (Exception e) {
+            ok = false;
+        }
+        if (recorder != null) {
+            recorder.record(System.nanoTime() - start, ok);
+        }
+    }
+
+    private static void streamQuery(HttpClient client, String baseUrl, String question,
+                                    Recorder complete, Recorder firstEvent) {
+        long start = System.nanoTime();
+        boolean ok;
+        try {
+            HttpResponse<Stream<String>> response = client.send(post(baseUrl + "/api/rag/query/stream", question),
+                    HttpResponse.BodyHandlers.ofLines());
+            ok = response.statusCode() == 200;
+            boolean first = true;
+            Iterator<String> lines = response.body().iterator();
+            while (lines.hasNext()) {
+                String line = lines.next();
+                if (first && !line.isBlank()) {
+                    if (firstEvent != null) {
+                        firstEvent.record(System.nanoTime() - start, ok);
+                    }
+                    first = false;
+                }
+                if (line.startsWith("event:") && line.substring(6).trim().equals("error")) {
+                    ok = false;
+                }
+            }
+        } catch (Exception e) {
+            ok = false;
+        }
+        if (complete != null) {
+            complete.record(System.nanoTime() - start, ok);
+        }
+    }
+
+    private static HttpRequest post(String url, String question) throws IOException {
+        return HttpRequest.newBuilder(URI.create(url))
+                .timeout(Duration.ofMinutes(2))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(objectMapper.writeValueAsString(Map.of("question", question))))
+                .build();
+    }
+
+    /**
+     * Ingestion is an asynchronous job in current builds and a blocking call in older ones; either
+     * way the recorded latency is the time until all documents are stored.
+     */
+    private static void ingest(HttpClient client, String baseUrl, Recorder recorder) throws Exception {
+        long start = System.nanoTime();
+        boolean ok;
+        try {
+            HttpResponse<String> response = client.send(HttpRequest.newBuilder(URI.create(baseUrl + "/api/rag/ingest"))
+                    .timeout(Duration.ofMinutes(10))
+                    .POST(HttpRequest.BodyPublishers.noBody())
+                    .build(), HttpResponse.BodyHandlers.ofString());
+            ok = response.statusCode() / 100 == 2;
+            JsonNode body = objectMapper.readTree(response.body());
+            if (ok && body.hasNonNull("jobId")) {
+                ok = awaitJob(client, baseUrl, body.get("jobId").asText());
+            }
+        } catch (IOException e) {
+            ok = false;
+        }
+        if (recorder != null) {
+            recorder.record(System.nanoTime() - start, ok);
+        }
+    }
+
+    private static boolean awaitJob(HttpClient client, String baseUrl, String jobId) throws Exception {
+        HttpRequest poll = HttpRequest.newBuilder(URI.create(baseUrl + "/api/rag/ingest/jobs/" + jobId)).GET().build();
+        while (true) {
+            JsonNode job = objectMapper.readTree(client.send(poll, HttpResponse.BodyHandlers.ofString()).body());
+            switch (job.path("status").asText()) {
+                case "COMPLETED":
+                    return true;
+                case "FAILED":
+                case "CANCELLED":
+                    return false;
+                default:
+                    Thread.sleep(100);
+            }
+        }
+    }
+
+    /**
+     * Prints both reports side by side and returns false if the candidate regressed: p95 or p99
+     * latency or throughput worse by more than {@code tolerance}, or an error rate more than one
+     * percentage point higher.
+     */
+    static boolean compare(LoadTestReport baseline, LoadTestReport candidate, double tolerance) {
+        boolean ok = true;
+        System.out.printf("%-26s %-12s %12s %12s %9s%n", "scenario", "metric", "baseline", "candidate", "change");
+        for (Map.Entry<String, LoadTestReport.ScenarioStats> entry : candidate.scenarios().entrySet()) {
+            LoadTestReport.ScenarioStats before = baseline.scenarios().get(entry.getKey());
+            LoadTestReport.ScenarioStats after = entry.getValue();
+            if (before == null) {
+                continue;
+            }
+            ok &= compareMetric(entry.getKey(), "p50 ms", before.p50Ms(), after.p50Ms(), Double.POSITIVE_INFINITY);
+            ok &= compareMetric(entry.getKey(), "p95 ms", before.p95Ms(), after.p95Ms(), tolerance);
+            ok &= compareMetric(entry.getKey(), "p99 ms", before.p99Ms(), after.p99Ms(), tolerance);
+            if (!INGEST.equals(entry.getKey())) {
+                ok &= compareMetric(entry.getKey(), "req/s", -before.throughput(), -after.throughput(), tolerance);
+            }
+            boolean errorsOk = after.errorRate() - before.errorRate() <= 0.01;
+            System.out.printf("%-26s %-12s %11.2f%% %11.2f%% %9s%n", entry.getKey(), "errors",
+                    before.errorRate() * 100, after.errorRate() * 100, errorsOk ? "" : "REGRESSED");
+            ok &= errorsOk;
+        }
+        System.out.println(ok ? "No regression beyond " + Math.round(tolerance * 100) + "%" : "REGRESSION");
+        return ok;
+    }
+
+    /**
+     * Lower is better for {@code before}/{@code after}; throughput is passed negated.
+     */
+    private static boolean compareMetric(String scenario, String metric, double before, double after, double tolerance) {
+        double change = before == 0 ? 0 : (after - before) / Math.abs(before);
+        boolean ok = change <= tolerance;
+        System.out.printf("%-26s %-12s %12.1f %12.1f %+8.1f%%%s%n", scenario, metric, Math.abs(before), Math.abs(after),
+                before < 0 ? -change * 100 : change * 100, ok ? "" : " REGRESSED");
+        return ok;
+    }
+
+    private static void print(LoadTestReport report) {
+        System.out.printf("%-26s %8s %7s %9s %9s %9s %9s %9s%n",
+                "scenario", "requests", "errors", "req/s", "p50 ms", "p95 ms", "p99 ms", "max ms");
+        report.scenarios().forEach((scenario, stats) -> System.out.printf("%-26s %8d %7d %9.1f %9.1f %9.1f %9.1f %9.1f%n",
+                scenario, stats.requests(), stats.errors(), stats.throughput(),
+                stats.p50Ms(), stats.p95Ms(), stats.p99Ms(), stats.maxMs()));
+        System.out.println("Stub model calls: " + report.embeddingRequests() + " embedding, " + report.chatRequests() + " chat");
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    private static void deleteRecursively(Path directory) throws IOException {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    /**
+     * Latencies of one scenario; recorded from many virtual users at once.
+     */
+    private static class Recorder {
+
+        private long[] latencies = new long[1024];
+        private int count;
+        private final AtomicLong errors = new AtomicLong();
+
+        synchronized void record(long nanos, boolean ok) {
+            if (count == latencies.length) {
+                latencies = Arrays.copyOf(latencies, count * 2);
+            }
+            latencies[count++] = nanos;
+            if (!ok) {
+                errors.incrementAndGet();
+            }
+        }
+
+        synchronized int count() {
+            return count;
+        }
+
+        synchronized LoadTestReport.ScenarioStats stats(double seconds) {
+            return LoadTestReport.ScenarioStats.of(Arrays.copyOf(latencies, count), errors.get(), seconds);
+        }
+    }
+
+    private record Options(Path jar, Path baselineJar, int users, Duration duration, Duration warmup,
+                           Duration thinkTime, double streamRatio, Duration ingestInterval, boolean uniqueQuestions,
+                           Duration embeddingLatency, Duration chatLatency, Duration firstTokenLatency,
+                           int answerTokens, int redisPort, Path out, double tolerance, List<String> appArgs,
+                           List<String> appJvmArgs) {
+
+        static Options parse(String[] args) {
+            Map<String, String> values = new HashMap<>();
+            List<String> appArgs = new ArrayList<>();
+            List<String> appJvmArgs = new ArrayList<>();
+            for (int i = 0; i < args.length; i++) {
+                if (!args[i].startsWith("--") || i + 1 >= args.length) {
+                    throw new IllegalArgumentException("Expected --name value but got " + args[i]);
+                }
+                String name = args[i].substring(2);
+                if (name.equals("app-arg")) {
+                    appArgs.add(args[++i]);
+                } else if (name.equals("app-jvm-arg")) {
+                    appJvmArgs.add(args[++i]);
+                } else {
+                    values.put(name, args[++i]);
+                }
+            }
+            return new Options(
+                    Path.of(values.getOrDefault("jar", "target/EnhancedRAG-0.0.1-SNAPSHOT.jar")),
+                    values.containsKey("baseline-jar") ? Path.of(values.get("baseline-jar")) : null,
+                    Integer.parseInt(values.getOrDefault("users", "16")),
+                    duration(values.getOrDefault("duration", "60s")),
+                    duration(values.getOrDefault("warmup", "10s")),
+                    duration(values.getOrDefault("think-time", "0ms")),
+                    Double.parseDouble(values.getOrDefault("stream-ratio", "0")),
+                    duration(values.getOrDefault("ingest-interval", "0s")),
+                    Boolean.parseBoolean(values.getOrDefault("unique-questions", "true")),
+                    duration(values.getOrDefault("embedding-latency", "40ms")),
+                    duration(values.getOrDefault("chat-latency", "800ms")),
+                    duration(values.getOrDefault("first-token-latency", "200ms")),
+                    Integer.parseInt(values.getOrDefault("answer-tokens", "80")),
+                    Integer.parseInt(values.getOrDefault("redis-port", "6379")),
+                    Path.of(values.getOrDefault("out", "target/loadtest/report.json")),
+                    Double.parseDouble(values.getOrDefault("tolerance", "0.10")),
+                    List.copyOf(appArgs),
+                    List.copyOf(appJvmArgs));
+        }
+
+        private static Duration duration(String value) {
+            return DurationStyle.detectAndParse(value);
+        }
+
+        Map<String, Object> settings() {
+            Map<String, Object> settings = new LinkedHashMap<>();
+            settings.put("users", users);
+            settings.put("duration", duration.toString());
+            settings.put("warmup", warmup.toString());
+            settings.put("thinkTime", thinkTime.toString());
+            settings.put("streamRatio", streamRatio);
+            settings.put("ingestInterval", ingestInterval.toString());
+            settings.put("uniqueQuestions", uniqueQuestions);
+            settings.put("embeddingLatency", embeddingLatency.toString());
+            settings.put("chatLatency", chatLatency.toString());
+            settings.put("firstTokenLatency", firstTokenLatency.toString());
+            settings.put("answerTokens", answerTokens);
+            settings.put("appArgs", appArgs);
+            settings.put("appJvmArgs", appJvmArgs);
+            return settings;
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package cs544.project.EnhancedRAG.loadtest;
+
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Result of one load test run, written as JSON so that runs of different builds can be compared.
+ */
+public record LoadTestReport(String label,
+                             String jar,
+                             long startedAt,
+                             Map<String, Object> settings,
+                             Map<String, ScenarioStats> scenarios,
+                             long embeddingRequests,
+                             long chatRequests) {
+
+    /**
+     * Latencies in milliseconds; {@code throughput} is completed requests per second of the
+     * measured window, failed ones included.
+     */
+    public record ScenarioStats(long requests,
+                                long errors,
+                                double errorRate,
+                                double throughput,
+                                double meanMs,
+                                double p50Ms,
+                                double p95Ms,
+                                double p99Ms,
+                                double maxMs) {
+
+        static ScenarioStats of(long[] latencyNanos, long errors, double seconds) {
+            long[] sorted = latencyNanos.clone();
+            Arrays.sort(sorted);
+            int requests = sorted.length;
+            return new ScenarioStats(
+                    requests,
+                    errors,
+                    requests == 0 ? 0 : (double) errors / requests,
+                    seconds <= 0 ? 0 : requests / seconds,
+                    requests == 0 ? 0 : Arrays.stream(sorted).average().orElse(0) / 1e6,
+                    percentile(sorted, 0.50),
+                    percentile(sorted, 0.95),
+                    percentile(sorted, 0.99),
+                    requests == 0 ? 0 : sorted[requests - 1] / 1e6);
+        }
+
+        /**
+         * Nearest-rank percentile of sorted nanosecond values, in milliseconds.
+         */
+        private static double percentile(long[] sorted, double quantile) {
+            if (sorted.length == 0) {
+                return 0;
+            }
+            int rank = (int) Math.ceil(quantile * sorted.length);
+            return sorted[Math.max(0, rank - 1)] / 1e6;
+        }
+    }
+}
@@ -0,0 +1,298 @@
+package cs544.project.EnhancedRAG.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+/**
+ * Deterministic stand-in for the OpenAI embeddings and chat completions endpoints, including
+ * streamed completions. The application reaches it through {@code spring.ai.openai.base-url}, so
+ * the real Spring AI clients, retries and advisors stay in the measured path.
+ * <p>
+ * Embeddings are hashed bags of words on top of a shared component: identical texts get identical
+ * vectors, texts sharing words rank above texts that do not, and every chunk stays above the
+ * retriever's similarity threshold so queries always have context to merge.
+ */
+public class StubOpenAiServer implements AutoCloseable {
+
+    private static final Logger logger = Logger.getLogger(StubOpenAiServer.class.getName());
+
+    static final int DIMENSIONS = 1536;
+
+    // Weight of the component all vectors share; cosine between unrelated texts is about its square
+    private static final double SHARED_WEIGHT = Math.sqrt(0.85);
+
+    private static final String FILLER = "The retrieved documentation covers this topic in detail and the relevant "
+            + "configuration options are listed in the sources below together with their defaults";
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final Duration embeddingLatency;
+    private final Duration chatLatency;
+    private final Duration firstTokenLatency;
+    private final int answerTokens;
+    private final float[] shared;
+
+    private final AtomicLong embeddingRequests = new AtomicLong();
+    private final AtomicLong chatRequests = new AtomicLong();
+
+    private StubOpenAiServer(Duration embeddingLatency, Duration chatLatency, Duration firstTokenLatency,
+                             int answerTokens) throws IOException {
+        this.embeddingLatency = embeddingLatency;
+        this.chatLatency = chatLatency;
+        this.firstTokenLatency = firstTokenLatency;
+        this.answerTokens = answerTokens;
+        this.shared = hashedVector("shared component of every stub embedding");
+
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 256);
+        server.setExecutor(executor);
+    }
+
+    /**
+     * Starts a stub on a free local port.
+     *
+     * @param embeddingLatency  delay of every embeddings request
+     * @param chatLatency       time until a completion is fully generated
+     * @param firstTokenLatency time until the first token of a streamed completion
+     * @param answerTokens      words per generated answer
+     */
+    public static StubOpenAiServer start(Duration embeddingLatency, Duration chatLatency, Duration firstTokenLatency,
+                                         int answerTokens) throws IOException {
+        StubOpenAiServer stub = new StubOpenAiServer(embeddingLatency, chatLatency, firstTokenLatency, answerTokens);
+        stub.server.createContext("/v1/embeddings", exchange -> stub.handle(exchange, stub::embeddings));
+        stub.server.createContext("/v1/chat/completions", exchange -> stub.handle(exchange, stub::chatCompletions));
+        stub.server.start();
+        logger.info("Stub OpenAI API listening on " + stub.getBaseUrl());
+        return stub;
+    }
+
+    public String getBaseUrl() {
+        return "http://localhost:" + server.getAddress().getPort();
+    }
+
+    public long getEmbeddingRequests() {
+        return embeddingRequests.get();
+    }
+
+    public long getChatRequests() {
+        return chatRequests.get();
+    }
+
+    private interface Handler {
+        void handle(HttpExchange exchange, JsonNode request) throws Exception;
+    }
+
+    private void handle(HttpExchange exchange, Handler handler) {
+        try (exchange) {
+            JsonNode request = objectMapper.readTree(exchange.getRequestBody());
+            handler.handle(exchange, request);
+        } catch (Exception e) {
+            logger.warning("Stub request failed: " + e);
+            try {
+                byte[] body = ("{\"error\":{\"message\":\"" + e.getClass().getSimpleName() + "\"}}")
+                        .getBytes(StandardCharsets.UTF_8);
+                exchange.sendResponseHeaders(500, body.length);
+                exchange.getResponseBody().write(body);
+            } catch (IOException ignored) {
+                // Headers were already sent
+            }
+        }
+    }
+
+    private void embeddings(HttpExchange exchange, JsonNode request) throws Exception {
+        embeddingRequests.incrementAndGet();
+        List<String> inputs = new ArrayList<>();
+        if (request.path("input").isArray()) {
+            request.path("input").forEach(input -> inputs.add(input.asText()));
+        } else {
+            inputs.add(request.path("input").asText());
+        }
+        Thread.sleep(embeddingLatency);
+
+        ObjectNode response = objectMapper.createObjectNode();
+        response.put("object", "list");
+        response.put("model", request.path("model").asText("text-embedding-ada-002"));
+        ArrayNode data = response.putArray("data");
+        int tokens = 0;
+        for (int i = 0; i < inputs.size(); i++) {
+            ObjectNode item = data.addObject();
+            item.put("object", "embedding");
+            item.put("index", i);
+            ArrayNode embedding = item.putArray("embedding");
+            for (float value : embed(inputs.get(i))) {
+                embedding.add(value);
+            }
+            tokens += words(inputs.get(i)).length;
+        }
+        response.putObject("usage").put("prompt_tokens", tokens).put("total_tokens", tokens);
+        sendJson(exchange, response);
+    }
+
+    private void chatCompletions(HttpExchange exchange, JsonNode request) throws Exception {
+        chatRequests.incrementAndGet();
+        String question = "";
+        int promptTokens = 0;
+        for (JsonNode message : request.path("messages")) {
+            String content = message.path("content").isTextual()
+                    ? message.path("content").asText()
+                    : message.path("content").toString();
+            promptTokens += words(content).length;
+            if ("user".equals(message.path("role").asText())) {
+                question = content;
+            }
+        }
+        List<String> answer = answer(question);
+        String model = request.path("model").asText("gpt-5-nano");
+
+        if (!request.path("stream").asBoolean(false)) {
+            Thread.sleep(chatLatency);
+            ObjectNode response = completion("chat.completion", model);
+            ObjectNode choice = response.putArray("choices").addObject();
+            choice.put("index", 0);
+            choice.putObject("message").put("role", "assistant").put("content", String.join(" ", answer));
+            choice.put("finish_reason", "stop");
+            usage(response, promptTokens, answer.size());
+            sendJson(exchange, response);
+            return;
+        }
+
+        exchange.getResponseHeaders().set("Content-Type", "text/event-stream");
+        exchange.sendResponseHeaders(200, 0);
+        OutputStream out = exchange.getResponseBody();
+        Thread.sleep(firstTokenLatency);
+        long perToken = Math.max(0, (chatLatency.toNanos() - firstTokenLatency.toNanos()) / Math.max(1, answer.size()));
+        for (int i = 0; i < answer.size(); i++) {
+            if (i > 0 && perToken > 0) {
+                Thread.sleep(Duration.ofNanos(perToken));
+            }
+            ObjectNode chunk = completion("chat.completion.chunk", model);
+            ObjectNode choice = chunk.putArray("choices").addObject();
+            choice.put("index", 0);
+            ObjectNode delta = choice.putObject("delta");
+            if (i == 0) {
+                delta.put("role", "assistant");
+            }
+            delta.put("content", (i == 0 ? "" : " ") + answer.get(i));
+            choice.putNull("finish_reason");
+            sendEvent(out, chunk.toString());
+        }
+        ObjectNode last = completion("chat.completion.chunk", model);
+        ObjectNode choice = last.putArray("choices").addObject();
+        choice.put("index", 0);
+        choice.putObject("delta");
+        choice.put("finish_reason", "stop");
+        usage(last, promptTokens, answer.size());
+        sendEvent(out, last.toString());
+        sendEvent(out, "[DONE]");
+    }
+
+    private List<String> answer(String question) {
+        List<String> answer = new ArrayList<>();
+        String[] questionWords = words(question);
+        answer.add("Regarding");
+        for (int i = 0; i < Math.min(8, questionWords.length); i++) {
+            answer.add(questionWords[i]);
+        }
+        String[] filler = FILLER.split(" ");
+        for (int i = 0; answer.size() < answerTokens; i++) {
+            answer.add(filler[i % filler.length]);
+        }
+        return answer.subList(0, Math.max(1, Math.min(answer.size(), answerTokens)));
+    }
+
+    private ObjectNode completion(String object, String model) {
+        ObjectNode response = objectMapper.createObjectNode();
+        response.put("id", "chatcmpl-stub");
+        response.put("object", object);
+        response.put("created", System.currentTimeMillis() / 1000);
+        response.put("model", model);
+        return response;
+    }
+
+    private static void usage(ObjectNode response, int promptTokens, int completionTokens) {
+        response.putObject("usage")
+                .put("prompt_tokens", promptTokens)
+                .put("completion_tokens", completionTokens)
+                .put("total_tokens", promptTokens + completionTokens);
+    }
+
+    private void sendJson(HttpExchange exchange, ObjectNode response) throws IOException {
+        byte[] body = objectMapper.writeValueAsBytes(response);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, body.length);
+        exchange.getResponseBody().write(body);
+    }
+
+    private static void sendEvent(OutputStream out, String data) throws IOException {
+        out.write(("data: " + data + "\n\n").getBytes(StandardCharsets.UTF_8));
+        out.flush();
+    }
+
+    float[] embed(String text) {
+        float[] words = hashedVector(text);
+        float[] vector = new float[DIMENSIONS];
+        double wordWeight = Math.sqrt(1 - SHARED_WEIGHT * SHARED_WEIGHT);
+        for (int i = 0; i < DIMENSIONS; i++) {
+            vector[i] = (float) (SHARED_WEIGHT * shared[i] + wordWeight * words[i]);
+        }
+        return normalize(vector);
+    }
+
+    /**
+     * Feature hashing: every word adds ±1 to one dimension, so the cosine of two vectors grows
+     * with the words the texts share.
+     */
+    private static float[] hashedVector(String text) {
+        float[] vector = new float[DIMENSIONS];
+        for (String word : words(text)) {
+            int hash = word.hashCode() * 0x9E3779B9;
+            vector[Math.floorMod(hash, DIMENSIONS)] += (hash & 0x10000) == 0 ? 1 : -1;
+        }
+        return normalize(vector);
+    }
+
+    private static float[] normalize(float[] vector) {
+        double norm = 0;
+        for (float value : vector) {
+            norm += value * value;
+        }
+        if (norm == 0) {
+            vector[0] = 1;
+            return vector;
+        }
+        float scale = (float) (1 / Math.sqrt(norm));
+        for (int i = 0; i < vector.length; i++) {
+            vector[i] *= scale;
+        }
+        return vector;
+    }
+
+    private static String[] words(String text) {
+        String trimmed = text.toLowerCase(Locale.ROOT).replaceAll("[^\\p{L}\\p{N}]+", " ").trim();
+        return trimmed.isEmpty() ? new String[0] : trimmed.split(" ");
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+}
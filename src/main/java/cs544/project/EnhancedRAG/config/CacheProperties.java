@@ -0,0 +1,153 @@
+package cs544.project.EnhancedRAG.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Settings for the caches on the query path (prefix {@code rag.cache}).
+ */
+@ConfigurationProperties(prefix = "rag.cache")
+public class CacheProperties {
+
+    private final QueryEmbedding queryEmbedding = new QueryEmbedding();
+    private final Answer answer = new Answer();
+    private final DocumentEmbedding documentEmbedding = new DocumentEmbedding();
+
+    public QueryEmbedding getQueryEmbedding() {
+        return queryEmbedding;
+    }
+
+    public Answer getAnswer() {
+        return answer;
+    }
+
+    public DocumentEmbedding getDocumentEmbedding() {
+        return documentEmbedding;
+    }
+
+    public static class QueryEmbedding {
+
+        private boolean enabled = true;
+
+        // Each entry is one 1536-dim float[] (~6 KB), so 10k entries stay around 60 MB
+        private int maxEntries = 10_000;
+
+        private Duration ttl = Duration.ofHours(24);
+
+        // Getters and setters
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public int getMaxEntries() {
+            return maxEntries;
+        }
+
+        public void setMaxEntries(int maxEntries) {
+            this.maxEntries = maxEntries;
+        }
+
+        public Duration getTtl() {
+            return ttl;
+        }
+
+        public void setTtl(Duration ttl) {
+            this.ttl = ttl;
+        }
+    }
+
+    public static class Answer {
+
+        private boolean enabled = true;
+
+        // Same 0..1 similarity scale as the document stores; 0.97 is roughly cosine 0.94
+        private double similarityThreshold = 0.97;
+
+        private Duration ttl = Duration.ofHours(1);
+
+        private String indexName = "idx:answer-cache";
+
+        private String prefix = "cache:answer:";
+
+        // Getters and setters
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public double getSimilarityThreshold() {
+            return similarityThreshold;
+        }
+
+        public void setSimilarityThreshold(double similarityThreshold) {
+            this.similarityThreshold = similarityThreshold;
+        }
+
+        public Duration getTtl() {
+            return ttl;
+        }
+
+        public void setTtl(Duration ttl) {
+            this.ttl = ttl;
+        }
+
+        public String getIndexName() {
+            return indexName;
+        }
+
+        public void setIndexName(String indexName) {
+            this.indexName = indexName;
+        }
+
+        public String getPrefix() {
+            return prefix;
+        }
+
+        public void setPrefix(String prefix) {
+            this.prefix = prefix;
+        }
+    }
+
+    public static class DocumentEmbedding {
+
+        private boolean enabled = true;
+
+        // Vectors are kept per model; change this together with the embedding model
+        private String modelName = "text-embedding-ada-002";
+
+        private String directory = "data/embedding-cache";
+
+        // Getters and setters
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public String getModelName() {
+            return modelName;
+        }
+
+        public void setModelName(String modelName) {
+            this.modelName = modelName;
+        }
+
+        public String getDirectory() {
+            return directory;
+        }
+
+        public void setDirectory(String directory) {
+            this.directory = directory;
+        }
+    }
+}
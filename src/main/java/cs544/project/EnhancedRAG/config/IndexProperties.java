@@ -0,0 +1,171 @@
+package cs544.project.EnhancedRAG.config;
+
+import cs544.project.EnhancedRAG.model.DocumentType;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Layout of the RediSearch vector indexes (prefix {@code rag.index}).
+ */
+@ConfigurationProperties(prefix = "rag.index")
+public class IndexProperties {
+
+    public enum Mode {
+        // One index per document type (idx:pdf, idx:markdown, ...), searched one by one
+        PER_TYPE,
+        // One index over all document prefixes with document_type as a TAG field
+        UNIFIED
+    }
+
+    public enum Algorithm {
+        // Exact brute-force search; best for small stores
+        FLAT,
+        // Approximate graph search; sub-linear in the store size
+        HNSW
+    }
+
+    public enum DataType {
+        FLOAT32,
+        // Half the index memory per vector, at a small loss of precision
+        FLOAT16
+    }
+
+    private static final VectorIndex DEFAULT_VECTOR_INDEX = new VectorIndex();
+
+    private Mode mode = Mode.PER_TYPE;
+
+    // Name of the single index in UNIFIED mode
+    private String unifiedIndexName = "idx:documents";
+
+    // Drop the indexes of the other layout (never the documents) once the active one is fully indexed
+    private boolean dropUnusedIndexes = false;
+
+    // Vector field settings per store index (rag.index.stores.pdf.algorithm=HNSW, ...); missing stores use the defaults
+    private Map<DocumentType, VectorIndex> stores = new EnumMap<>(DocumentType.class);
+
+    // Vector field settings of the single index in UNIFIED mode
+    private VectorIndex unified = new VectorIndex();
+
+    // Getters and setters
+    public Mode getMode() {
+        return mode;
+    }
+
+    public void setMode(Mode mode) {
+        this.mode = mode;
+    }
+
+    public boolean isUnified() {
+        return mode == Mode.UNIFIED;
+    }
+
+    public String getUnifiedIndexName() {
+        return unifiedIndexName;
+    }
+
+    public void setUnifiedIndexName(String unifiedIndexName) {
+        this.unifiedIndexName = unifiedIndexName;
+    }
+
+    public boolean isDropUnusedIndexes() {
+        return dropUnusedIndexes;
+    }
+
+    public void setDropUnusedIndexes(boolean dropUnusedIndexes) {
+        this.dropUnusedIndexes = dropUnusedIndexes;
+    }
+
+    public Map<DocumentType, VectorIndex> getStores() {
+        return stores;
+    }
+
+    public void setStores(Map<DocumentType, VectorIndex> stores) {
+        this.stores = stores;
+    }
+
+    public VectorIndex getUnified() {
+        return unified;
+    }
+
+    public void setUnified(VectorIndex unified) {
+        this.unified = unified;
+    }
+
+    /**
+     * Settings of the index that {@code type} is searched in, depending on the layout.
+     */
+    public VectorIndex vectorIndexFor(DocumentType type) {
+        if (isUnified()) {
+            return unified;
+        }
+        return stores.getOrDefault(type, DEFAULT_VECTOR_INDEX);
+    }
+
+    /**
+     * Settings of one vector index; they take effect when the index is created. The defaults are
+     * those Redis applies when nothing is specified.
+     */
+    public static class VectorIndex {
+
+        private Algorithm algorithm = Algorithm.HNSW;
+
+        // Type the index stores vectors as; query vectors are encoded to match
+        private DataType dataType = DataType.FLOAT32;
+
+        // HNSW: maximum outgoing edges per node; more means better recall and more memory
+        private int m = 16;
+
+        // HNSW: candidate list size while building the graph
+        private int efConstruction = 200;
+
+        // HNSW: candidate list size while searching, unless a query overrides it
+        private int efRuntime = 10;
+
+        // Getters and setters
+        public Algorithm getAlgorithm() {
+            return algorithm;
+        }
+
+        public void setAlgorithm(Algorithm algorithm) {
+            this.algorithm = algorithm;
+        }
+
+        public boolean isHnsw() {
+            return algorithm == Algorithm.HNSW;
+        }
+
+        public DataType getDataType() {
+            return dataType;
+        }
+
+        public void setDataType(DataType dataType) {
+            this.dataType = dataType;
+        }
+
+        public int getM() {
+            return m;
+        }
+
+        public void setM(int m) {
+            this.m = m;
+        }
+
+        public int getEfConstruction() {
+            return efConstruction;
+        }
+
+        public void setEfConstruction(int efConstruction) {
+            this.efConstruction = efConstruction;
+        }
+
+        public int getEfRuntime() {
+            return efRuntime;
+        }
+
+        public void setEfRuntime(int efRuntime) {
+            this.efRuntime = efRuntime;
+        }
+    }
+}
@@ -0,0 +1,219 @@
+package cs544.project.EnhancedRAG.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Tuning knobs for writing chunks into the vector stores (prefix {@code rag.ingestion}).
+ */
+@ConfigurationProperties(prefix = "rag.ingestion")
+public class IngestionProperties {
+
+    // Ingestion jobs running at the same time; further jobs wait in the queue
+    private int maxConcurrentJobs = 1;
+
+    // Finished jobs kept for the status API
+    private int retainedJobs = 50;
+
+    // Estimated tokens per batch; RedisVectorStore re-splits anything above its 8191-token
+    // embedding request limit, so staying below it keeps one batch = one embedding call
+    private int batchMaxTokens = 7000;
+
+    // Batches embedded and written at the same time, across all document types
+    private int concurrency = 4;
+
+    // Pipeline workers per stage; extraction (PDF parsing) is CPU bound, the store stage waits on Redis
+    private int extractWorkers = Runtime.getRuntime().availableProcessors();
+
+    private int chunkWorkers = 2;
+
+    private int storeWorkers = 2;
+
+    // Capacity of each queue between two pipeline stages
+    private int queueCapacity = 256;
+
+    // Chunking strategy: "token" packs chunks against a token budget, "character" uses fixed 6000-char windows
+    private String chunker = "token";
+
+    // Tokenizer used for the token budget; should match the embedding model
+    private String chunkTokenizerModel = "text-embedding-ada-002";
+
+    private int chunkMaxTokens = 1500;
+
+    private int chunkOverlapTokens = 50;
+
+    // PDF pages extracted and handed to chunking at a time
+    private int pdfPagesPerSegment = 8;
+
+    // Threads of the pool that extracts page ranges of one PDF in parallel; 1 disables it
+    private int pdfParallelism = Runtime.getRuntime().availableProcessors();
+
+    // Smaller PDFs are extracted on the calling thread, where opening extra documents does not pay off
+    private int pdfParallelMinPages = 32;
+
+    // Attempts after the first failure of a batch
+    private int maxRetries = 3;
+
+    // Backoff before the first retry, doubled for every further attempt
+    private Duration retryBackoff = Duration.ofMillis(500);
+
+    // How often the store statistics are recounted from Redis with SCAN
+    private Duration statsReconcileInterval = Duration.ofMinutes(5);
+
+    // Keys examined per SCAN call while recounting
+    private int statsScanCount = 1000;
+
+    // Getters and setters
+    public int getMaxConcurrentJobs() {
+        return maxConcurrentJobs;
+    }
+
+    public void setMaxConcurrentJobs(int maxConcurrentJobs) {
+        this.maxConcurrentJobs = maxConcurrentJobs;
+    }
+
+    public int getRetainedJobs() {
+        return retainedJobs;
+    }
+
+    public void setRetainedJobs(int retainedJobs) {
+        this.retainedJobs = retainedJobs;
+    }
+
+    public int getBatchMaxTokens() {
+        return batchMaxTokens;
+    }
+
+    public void setBatchMaxTokens(int batchMaxTokens) {
+        this.batchMaxTokens = batchMaxTokens;
+    }
+
+    public int getConcurrency() {
+        return concurrency;
+    }
+
+    public void setConcurrency(int concurrency) {
+        this.concurrency = concurrency;
+    }
+
+    public int getExtractWorkers() {
+        return extractWorkers;
+    }
+
+    public void setExtractWorkers(int extractWorkers) {
+        this.extractWorkers = extractWorkers;
+    }
+
+    public int getChunkWorkers() {
+        return chunkWorkers;
+    }
+
+    public void setChunkWorkers(int chunkWorkers) {
+        this.chunkWorkers = chunkWorkers;
+    }
+
+    public int getStoreWorkers() {
+        return storeWorkers;
+    }
+
+    public void setStoreWorkers(int storeWorkers) {
+        this.storeWorkers = storeWorkers;
+    }
+
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    public void setQueueCapacity(int queueCapacity) {
+        this.queueCapacity = queueCapacity;
+    }
+
+    public String getChunker() {
+        return chunker;
+    }
+
+    public void setChunker(String chunker) {
+        this.chunker = chunker;
+    }
+
+    public String getChunkTokenizerModel() {
+        return chunkTokenizerModel;
+    }
+
+    public void setChunkTokenizerModel(String chunkTokenizerModel) {
+        this.chunkTokenizerModel = chunkTokenizerModel;
+    }
+
+    public int getChunkMaxTokens() {
+        return chunkMaxTokens;
+    }
+
+    public void setChunkMaxTokens(int chunkMaxTokens) {
+        this.chunkMaxTokens = chunkMaxTokens;
+    }
+
+    public int getChunkOverlapTokens() {
+        return chunkOverlapTokens;
+    }
+
+    public void setChunkOverlapTokens(int chunkOverlapTokens) {
+        this.chunkOverlapTokens = chunkOverlapTokens;
+    }
+
+    public int getPdfPagesPerSegment() {
+        return pdfPagesPerSegment;
+    }
+
+    public void setPdfPagesPerSegment(int pdfPagesPerSegment) {
+        this.pdfPagesPerSegment = pdfPagesPerSegment;
+    }
+
+    public int getPdfParallelism() {
+        return pdfParallelism;
+    }
+
+    public void setPdfParallelism(int pdfParallelism) {
+        this.pdfParallelism = pdfParallelism;
+    }
+
+    public int getPdfParallelMinPages() {
+        return pdfParallelMinPages;
+    }
+
+    public void setPdfParallelMinPages(int pdfParallelMinPages) {
+        this.pdfParallelMinPages = pdfParallelMinPages;
+    }
+
+    public int getMaxRetries() {
+        return maxRetries;
+    }
+
+    public void setMaxRetries(int maxRetries) {
+        this.maxRetries = maxRetries;
+    }
+
+    public Duration getRetryBackoff() {
+        return retryBackoff;
+    }
+
+    public void setRetryBackoff(Duration retryBackoff) {
+        this.retryBackoff = retryBackoff;
+    }
+
+    public Duration getStatsReconcileInterval() {
+        return statsReconcileInterval;
+    }
+
+    public void setStatsReconcileInterval(Duration statsReconcileInterval) {
+        this.statsReconcileInterval = statsReconcileInterval;
+    }
+
+    public int getStatsScanCount() {
+        return statsScanCount;
+    }
+
+    public void setStatsScanCount(int statsScanCount) {
+        this.statsScanCount = statsScanCount;
+    }
+}
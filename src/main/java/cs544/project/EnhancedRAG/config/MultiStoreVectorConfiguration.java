@@ -7,13 +7,19 @@ import org.springframework.ai.vectorstore.VectorStore;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Primary;
+import org.springframework.boot.autoconfigure.data.redis.RedisConnectionDetails;
+import org.springframework.boot.autoconfigure.data.redis.RedisProperties;
+import org.springframework.boot.ssl.SslBundle;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.beans.factory.annotation.Qualifier;
+import redis.clients.jedis.ConnectionPoolConfig;
+import redis.clients.jedis.DefaultJedisClientConfig;
+import redis.clients.jedis.HostAndPort;
 import redis.clients.jedis.JedisPooled;
 
+import java.util.EnumMap;
 import java.util.Map;
-import java.util.HashMap;
 
 @Configuration
 public class MultiStoreVectorConfiguration {
@@ -27,28 +33,61 @@ public class MultiStoreVectorConfiguration {
     }
 
     @Bean
-    public JedisPooled jedisPooled() {
-        return new JedisPooled("localhost", 6379);
+    public JedisPooled jedisPooled(RedisProperties redisProperties, RedisConnectionDetails connectionDetails) {
+        // Same server, credentials, TLS, timeouts and pool sizing as the Spring Data connection (spring.data.redis.*)
+        RedisConnectionDetails.Standalone server = connectionDetails.getStandalone();
+        if (server == null) {
+            throw new IllegalStateException("JedisPooled needs a standalone Redis; sentinel and cluster are not supported");
+        }
+        DefaultJedisClientConfig.Builder clientConfig = DefaultJedisClientConfig.builder()
+                .user(connectionDetails.getUsername())
+                .password(connectionDetails.getPassword())
+                .database(server.getDatabase())
+                .clientName(redisProperties.getClientName());
+        if (redisProperties.getTimeout() != null) {
+            clientConfig.socketTimeoutMillis((int) redisProperties.getTimeout().toMillis());
+        }
+        if (redisProperties.getConnectTimeout() != null) {
+            clientConfig.connectionTimeoutMillis((int) redisProperties.getConnectTimeout().toMillis());
+        }
+        SslBundle sslBundle = server.getSslBundle();
+        if (sslBundle != null) {
+            clientConfig.ssl(true).sslSocketFactory(sslBundle.createSslContext().getSocketFactory());
+        } else if (redisProperties.getSsl().isEnabled()) {
+            clientConfig.ssl(true);
+        }
+
+        RedisProperties.Pool pool = redisProperties.getJedis().getPool();
+        ConnectionPoolConfig poolConfig = new ConnectionPoolConfig();
+        poolConfig.setMaxTotal(pool.getMaxActive());
+        poolConfig.setMaxIdle(pool.getMaxIdle());
+        poolConfig.setMinIdle(pool.getMinIdle());
+        poolConfig.setMaxWait(pool.getMaxWait());
+        return new JedisPooled(new HostAndPort(server.getHost(), server.getPort()), clientConfig.build(), poolConfig);
     }
 
     @Bean("pdfVectorStore")
-    public VectorStore pdfVectorStore(EmbeddingModel embeddingModel, JedisPooled jedisPooled) {
-        return createRedisVectorStore(embeddingModel, jedisPooled, DocumentType.PDF);
+    public VectorStore pdfVectorStore(EmbeddingModel embeddingModel, JedisPooled jedisPooled,
+                                    IndexProperties indexProperties) {
+        return createRedisVectorStore(embeddingModel, jedisPooled, DocumentType.PDF, indexProperties);
     }
 
     @Bean("markdownVectorStore")
-    public VectorStore markdownVectorStore(EmbeddingModel embeddingModel, JedisPooled jedisPooled) {
-        return createRedisVectorStore(embeddingModel, jedisPooled, DocumentType.MARKDOWN);
+    public VectorStore markdownVectorStore(EmbeddingModel embeddingModel, JedisPooled jedisPooled,
+                                    IndexProperties indexProperties) {
+        return createRedisVectorStore(embeddingModel, jedisPooled, DocumentType.MARKDOWN, indexProperties);
     }
 
     @Bean("jsonVectorStore")
-    public VectorStore jsonVectorStore(EmbeddingModel embeddingModel, JedisPooled jedisPooled) {
-        return createRedisVectorStore(embeddingModel, jedisPooled, DocumentType.JSON);
+    public VectorStore jsonVectorStore(EmbeddingModel embeddingModel, JedisPooled jedisPooled,
+                                    IndexProperties indexProperties) {
+        return createRedisVectorStore(embeddingModel, jedisPooled, DocumentType.JSON, indexProperties);
     }
 
     @Bean("textVectorStore")
-    public VectorStore textVectorStore(EmbeddingModel embeddingModel, JedisPooled jedisPooled) {
-        return createRedisVectorStore(embeddingModel, jedisPooled, DocumentType.TEXT);
+    public VectorStore textVectorStore(EmbeddingModel embeddingModel, JedisPooled jedisPooled,
+                                    IndexProperties indexProperties) {
+        return createRedisVectorStore(embeddingModel, jedisPooled, DocumentType.TEXT, indexProperties);
     }
 
     @Bean
@@ -58,7 +97,7 @@ public class MultiStoreVectorConfiguration {
             @Qualifier("jsonVectorStore") VectorStore jsonVectorStore,
             @Qualifier("textVectorStore") VectorStore textVectorStore) {
         
-        Map<DocumentType, VectorStore> storeMap = new HashMap<>();
+        Map<DocumentType, VectorStore> storeMap = new EnumMap<>(DocumentType.class);
         storeMap.put(DocumentType.PDF, pdfVectorStore);
         storeMap.put(DocumentType.MARKDOWN, markdownVectorStore);
         storeMap.put(DocumentType.JSON, jsonVectorStore);
@@ -69,12 +108,15 @@ public class MultiStoreVectorConfiguration {
 
     private VectorStore createRedisVectorStore(EmbeddingModel embeddingModel, 
                                              JedisPooled jedisPooled, 
-                                             DocumentType documentType) {
+                                             DocumentType documentType,
+                                             IndexProperties indexProperties) {
         
+        // VectorIndexInitializer creates the indexes with the configured vector settings; in UNIFIED
+        // mode all stores share one index, and the per-type prefix keeps keys the same in both modes
         return RedisVectorStore.builder(jedisPooled, embeddingModel)
-                .indexName(documentType.getIndexName())
+                .indexName(indexProperties.isUnified() ? indexProperties.getUnifiedIndexName() : documentType.getIndexName())
                 .prefix(documentType.getPrefix())
-                .initializeSchema(true)
+                .initializeSchema(false)
                 .build();
     }
 }
@@ -1,63 +1,86 @@
 package cs544.project.EnhancedRAG.config;
 
+import cs544.project.EnhancedRAG.embedding.QueryEmbeddingService;
+import cs544.project.EnhancedRAG.ingestion.StoreCentroids;
+import cs544.project.EnhancedRAG.metrics.ChatMetricsAdvisor;
+import cs544.project.EnhancedRAG.metrics.RagMetrics;
+import cs544.project.EnhancedRAG.model.DocumentType;
+import cs544.project.EnhancedRAG.retrieval.MultiStoreDocumentRetriever;
+import cs544.project.EnhancedRAG.retrieval.QueryRouter;
+import cs544.project.EnhancedRAG.retrieval.RedisKnnSearcher;
+import cs544.project.EnhancedRAG.retrieval.RetrievalReport;
+import cs544.project.EnhancedRAG.retrieval.TokenBudgetPacker;
 import org.springframework.ai.chat.client.ChatClient;
 import org.springframework.ai.chat.client.advisor.api.Advisor;
 import org.springframework.ai.chat.model.ChatModel;
-import org.springframework.ai.document.Document;
 import org.springframework.ai.rag.advisor.RetrievalAugmentationAdvisor;
 import org.springframework.ai.rag.generation.augmentation.ContextualQueryAugmenter;
+import org.springframework.ai.rag.generation.augmentation.QueryAugmenter;
 import org.springframework.ai.rag.retrieval.search.DocumentRetriever;
-import org.springframework.ai.vectorstore.SearchRequest;
 import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 @Configuration
+@EnableConfigurationProperties({RetrievalProperties.class, CacheProperties.class, IngestionProperties.class,
+        IndexProperties.class})
 public class RAGAdvisorConfiguration {
 
     @Bean
-    public ChatClient chatClient(ChatModel chatModel) {
-        return ChatClient.builder(chatModel).build();
+    public ChatClient chatClient(ChatModel chatModel, RagMetrics ragMetrics) {
+        return ChatClient.builder(chatModel)
+                .defaultAdvisors(new ChatMetricsAdvisor(ragMetrics))
+                .build();
+    }
+
+    @Bean(destroyMethod = "close")
+    public ExecutorService retrievalExecutor() {
+        // Store searches are I/O bound, so one virtual thread per search is cheap
+        return Executors.newVirtualThreadPerTaskExecutor();
     }
 
     @Bean
-    public DocumentRetriever multiStoreDocumentRetriever(
-            VectorStore pdfVectorStore,
-            VectorStore markdownVectorStore,
-            VectorStore jsonVectorStore,
-            VectorStore textVectorStore) {
+    public MultiStoreDocumentRetriever multiStoreDocumentRetriever(
+            Map<DocumentType, VectorStore> vectorStoreMap,
+            QueryEmbeddingService queryEmbeddingService,
+            RedisKnnSearcher redisKnnSearcher,
+            StoreCentroids storeCentroids,
+            ExecutorService retrievalExecutor,
+            RetrievalProperties retrievalProperties,
+            RagMetrics ragMetrics) {
         
-        return query -> {
-            List<Document> allDocuments = new ArrayList<>();
-            List<VectorStore> stores = List.of(pdfVectorStore, markdownVectorStore, jsonVectorStore, textVectorStore);
-            
-            for (VectorStore store : stores) {
-                try {
-                    SearchRequest searchRequest = SearchRequest.builder()
-                        .query(query.toString())
-                        .similarityThreshold(0.9)
-                        .build();
-                    List<Document> documents = store.similaritySearch(searchRequest);
-                    allDocuments.addAll(documents);
-                } catch (Exception e) {
-                    System.err.println("Error searching store: " + e.getMessage());
-                }
-            }
-            
-            return allDocuments;
-        };
+        QueryRouter router = new QueryRouter(storeCentroids, retrievalProperties.getRouting());
+        return new MultiStoreDocumentRetriever(vectorStoreMap.keySet(), queryEmbeddingService,
+                redisKnnSearcher, router, retrievalExecutor, retrievalProperties, ragMetrics);
+    }
+
+    @Bean
+    public TokenBudgetPacker tokenBudgetPacker(RetrievalProperties retrievalProperties) {
+        return new TokenBudgetPacker(retrievalProperties);
     }
 
     @Bean
-    public Advisor multiDocumentRetrievalAdvisor(DocumentRetriever multiStoreDocumentRetriever) {
+    public Advisor multiDocumentRetrievalAdvisor(DocumentRetriever multiStoreDocumentRetriever,
+                                                 TokenBudgetPacker tokenBudgetPacker) {
+        QueryAugmenter contextualQueryAugmenter = ContextualQueryAugmenter.builder()
+                .allowEmptyContext(true)
+                .build();
+        
         return RetrievalAugmentationAdvisor.builder()
                 .documentRetriever(multiStoreDocumentRetriever)
-                .queryAugmenter(ContextualQueryAugmenter.builder()
-                        .allowEmptyContext(true)
-                        .build())
+                .documentPostProcessors(tokenBudgetPacker)
+                .queryAugmenter((query, documents) -> {
+                    // Publish the prompt context before the chat model is called (used for streaming sources)
+                    if (query.context().get(RetrievalReport.CONTEXT_KEY) instanceof RetrievalReport report) {
+                        report.recordPromptDocuments(documents);
+                    }
+                    return contextualQueryAugmenter.augment(query, documents);
+                })
                 .build();
     }
 }
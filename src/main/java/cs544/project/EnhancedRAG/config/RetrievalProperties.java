@@ -0,0 +1,212 @@
+package cs544.project.EnhancedRAG.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import cs544.project.EnhancedRAG.model.DocumentType;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Tuning knobs for the multi-store retrieval path (prefix {@code rag.retrieval}).
+ */
+@ConfigurationProperties(prefix = "rag.retrieval")
+public class RetrievalProperties {
+
+    // Maximum time a single store search may take before it is abandoned
+    private Duration storeTimeout = Duration.ofSeconds(2);
+
+    // Upper bound for the whole fan-out, regardless of the per-store timeout
+    private Duration globalTimeout = Duration.ofSeconds(3);
+
+    // Search all per-type indexes in one pipelined round trip instead of one concurrent call per store;
+    // the stores then share one deadline, so one slow store times out all of them
+    private boolean pipelineStoreSearches = false;
+
+    // Candidates requested from each store
+    private int storeTopK = 4;
+
+    // Documents kept across all stores after merging, best similarity first
+    private int topK = 6;
+
+    // Minimum similarity (0..1) for a hit to be considered at all
+    private double similarityThreshold = 0.9;
+
+    // Collapse adjacent chunks of the same source into one document with the overlap removed
+    private boolean collapseAdjacentChunks = true;
+
+    // Token budget for all documents placed into the prompt
+    private int contextMaxTokens = 3000;
+
+    // Largest share of that budget a single document may take; longer ones are trimmed to relevant passages
+    private int contextMaxTokensPerDocument = 800;
+
+    private final Routing routing = new Routing();
+
+    // Getters and setters
+    public Duration getStoreTimeout() {
+        return storeTimeout;
+    }
+
+    public void setStoreTimeout(Duration storeTimeout) {
+        this.storeTimeout = storeTimeout;
+    }
+
+    public Duration getGlobalTimeout() {
+        return globalTimeout;
+    }
+
+    public void setGlobalTimeout(Duration globalTimeout) {
+        this.globalTimeout = globalTimeout;
+    }
+
+    public boolean isPipelineStoreSearches() {
+        return pipelineStoreSearches;
+    }
+
+    public void setPipelineStoreSearches(boolean pipelineStoreSearches) {
+        this.pipelineStoreSearches = pipelineStoreSearches;
+    }
+
+    public int getStoreTopK() {
+        return storeTopK;
+    }
+
+    public void setStoreTopK(int storeTopK) {
+        this.storeTopK = storeTopK;
+    }
+
+    public int getTopK() {
+        return topK;
+    }
+
+    public void setTopK(int topK) {
+        this.topK = topK;
+    }
+
+    public double getSimilarityThreshold() {
+        return similarityThreshold;
+    }
+
+    public void setSimilarityThreshold(double similarityThreshold) {
+        this.similarityThreshold = similarityThreshold;
+    }
+
+    public boolean isCollapseAdjacentChunks() {
+        return collapseAdjacentChunks;
+    }
+
+    public void setCollapseAdjacentChunks(boolean collapseAdjacentChunks) {
+        this.collapseAdjacentChunks = collapseAdjacentChunks;
+    }
+
+    public int getContextMaxTokens() {
+        return contextMaxTokens;
+    }
+
+    public void setContextMaxTokens(int contextMaxTokens) {
+        this.contextMaxTokens = contextMaxTokens;
+    }
+
+    public int getContextMaxTokensPerDocument() {
+        return contextMaxTokensPerDocument;
+    }
+
+    public void setContextMaxTokensPerDocument(int contextMaxTokensPerDocument) {
+        this.contextMaxTokensPerDocument = contextMaxTokensPerDocument;
+    }
+
+    public Routing getRouting() {
+        return routing;
+    }
+
+    /**
+     * Store routing (prefix {@code rag.retrieval.routing}): which stores a question is sent to.
+     */
+    public static class Routing {
+
+        private boolean enabled = true;
+
+        // Stores whose score is within this margin of the best store's score are searched too
+        private double margin = 0.03;
+
+        // More stores than this within the margin means the router is unsure: search all of them
+        private int maxStores = 2;
+
+        // A best score below this means no store is clearly related to the question: search all of them.
+        // text-embedding-ada-002 puts unrelated text at a cosine similarity of about 0.7
+        private double minScore = 0.75;
+
+        // Added to a store's centroid similarity for each of its keywords in the question (at most two)
+        private double keywordBoost = 0.02;
+
+        // Share of routed queries that also search the skipped stores in the background to measure recall
+        private double shadowSampleRate = 0.05;
+
+        // Question words that point at a store's content
+        private Map<DocumentType, List<String>> keywords = new EnumMap<>(Map.of(
+                DocumentType.PDF, List.of("pdf", "page", "chapter", "reference"),
+                DocumentType.MARKDOWN, List.of("markdown", "readme", "guide", "tutorial"),
+                DocumentType.JSON, List.of("json", "property", "properties", "field", "setting", "settings", "config"),
+                DocumentType.TEXT, List.of("faq", "troubleshoot", "troubleshooting", "error", "txt")));
+
+        // Getters and setters
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public double getMargin() {
+            return margin;
+        }
+
+        public void setMargin(double margin) {
+            this.margin = margin;
+        }
+
+        public int getMaxStores() {
+            return maxStores;
+        }
+
+        public void setMaxStores(int maxStores) {
+            this.maxStores = maxStores;
+        }
+
+        public double getMinScore() {
+            return minScore;
+        }
+
+        public void setMinScore(double minScore) {
+            this.minScore = minScore;
+        }
+
+        public double getKeywordBoost() {
+            return keywordBoost;
+        }
+
+        public void setKeywordBoost(double keywordBoost) {
+            this.keywordBoost = keywordBoost;
+        }
+
+        public double getShadowSampleRate() {
+            return shadowSampleRate;
+        }
+
+        public void setShadowSampleRate(double shadowSampleRate) {
+            this.shadowSampleRate = shadowSampleRate;
+        }
+
+        public Map<DocumentType, List<String>> getKeywords() {
+            return keywords;
+        }
+
+        public void setKeywords(Map<DocumentType, List<String>> keywords) {
+            this.keywords = keywords;
+        }
+    }
+}
@@ -0,0 +1,262 @@
+package cs544.project.EnhancedRAG.config;
+
+import cs544.project.EnhancedRAG.model.DocumentType;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.stereotype.Component;
+import redis.clients.jedis.JedisPooled;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.json.JsonSetParams;
+import redis.clients.jedis.json.Path2;
+import redis.clients.jedis.params.ScanParams;
+import redis.clients.jedis.resps.ScanResult;
+import redis.clients.jedis.search.FTCreateParams;
+import redis.clients.jedis.search.IndexDataType;
+import redis.clients.jedis.search.schemafields.SchemaField;
+import redis.clients.jedis.search.schemafields.TagField;
+import redis.clients.jedis.search.schemafields.TextField;
+import redis.clients.jedis.search.schemafields.VectorField;
+
+import java.util.*;
+import java.util.logging.Logger;
+
+/**
+ * Creates the vector indexes of the configured layout with the vector settings of
+ * {@code rag.index.stores.<type>} (or {@code rag.index.unified}) and migrates between the two layouts.
+ * <p>
+ * Both layouts index the same JSON documents under the {@link DocumentType} prefixes, so switching
+ * never rewrites chunks: the unified index is created over all four prefixes and RediSearch indexes
+ * the existing documents in the background. Chunks written before {@code document_type} was stored
+ * get it backfilled from their key prefix. With {@code rag.index.drop-unused-indexes}, the indexes
+ * of the other layout are dropped (documents are kept) once the active layout is fully indexed;
+ * switching back is the same procedure in reverse.
+ * <p>
+ * Vector settings only apply when an index is created. An existing index whose algorithm or data
+ * type differs from the configuration is logged; dropping it without {@code DD} makes the next
+ * start recreate it, and RediSearch then re-indexes the stored documents.
+ * <p>
+ * A Redis outage at startup does not fail the context: index creation is retried in the background
+ * until it succeeds, and searches fail per store until then.
+ */
+@Component
+public class VectorIndexInitializer {
+
+    private static final Logger logger = Logger.getLogger(VectorIndexInitializer.class.getName());
+
+    // Field names of the JSON layout written by RedisVectorStore and RedisDocumentWriter
+    static final String CONTENT_FIELD = "content";
+    static final String EMBEDDING_FIELD = "embedding";
+    static final String DOCUMENT_TYPE_FIELD = "document_type";
+
+    private static final Path2 DOCUMENT_TYPE_PATH = Path2.of("$." + DOCUMENT_TYPE_FIELD);
+    private static final int SCAN_COUNT = 500;
+    private static final long INDEXING_POLL_MILLIS = 1000;
+    private static final long RETRY_INTERVAL_MILLIS = 10_000;
+
+    private final JedisPooled jedisPooled;
+    private final EmbeddingModel embeddingModel;
+    private final IndexProperties properties;
+
+    private volatile Thread worker;
+
+    public VectorIndexInitializer(JedisPooled jedisPooled, EmbeddingModel embeddingModel, IndexProperties properties) {
+        this.jedisPooled = jedisPooled;
+        this.embeddingModel = embeddingModel;
+        this.properties = properties;
+    }
+
+    /**
+     * Creates the indexes before the stores are first used. If Redis is not reachable yet, the
+     * application starts anyway and creation is retried in the background every
+     * {@link #RETRY_INTERVAL_MILLIS}; the layout migration follows once the indexes exist.
+     */
+    @PostConstruct
+    public void start() {
+        if (tryEnsureIndexes()) {
+            // Backfilling and waiting for RediSearch may take a while; the application starts meanwhile
+            worker = Thread.ofVirtual().name("vector-index-migration").start(this::migrate);
+        } else {
+            worker = Thread.ofVirtual().name("vector-index-setup").start(this::retryUntilCreated);
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        Thread current = worker;
+        if (current != null) {
+            current.interrupt();
+        }
+    }
+
+    private boolean tryEnsureIndexes() {
+        try {
+            if (properties.isUnified()) {
+                ensureIndex(properties.getUnifiedIndexName(), Arrays.asList(DocumentType.values()), properties.getUnified());
+            } else {
+                for (DocumentType type : DocumentType.values()) {
+                    ensureIndex(type.getIndexName(), List.of(type), properties.vectorIndexFor(type));
+                }
+            }
+            return true;
+        } catch (Exception e) {
+            logger.warning("Failed to create vector indexes, retrying in " + RETRY_INTERVAL_MILLIS / 1000 + " s: " +
+                    e.getMessage());
+            return false;
+        }
+    }
+
+    private void retryUntilCreated() {
+        try {
+            do {
+                Thread.sleep(RETRY_INTERVAL_MILLIS);
+            } while (!tryEnsureIndexes());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        logger.info("Vector indexes are in place");
+        migrate();
+    }
+
+    private void ensureIndex(String indexName, List<DocumentType> types, IndexProperties.VectorIndex settings) {
+        if (jedisPooled.ftList().contains(indexName)) {
+            warnIfSettingsDiffer(indexName, settings);
+            return;
+        }
+
+        FTCreateParams params = FTCreateParams.createParams().on(IndexDataType.JSON);
+        for (DocumentType type : types) {
+            params.addPrefix(type.getPrefix());
+        }
+        Map<String, Object> vectorAttributes = new LinkedHashMap<>();
+        vectorAttributes.put("TYPE", settings.getDataType().name());
+        vectorAttributes.put("DIM", embeddingModel.dimensions());
+        vectorAttributes.put("DISTANCE_METRIC", "COSINE");
+        if (settings.isHnsw()) {
+            vectorAttributes.put("M", settings.getM());
+            vectorAttributes.put("EF_CONSTRUCTION", settings.getEfConstruction());
+            vectorAttributes.put("EF_RUNTIME", settings.getEfRuntime());
+        }
+
+        // The fields of RedisVectorStore's own schema, plus the type as a TAG for filtering the unified index
+        List<SchemaField> fields = new ArrayList<>(List.of(
+                TextField.of("$." + CONTENT_FIELD).as(CONTENT_FIELD).weight(1.0),
+                VectorField.builder()
+                        .fieldName("$." + EMBEDDING_FIELD)
+                        .algorithm(VectorField.VectorAlgorithm.valueOf(settings.getAlgorithm().name()))
+                        .attributes(vectorAttributes)
+                        .as(EMBEDDING_FIELD)
+                        .build()));
+        if (types.size() > 1) {
+            fields.add(TagField.of("$." + DOCUMENT_TYPE_FIELD).as(DOCUMENT_TYPE_FIELD));
+        }
+        jedisPooled.ftCreate(indexName, params, fields);
+        logger.info("Created index " + indexName + " (" + settings.getAlgorithm() + ", " + settings.getDataType() +
+                ") over " + types);
+    }
+
+    /**
+     * Compares what {@code FT.INFO} reports for the vector field with the configuration. Servers
+     * that do not report vector attributes are not checked.
+     */
+    private void warnIfSettingsDiffer(String indexName, IndexProperties.VectorIndex settings) {
+        if (!(jedisPooled.ftInfo(indexName).get("attributes") instanceof List<?> attributes)) {
+            return;
+        }
+        for (Object attribute : attributes) {
+            if (!(attribute instanceof List<?> values)) {
+                continue;
+            }
+            Map<String, String> info = new HashMap<>();
+            for (int i = 0; i + 1 < values.size(); i += 2) {
+                info.put(String.valueOf(values.get(i)).toLowerCase(Locale.ROOT), String.valueOf(values.get(i + 1)));
+            }
+            if (!EMBEDDING_FIELD.equals(info.get("attribute"))) {
+                continue;
+            }
+            String algorithm = info.get("algorithm");
+            String dataType = info.get("data_type");
+            if ((algorithm != null && !algorithm.equalsIgnoreCase(settings.getAlgorithm().name()))
+                    || (dataType != null && !dataType.equalsIgnoreCase(settings.getDataType().name()))) {
+                logger.warning("Index " + indexName + " was created as " + algorithm + "/" + dataType +
+                        " but is configured as " + settings.getAlgorithm() + "/" + settings.getDataType() +
+                        "; run FT.DROPINDEX " + indexName + " (without DD) and restart to rebuild it");
+            }
+        }
+    }
+
+    private void migrate() {
+        try {
+            if (properties.isUnified()) {
+                backfillDocumentTypes();
+            }
+            if (!properties.isDropUnusedIndexes()) {
+                return;
+            }
+
+            List<String> active = properties.isUnified()
+                    ? List.of(properties.getUnifiedIndexName())
+                    : Arrays.stream(DocumentType.values()).map(DocumentType::getIndexName).toList();
+            List<String> unused = properties.isUnified()
+                    ? Arrays.stream(DocumentType.values()).map(DocumentType::getIndexName).toList()
+                    : List.of(properties.getUnifiedIndexName());
+
+            for (String indexName : active) {
+                awaitIndexed(indexName);
+            }
+            Set<String> existing = jedisPooled.ftList();
+            for (String indexName : unused) {
+                if (existing.contains(indexName)) {
+                    // Without DD, so the documents stay for the active index
+                    jedisPooled.ftDropIndex(indexName);
+                    logger.info("Dropped unused index " + indexName);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            logger.warning("Vector index migration failed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Sets {@code document_type} on chunks that do not have it yet, so the TAG filter finds them.
+     * {@code NX} leaves every chunk that already carries the field untouched.
+     */
+    private void backfillDocumentTypes() {
+        JsonSetParams onlyIfMissing = JsonSetParams.jsonSetParams().nx();
+        for (DocumentType type : DocumentType.values()) {
+            String documentType = type.name().toLowerCase();
+            ScanParams params = new ScanParams().match(type.getPrefix() + "*").count(SCAN_COUNT);
+            String cursor = ScanParams.SCAN_POINTER_START;
+            do {
+                ScanResult<String> page = jedisPooled.scan(cursor, params);
+                cursor = page.getCursor();
+                if (page.getResult().isEmpty()) {
+                    continue;
+                }
+                try (Pipeline pipeline = jedisPooled.pipelined()) {
+                    for (String key : page.getResult()) {
+                        pipeline.jsonSetWithEscape(key, DOCUMENT_TYPE_PATH, documentType, onlyIfMissing);
+                    }
+                    pipeline.sync();
+                }
+            } while (!ScanParams.SCAN_POINTER_START.equals(cursor));
+        }
+    }
+
+    private void awaitIndexed(String indexName) throws InterruptedException {
+        while (true) {
+            Set<String> existing = jedisPooled.ftList();
+            if (existing.contains(indexName)) {
+                Object percent = jedisPooled.ftInfo(indexName).get("percent_indexed");
+                // Servers that index synchronously do not report progress
+                if (percent == null || Double.parseDouble(percent.toString()) >= 1.0) {
+                    return;
+                }
+            }
+            Thread.sleep(INDEXING_POLL_MILLIS);
+        }
+    }
+}
@@ -1,12 +1,19 @@
 package cs544.project.EnhancedRAG.controller;
 
 import cs544.project.EnhancedRAG.model.DocumentType;
+import cs544.project.EnhancedRAG.model.EmbeddingStats;
+import cs544.project.EnhancedRAG.model.IngestionJob;
+import cs544.project.EnhancedRAG.model.IngestionStats;
 import cs544.project.EnhancedRAG.model.MultiDocumentResponse;
 import cs544.project.EnhancedRAG.model.StoreStatus;
 import cs544.project.EnhancedRAG.service.DocumentIngestionService;
+import cs544.project.EnhancedRAG.service.IngestionJobService;
 import cs544.project.EnhancedRAG.service.MultiDocumentRAGService;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
 
 import java.util.HashMap;
 import java.util.List;
@@ -22,37 +29,61 @@ public class RAGController {
     
     private final DocumentIngestionService documentIngestionService;
     private final MultiDocumentRAGService multiDocumentRAGService;
+    private final IngestionJobService ingestionJobService;
 
     public RAGController(DocumentIngestionService documentIngestionService,
-                        MultiDocumentRAGService multiDocumentRAGService) {
+                        MultiDocumentRAGService multiDocumentRAGService,
+                        IngestionJobService ingestionJobService) {
         this.documentIngestionService = documentIngestionService;
         this.multiDocumentRAGService = multiDocumentRAGService;
+        this.ingestionJobService = ingestionJobService;
     }
 
     @PostMapping("/ingest")
     public ResponseEntity<Map<String, String>> ingestDocuments() {
-        logger.info("Starting document ingestion via API");
+        logger.info("Submitting document ingestion job via API");
         
         try {
-            documentIngestionService.ingestAllDocuments();
+            IngestionJob job = ingestionJobService.submit();
             
             Map<String, String> response = new HashMap<>();
-            response.put("status", "success");
-            response.put("message", "All documents have been successfully ingested into their respective vector stores");
+            response.put("status", "accepted");
+            response.put("jobId", job.getJobId());
+            response.put("message", "Document ingestion job submitted; follow its progress at /api/rag/ingest/jobs/" + job.getJobId());
             
-            return ResponseEntity.ok(response);
+            return ResponseEntity.accepted().body(response);
             
         } catch (Exception e) {
-            logger.severe("Error during document ingestion: " + e.getMessage());
+            logger.severe("Error submitting document ingestion: " + e.getMessage());
             
             Map<String, String> response = new HashMap<>();
             response.put("status", "error");
-            response.put("message", "Failed to ingest documents: " + e.getMessage());
+            response.put("message", "Failed to submit document ingestion: " + e.getMessage());
             
             return ResponseEntity.status(500).body(response);
         }
     }
 
+    @GetMapping("/ingest/jobs")
+    public ResponseEntity<List<IngestionJob>> getIngestionJobs() {
+        return ResponseEntity.ok(ingestionJobService.getJobs());
+    }
+
+    @GetMapping("/ingest/jobs/{jobId}")
+    public ResponseEntity<IngestionJob> getIngestionJob(@PathVariable String jobId) {
+        return ingestionJobService.getJob(jobId)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    @PostMapping("/ingest/jobs/{jobId}/cancel")
+    public ResponseEntity<IngestionJob> cancelIngestionJob(@PathVariable String jobId) {
+        logger.info("Cancelling ingestion job: " + jobId);
+        return ingestionJobService.cancel(jobId)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
     @PostMapping("/ingest/single")
     public ResponseEntity<Map<String, String>> ingestSingleDocument(
             @RequestParam DocumentType type,
@@ -95,10 +126,21 @@ public class RAGController {
             return ResponseEntity.badRequest().body(errorResponse);
         }
         
+        Integer efRuntime = efRuntime(request);
+        if (efRuntime != null && efRuntime <= 0) {
+            MultiDocumentResponse errorResponse = new MultiDocumentResponse(
+                "efRuntime must be a positive integer",
+                List.of(),
+                Map.of(),
+                0.0
+            );
+            return ResponseEntity.badRequest().body(errorResponse);
+        }
+        
         logger.info("Processing query: " + question);
         
         try {
-            MultiDocumentResponse response = multiDocumentRAGService.queryMultipleStores(question);
+            MultiDocumentResponse response = multiDocumentRAGService.queryMultipleStores(question, efRuntime);
             return ResponseEntity.ok(response);
             
         } catch (Exception e) {
@@ -114,6 +156,43 @@ public class RAGController {
         }
     }
 
+    @PostMapping(value = "/query/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<Object>> streamQuery(@RequestBody Map<String, String> request) {
+        String question = request.get("question");
+        
+        if (question == null || question.trim().isEmpty()) {
+            return Flux.just(ServerSentEvent.builder((Object) "Please provide a valid question")
+                    .event("error")
+                    .build());
+        }
+        
+        Integer efRuntime = efRuntime(request);
+        if (efRuntime != null && efRuntime <= 0) {
+            return Flux.just(ServerSentEvent.builder((Object) "efRuntime must be a positive integer")
+                    .event("error")
+                    .build());
+        }
+        
+        logger.info("Processing streaming query: " + question);
+        return multiDocumentRAGService.streamMultipleStores(question, efRuntime);
+    }
+
+    /**
+     * Optional {@code efRuntime} of a query request: the HNSW search breadth for this question only.
+     * Anything that is not an integer is reported as invalid (-1).
+     */
+    private static Integer efRuntime(Map<String, String> request) {
+        String value = request.get("efRuntime");
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        try {
+            return Integer.valueOf(value.trim());
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
     @GetMapping("/status")
     public ResponseEntity<StoreStatus> getStoreStatus() {
         logger.info("Fetching store status");
@@ -128,6 +207,16 @@ public class RAGController {
         }
     }
 
+    @GetMapping("/stats/embeddings")
+    public ResponseEntity<EmbeddingStats> getEmbeddingStats() {
+        return ResponseEntity.ok(multiDocumentRAGService.getEmbeddingStats());
+    }
+
+    @GetMapping("/stats/ingestion")
+    public ResponseEntity<IngestionStats> getIngestionStats() {
+        return ResponseEntity.ok(documentIngestionService.getIngestionStats());
+    }
+
     @GetMapping("/demo/queries")
     public ResponseEntity<List<String>> getDemoQueries() {
         try {
@@ -0,0 +1,228 @@
+package cs544.project.EnhancedRAG.embedding;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+/**
+ * Content-addressed embedding cache for one embedding model, persisted in a memory-mapped file.
+ * <p>
+ * The file is a 16-byte header (magic, dimensions, record count) followed by fixed-size records of
+ * a 32-byte SHA-256 of the chunk text and the vector as little-endian floats. Records are only
+ * appended; the record count in the header is written after the record itself, so a torn append
+ * is ignored on the next start. On open, the keys are scanned once into an in-memory slot index.
+ * Lookups then read the vector straight from the mapped pages without any file I/O calls.
+ * <p>
+ * Lookups take no lock: the slot index is concurrent, and the mapping is published as an immutable
+ * read-only snapshot whenever it grows. A slot only becomes visible after its record was written
+ * and the snapshot covering it was published, so concurrent embedding workers never wait for each
+ * other or for an append. Appends are serialized among themselves.
+ * <p>
+ * A file that is not a cache or whose header does not fit its size is rejected with an
+ * {@link IOException}; a record count beyond the end of a truncated file is cut back to the records
+ * that are complete.
+ * <p>
+ * A single mapping is limited to 2 GB (about 340k ada-002 vectors); once full, new vectors are no
+ * longer cached but existing ones keep being served.
+ */
+public class DiskEmbeddingCache implements AutoCloseable {
+
+    private static final Logger logger = Logger.getLogger(DiskEmbeddingCache.class.getName());
+
+    private static final int MAGIC = 0x52414745;
+    private static final int HEADER_BYTES = 16;
+    private static final int KEY_BYTES = 32;
+    private static final int INITIAL_RECORDS = 4096;
+
+    // Largest vector a cache file may declare; anything above is taken for a corrupt header
+    private static final int MAX_DIMENSIONS = 65536;
+
+    /**
+     * What readers need to find a vector; replaced as a whole when the mapping grows.
+     */
+    private record Mapping(ByteBuffer buffer, int dimensions, int recordBytes) {
+
+        float[] read(int slot) {
+            float[] vector = new float[dimensions];
+            buffer.slice(HEADER_BYTES + slot * recordBytes + KEY_BYTES, dimensions * Float.BYTES)
+                    .order(ByteOrder.LITTLE_ENDIAN)
+                    .asFloatBuffer()
+                    .get(vector);
+            return vector;
+        }
+    }
+
+    private final Path file;
+    private final FileChannel channel;
+
+    // Writable mapping and record count, only touched by appends
+    private MappedByteBuffer buffer;
+    private int dimensions;
+    private int recordBytes;
+    private long count;
+
+    private volatile Mapping mapping;
+
+    // SHA-256 (hex) of the chunk text -> record slot
+    private final Map<String, Integer> slots = new ConcurrentHashMap<>();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    public DiskEmbeddingCache(Path file) throws IOException {
+        this.file = file;
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+        try {
+            if (channel.size() >= HEADER_BYTES) {
+                load();
+            }
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private void load() throws IOException {
+        buffer = map(channel.size());
+        if (buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not an embedding cache file: " + file);
+        }
+        dimensions = buffer.getInt(4);
+        if (dimensions <= 0 || dimensions > MAX_DIMENSIONS) {
+            throw new IOException("Corrupt embedding cache header (" + dimensions + " dimensions): " + file);
+        }
+        recordBytes = KEY_BYTES + dimensions * Float.BYTES;
+        count = buffer.getLong(8);
+        long complete = (buffer.capacity() - HEADER_BYTES) / recordBytes;
+        if (count < 0 || count > complete) {
+            logger.warning("Embedding cache " + file + " claims " + count + " records but holds " + complete +
+                    " complete ones; keeping those");
+            count = Math.max(0, Math.min(count, complete));
+            buffer.putLong(8, count);
+        }
+
+        byte[] key = new byte[KEY_BYTES];
+        for (int slot = 0; slot < count; slot++) {
+            buffer.get(offset(slot), key);
+            slots.put(HexFormat.of().formatHex(key), slot);
+        }
+        publish();
+        logger.info("Loaded " + count + " cached embeddings (" + dimensions + " dimensions) from " + file);
+    }
+
+    /**
+     * Returns the cached vector for the text hash, or {@code null} if it is not cached.
+     */
+    public float[] get(String textHash) {
+        Integer slot = slots.get(textHash);
+        if (slot == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        // The slot was published after the mapping that covers it, so this snapshot reaches it
+        return mapping.read(slot);
+    }
+
+    public synchronized void put(String textHash, float[] vector) {
+        if (slots.containsKey(textHash)) {
+            return;
+        }
+
+        try {
+            if (buffer == null) {
+                initialize(vector.length);
+            } else if (vector.length != dimensions) {
+                logger.warning("Not caching " + vector.length + "-dimensional vector in " + dimensions + "-dimensional cache " + file);
+                return;
+            }
+
+            int slot = (int) count;
+            if (!ensureCapacity(slot + 1)) {
+                return;
+            }
+
+            int offset = offset(slot);
+            buffer.put(offset, HexFormat.of().parseHex(textHash));
+            buffer.slice(offset + KEY_BYTES, dimensions * Float.BYTES)
+                    .order(ByteOrder.LITTLE_ENDIAN)
+                    .asFloatBuffer()
+                    .put(vector);
+
+            // Publish the record only after it is complete
+            count++;
+            buffer.putLong(8, count);
+            slots.put(textHash, slot);
+        } catch (IOException e) {
+            logger.warning("Failed to append to embedding cache " + file + ": " + e.getMessage());
+        }
+    }
+
+    private void initialize(int vectorDimensions) throws IOException {
+        dimensions = vectorDimensions;
+        recordBytes = KEY_BYTES + dimensions * Float.BYTES;
+        buffer = map(HEADER_BYTES + (long) INITIAL_RECORDS * recordBytes);
+        buffer.putInt(0, MAGIC);
+        buffer.putInt(4, dimensions);
+        buffer.putLong(8, 0);
+        publish();
+    }
+
+    private boolean ensureCapacity(long records) throws IOException {
+        long needed = HEADER_BYTES + records * recordBytes;
+        if (needed <= buffer.capacity()) {
+            return true;
+        }
+        if (needed > Integer.MAX_VALUE) {
+            return false;
+        }
+        // Grow geometrically so appends stay amortized O(1)
+        buffer = map(Math.min(Math.max(needed, 2L * buffer.capacity()), Integer.MAX_VALUE));
+        publish();
+        return true;
+    }
+
+    private void publish() {
+        mapping = new Mapping(buffer.asReadOnlyBuffer(), dimensions, recordBytes);
+    }
+
+    private MappedByteBuffer map(long size) throws IOException {
+        return channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.min(size, Integer.MAX_VALUE));
+    }
+
+    private int offset(int slot) {
+        return HEADER_BYTES + slot * recordBytes;
+    }
+
+    public int size() {
+        return slots.size();
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (buffer != null) {
+            buffer.force();
+        }
+        channel.close();
+    }
+}
@@ -0,0 +1,93 @@
+package cs544.project.EnhancedRAG.embedding;
+
+import cs544.project.EnhancedRAG.config.CacheProperties;
+import cs544.project.EnhancedRAG.ingestion.ContentHashes;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.logging.Logger;
+
+/**
+ * Embeds chunk texts on the ingestion path. Texts already embedded by the same model, in this or
+ * any earlier run, are served from a {@link DiskEmbeddingCache}; only the rest go to the model in
+ * a single request.
+ */
+@Service
+public class DocumentEmbeddingService implements AutoCloseable {
+
+    private static final Logger logger = Logger.getLogger(DocumentEmbeddingService.class.getName());
+
+    /**
+     * Vectors in input order, plus how many of them came from the cache.
+     */
+    public record Result(List<float[]> embeddings, int cacheHits, int cacheMisses) {}
+
+    private final EmbeddingModel embeddingModel;
+    private final DiskEmbeddingCache cache;
+
+    public DocumentEmbeddingService(EmbeddingModel embeddingModel, CacheProperties cacheProperties) {
+        this.embeddingModel = embeddingModel;
+        CacheProperties.DocumentEmbedding settings = cacheProperties.getDocumentEmbedding();
+        this.cache = settings.isEnabled() ? openCache(settings) : null;
+    }
+
+    private static DiskEmbeddingCache openCache(CacheProperties.DocumentEmbedding settings) {
+        // One file per model, vectors of different models must never be mixed
+        String fileName = settings.getModelName().replaceAll("[^A-Za-z0-9._-]", "_") + ".vec";
+        Path file = Path.of(settings.getDirectory()).resolve(fileName);
+        try {
+            return new DiskEmbeddingCache(file);
+        } catch (IOException | RuntimeException e) {
+            logger.warning("Embedding cache " + file + " is unreadable, rebuilding it: " + e.getMessage());
+        }
+        // The cache only saves embedding calls, so an unreadable file is replaced rather than kept
+        try {
+            Files.deleteIfExists(file);
+            return new DiskEmbeddingCache(file);
+        } catch (IOException | RuntimeException e) {
+            logger.warning("Embedding cache " + file + " unavailable, embedding without it: " + e.getMessage());
+            return null;
+        }
+    }
+
+    public Result embed(List<String> texts) {
+        if (cache == null) {
+            return new Result(embeddingModel.embed(texts), 0, texts.size());
+        }
+
+        float[][] embeddings = new float[texts.size()][];
+        List<String> hashes = new ArrayList<>(texts.size());
+        List<Integer> missing = new ArrayList<>();
+        for (int i = 0; i < texts.size(); i++) {
+            String hash = ContentHashes.sha256(texts.get(i));
+            hashes.add(hash);
+            embeddings[i] = cache.get(hash);
+            if (embeddings[i] == null) {
+                missing.add(i);
+            }
+        }
+
+        if (!missing.isEmpty()) {
+            List<float[]> computed = embeddingModel.embed(missing.stream().map(texts::get).toList());
+            for (int j = 0; j < missing.size(); j++) {
+                int i = missing.get(j);
+                embeddings[i] = computed.get(j);
+                cache.put(hashes.get(i), embeddings[i]);
+            }
+        }
+        return new Result(Arrays.asList(embeddings), texts.size() - missing.size(), missing.size());
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (cache != null) {
+            cache.close();
+        }
+    }
+}
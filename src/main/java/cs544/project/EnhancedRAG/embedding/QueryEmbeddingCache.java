@@ -0,0 +1,95 @@
+package cs544.project.EnhancedRAG.embedding;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+/**
+ * Bounded LRU cache of query embeddings with a time-to-live per entry.
+ * <p>
+ * Vectors are kept as the primitive {@code float[]} returned by the embedding model, never as boxed
+ * lists. Returned arrays are shared between callers and must be treated as read-only.
+ */
+public class QueryEmbeddingCache {
+
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private final int maxEntries;
+    private final long ttlNanos;
+
+    // Access-ordered, so iteration starts at the least recently used entry
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    private record Entry(float[] vector, long expiresAt) {}
+
+    public QueryEmbeddingCache(int maxEntries, long ttlNanos) {
+        this.maxEntries = maxEntries;
+        this.ttlNanos = ttlNanos;
+    }
+
+    /**
+     * Returns the cached vector for the query, or {@code null} when absent or expired.
+     */
+    public float[] get(String query) {
+        String key = normalize(query);
+        synchronized (entries) {
+            Entry entry = entries.get(key);
+            if (entry != null && entry.expiresAt() - System.nanoTime() > 0) {
+                hits.incrementAndGet();
+                return entry.vector();
+            }
+            if (entry != null) {
+                entries.remove(key);
+                evictions.incrementAndGet();
+            }
+        }
+        misses.incrementAndGet();
+        return null;
+    }
+
+    public void put(String query, float[] vector) {
+        String key = normalize(query);
+        synchronized (entries) {
+            entries.put(key, new Entry(vector, System.nanoTime() + ttlNanos));
+            Iterator<Map.Entry<String, Entry>> eldest = entries.entrySet().iterator();
+            while (entries.size() > maxEntries && eldest.hasNext()) {
+                eldest.next();
+                eldest.remove();
+                evictions.incrementAndGet();
+            }
+        }
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    /**
+     * Case and whitespace differences do not change the meaning of a question,
+     * so "How do I  use JWT?" and "how do i use jwt?" share one entry.
+     */
+    static String normalize(String query) {
+        return WHITESPACE.matcher(query.strip().toLowerCase(Locale.ROOT)).replaceAll(" ");
+    }
+}
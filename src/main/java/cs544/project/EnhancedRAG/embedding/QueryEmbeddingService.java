@@ -0,0 +1,65 @@
+package cs544.project.EnhancedRAG.embedding;
+
+import cs544.project.EnhancedRAG.config.CacheProperties;
+import cs544.project.EnhancedRAG.metrics.RagMetrics;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Single entry point for embedding user questions on the query path.
+ * Every store search reuses the vector produced here, and the call counter makes
+ * the number of embedding round trips per question observable.
+ * <p>
+ * Repeated questions are answered from a {@link QueryEmbeddingCache} and never reach the model.
+ */
+@Service
+public class QueryEmbeddingService {
+
+    private final EmbeddingModel embeddingModel;
+    private final QueryEmbeddingCache cache;
+    private final RagMetrics metrics;
+    private final AtomicLong embeddingCalls = new AtomicLong();
+
+    public QueryEmbeddingService(EmbeddingModel embeddingModel, CacheProperties cacheProperties, RagMetrics metrics) {
+        this.embeddingModel = embeddingModel;
+        this.metrics = metrics;
+        CacheProperties.QueryEmbedding settings = cacheProperties.getQueryEmbedding();
+        this.cache = settings.isEnabled()
+                ? new QueryEmbeddingCache(settings.getMaxEntries(), settings.getTtl().toNanos())
+                : null;
+    }
+
+    public float[] embed(String query) {
+        Timer.Sample sample = Timer.start();
+        if (cache != null) {
+            float[] cached = cache.get(query);
+            if (cached != null) {
+                sample.stop(metrics.queryEmbedding(true));
+                return cached;
+            }
+        }
+
+        embeddingCalls.incrementAndGet();
+        float[] vector = embeddingModel.embed(query);
+        sample.stop(metrics.queryEmbedding(false));
+
+        if (cache != null) {
+            cache.put(query, vector);
+        }
+        return vector;
+    }
+
+    public long getEmbeddingCalls() {
+        return embeddingCalls.get();
+    }
+
+    /**
+     * @return the query cache, or {@code null} when caching is disabled
+     */
+    public QueryEmbeddingCache getCache() {
+        return cache;
+    }
+}
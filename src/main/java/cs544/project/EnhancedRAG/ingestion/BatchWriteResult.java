@@ -0,0 +1,12 @@
+package cs544.project.EnhancedRAG.ingestion;
+
+/**
+ * Outcome of writing one document type's chunks through {@link BatchingVectorStoreWriter}.
+ */
+public record BatchWriteResult(int batches, int failedBatches, int documentsWritten, int documentsFailed, int retries,
+                               int embeddingCacheHits) {
+
+    public boolean hasFailures() {
+        return failedBatches > 0;
+    }
+}
@@ -0,0 +1,184 @@
+package cs544.project.EnhancedRAG.ingestion;
+
+import cs544.project.EnhancedRAG.config.IngestionProperties;
+import cs544.project.EnhancedRAG.embedding.DocumentEmbeddingService;
+import cs544.project.EnhancedRAG.model.DocumentType;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.tokenizer.JTokkitTokenCountEstimator;
+import org.springframework.ai.tokenizer.TokenCountEstimator;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.logging.Logger;
+
+/**
+ * Writes chunks into a type's store in batches sized by an estimated token budget instead of one
+ * {@code VectorStore.add} call per document type. Each batch is embedded through the
+ * {@link DocumentEmbeddingService}, so chunks embedded before come from the disk cache, and then
+ * written with the {@link RedisDocumentWriter}.
+ * <p>
+ * Up to {@code rag.ingestion.concurrency} batches are embedded and written at the same time. The
+ * limit is shared by all callers, and a caller that submits faster than batches complete blocks
+ * until a slot frees up. A failed batch is retried on its own with exponential backoff; if it
+ * still fails, only its chunks are lost and the remaining batches of the type are still written.
+ */
+@Component
+public class BatchingVectorStoreWriter implements AutoCloseable {
+
+    private static final Logger logger = Logger.getLogger(BatchingVectorStoreWriter.class.getName());
+
+    private final IngestionProperties properties;
+    private final DocumentEmbeddingService documentEmbeddingService;
+    private final RedisDocumentWriter redisDocumentWriter;
+    private final RetryPolicy retryPolicy;
+    private final TokenCountEstimator tokenCountEstimator;
+    private final ExecutorService executor;
+    private final Semaphore inFlight;
+
+    public BatchingVectorStoreWriter(IngestionProperties properties,
+                                     DocumentEmbeddingService documentEmbeddingService,
+                                     RedisDocumentWriter redisDocumentWriter) {
+        this.properties = properties;
+        this.documentEmbeddingService = documentEmbeddingService;
+        this.redisDocumentWriter = redisDocumentWriter;
+        this.retryPolicy = new RetryPolicy(properties);
+        this.tokenCountEstimator = new JTokkitTokenCountEstimator();
+        // Batches wait on the embedding API and Redis; the semaphore, not the pool, bounds concurrency
+        this.executor = Executors.newVirtualThreadPerTaskExecutor();
+        this.inFlight = new Semaphore(properties.getConcurrency());
+    }
+
+    public BatchWriteResult write(DocumentType type, List<Document> documents) {
+        List<List<Document>> batches = batch(documents);
+        List<Future<Boolean>> futures = new ArrayList<>();
+        AtomicInteger retries = new AtomicInteger();
+        AtomicInteger cacheHits = new AtomicInteger();
+
+        for (int i = 0; i < batches.size(); i++) {
+            List<Document> batch = batches.get(i);
+            int batchNumber = i + 1;
+            try {
+                inFlight.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                logger.warning("Interrupted while writing " + type + " batches, " +
+                        (batches.size() - i) + " batches not submitted");
+                break;
+            }
+            futures.add(executor.submit(() -> {
+                try {
+                    return writeWithRetry(type, batch, batchNumber, batches.size(), retries, cacheHits);
+                } finally {
+                    inFlight.release();
+                }
+            }));
+        }
+
+        int failedBatches = batches.size() - futures.size();
+        int documentsWritten = 0;
+        for (int i = 0; i < futures.size(); i++) {
+            boolean written;
+            try {
+                written = futures.get(i).get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                written = false;
+            } catch (ExecutionException e) {
+                written = false;
+            }
+            if (written) {
+                documentsWritten += batches.get(i).size();
+            } else {
+                failedBatches++;
+            }
+        }
+
+        BatchWriteResult result = new BatchWriteResult(batches.size(), failedBatches, documentsWritten,
+                documents.size() - documentsWritten, retries.get(), cacheHits.get());
+        logger.info("Wrote " + documentsWritten + "/" + documents.size() + " chunks to " + type + " store in " +
+                batches.size() + " batches (" + failedBatches + " failed, " + retries.get() + " retries, " +
+                cacheHits.get() + " embeddings from cache)");
+        return result;
+    }
+
+    /**
+     * Groups documents greedily so that each batch stays within the token budget. A single document
+     * above the budget still gets a batch of its own.
+     */
+    List<List<Document>> batch(List<Document> documents) {
+        List<List<Document>> batches = new ArrayList<>();
+        TokenBudgetBatcher<Document> batcher = new TokenBudgetBatcher<>(properties.getBatchMaxTokens());
+        for (Document document : documents) {
+            batcher.add(document, tokenCountEstimator.estimate(document.getText()), batches::add);
+        }
+        batcher.flush(batches::add);
+        return batches;
+    }
+
+    /**
+     * The greedy token-budget grouping behind {@link #batch}, for callers that receive items one at a
+     * time: a batch is emitted as soon as the next item would push it over {@code maxTokens}. Not
+     * thread-safe.
+     */
+    static final class TokenBudgetBatcher<T> {
+
+        private final int maxTokens;
+        private List<T> current = new ArrayList<>();
+        private int currentTokens;
+
+        TokenBudgetBatcher(int maxTokens) {
+            this.maxTokens = maxTokens;
+        }
+
+        void add(T item, int tokens, Consumer<List<T>> emit) {
+            if (!current.isEmpty() && currentTokens + tokens > maxTokens) {
+                emit.accept(current);
+                current = new ArrayList<>();
+                currentTokens = 0;
+            }
+            current.add(item);
+            currentTokens += tokens;
+        }
+
+        void flush(Consumer<List<T>> emit) {
+            if (!current.isEmpty()) {
+                emit.accept(current);
+                current = new ArrayList<>();
+                currentTokens = 0;
+            }
+        }
+    }
+
+    private boolean writeWithRetry(DocumentType type, List<Document> batch, int batchNumber, int batchCount,
+                                   AtomicInteger retries, AtomicInteger cacheHits) {
+        List<String> texts = batch.stream().map(Document::getText).toList();
+        try {
+            retryPolicy.call(type + " batch " + batchNumber + "/" + batchCount + " (" + batch.size() + " chunks)",
+                    () -> {
+                        DocumentEmbeddingService.Result embedded = documentEmbeddingService.embed(texts);
+                        redisDocumentWriter.write(type, batch, embedded.embeddings());
+                        cacheHits.addAndGet(embedded.cacheHits());
+                        return null;
+                    }, retries);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    @Override
+    public void close() {
+        executor.close();
+    }
+}
@@ -0,0 +1,48 @@
+package cs544.project.EnhancedRAG.ingestion;
+
+/**
+ * The original fixed-size chunking: up to 6000 characters per chunk, broken at the last space,
+ * newline or period in the second half of the window, with 200 characters of overlap.
+ */
+public class CharacterChunkingStrategy implements ChunkingStrategy {
+
+    // Chunking configuration
+    private static final int MAX_CHUNK_SIZE = 6000; // Conservative limit for text-embedding-ada-002
+    private static final int CHUNK_OVERLAP = 200;   // Overlap between chunks to maintain context
+
+    @Override
+    public int chunkEnd(CharSequence text, int start, boolean complete) {
+        // A chunk starting at 'start' is final once the text extends past its largest possible end
+        if (!complete && text.length() <= start + MAX_CHUNK_SIZE) {
+            return -1;
+        }
+        int end = Math.min(start + MAX_CHUNK_SIZE, text.length());
+        
+        // Try to break at word boundaries to maintain context
+        if (end < text.length()) {
+            int breakPoint = -1;
+            for (int i = end; i > start + (MAX_CHUNK_SIZE / 2); i--) { // Don't break too early
+                char c = text.charAt(i);
+                if (c == ' ' || c == '\n' || c == '.') {
+                    breakPoint = i;
+                    break;
+                }
+            }
+            if (breakPoint >= 0) {
+                end = breakPoint + 1;
+            }
+        }
+        return end;
+    }
+
+    @Override
+    public int nextStart(CharSequence text, int start, int end) {
+        // Move start position with overlap for context continuity
+        return Math.max(start + 1, end - CHUNK_OVERLAP);
+    }
+
+    @Override
+    public String name() {
+        return "character";
+    }
+}
@@ -0,0 +1,27 @@
+package cs544.project.EnhancedRAG.ingestion;
+
+/**
+ * Decides where chunks start and end within the text buffered by a {@link TextChunker.Session}.
+ * Implementations only read the buffer through {@link CharSequence#charAt} and friends, so no
+ * copy of the text is made to find a boundary.
+ */
+public interface ChunkingStrategy {
+
+    /**
+     * Returns the exclusive end of the chunk starting at {@code start}, or -1 if the chunk could
+     * still grow with more text. {@code complete} is true once no more text will be appended, in
+     * which case an end is always returned.
+     */
+    int chunkEnd(CharSequence text, int start, boolean complete);
+
+    /**
+     * Returns where the chunk after {@code [start, end)} begins; anything before {@code end} is
+     * overlap with the previous chunk. Must be greater than {@code start}.
+     */
+    int nextStart(CharSequence text, int start, int end);
+
+    /**
+     * Name reported in the ingestion stats.
+     */
+    String name();
+}
@@ -0,0 +1,49 @@
+package cs544.project.EnhancedRAG.ingestion;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.UUID;
+
+/**
+ * SHA-256 content hashes and the deterministic chunk IDs derived from them.
+ */
+public final class ContentHashes {
+
+    private ContentHashes() {
+    }
+
+    public static String sha256(String text) {
+        return HexFormat.of().formatHex(newDigest().digest(text.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    public static String sha256(InputStream inputStream) throws IOException {
+        MessageDigest digest = newDigest();
+        byte[] buffer = new byte[64 * 1024];
+        int read;
+        while ((read = inputStream.read(buffer)) != -1) {
+            digest.update(buffer, 0, read);
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    /**
+     * The same chunk text at the same position of the same source always gets the same ID, so
+     * re-ingesting it overwrites the stored chunk instead of adding a duplicate.
+     */
+    public static String chunkId(String sourceKey, int chunkIndex, String text) {
+        String name = sourceKey + "#" + chunkIndex + "#" + sha256(text);
+        return UUID.nameUUIDFromBytes(name.getBytes(StandardCharsets.UTF_8)).toString();
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
@@ -0,0 +1,335 @@
+package cs544.project.EnhancedRAG.ingestion;
+
+import cs544.project.EnhancedRAG.config.IngestionProperties;
+import cs544.project.EnhancedRAG.model.DocumentType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.io.IOUtils;
+import org.apache.pdfbox.io.RandomAccessRead;
+import org.apache.pdfbox.io.RandomAccessReadBufferedFile;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.text.PDFTextStripper;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.logging.Logger;
+
+/**
+ * Turns a source resource into plain text plus the metadata shared by all of its chunks.
+ */
+@Component
+public class DocumentExtractor implements AutoCloseable {
+
+    private static final Logger logger = Logger.getLogger(DocumentExtractor.class.getName());
+
+    // Form feed never appears in PDFTextStripper output, so it is safe as a page-end marker
+    private static final String PAGE_BREAK = "\f";
+
+    // Ranges a parallel extraction worker may finish ahead of the range being handed downstream
+    private static final int LOOKAHEAD_RANGES_PER_WORKER = 2;
+
+    private final JsonFlattener jsonFlattener;
+    private final IngestionProperties ingestionProperties;
+
+    // Shared by all files being extracted, so concurrent large PDFs do not multiply the thread count
+    private final ForkJoinPool pdfPool;
+
+    public DocumentExtractor(IngestionProperties ingestionProperties) {
+        this.jsonFlattener = new JsonFlattener(new ObjectMapper().getFactory());
+        this.ingestionProperties = ingestionProperties;
+        this.pdfPool = ingestionProperties.getPdfParallelism() > 1
+                ? new ForkJoinPool(ingestionProperties.getPdfParallelism())
+                : null;
+    }
+
+    /**
+     * A piece of extracted text in document order. {@code page} is the 1-based PDF page the text
+     * starts on, or 0 for sources without pages.
+     */
+    public record TextSegment(String text, int page) {}
+
+    /**
+     * Extracts the resource's text and hands it to {@code segments} in document order. PDFs are
+     * delivered page by page as they are extracted and JSON as flattened {@code path: value} lines
+     * (see {@link JsonFlattener}); other types arrive as one segment.
+     */
+    public void extractSegments(Resource resource, DocumentType type, Consumer<TextSegment> segments) throws IOException {
+        switch (type) {
+            case PDF:
+                extractPdfSegments(resource, segments);
+                return;
+            case JSON:
+                try (InputStream inputStream = resource.getInputStream()) {
+                    jsonFlattener.flatten(inputStream, text -> segments.accept(new TextSegment(text, 0)));
+                }
+                return;
+            case MARKDOWN:
+            case TEXT:
+            default:
+                try (InputStream inputStream = resource.getInputStream()) {
+                    segments.accept(new TextSegment(new String(inputStream.readAllBytes(), StandardCharsets.UTF_8), 0));
+                }
+        }
+    }
+
+    /**
+     * Loads the PDF from a file-backed random-access source, with PDFBox scratch data in temp files,
+     * and extracts {@code rag.ingestion.pdf-pages-per-segment} pages at a time. Neither the PDF bytes
+     * nor its full text are ever held in heap. Resources that are not plain files (e.g. inside a
+     * jar) are copied to a temp file first.
+     * <p>
+     * PDFs with at least {@code rag.ingestion.pdf-parallel-min-pages} pages are extracted by several
+     * pool threads within a bounded look-ahead window (see {@link #extractPdfInParallel}).
+     */
+    private void extractPdfSegments(Resource resource, Consumer<TextSegment> segments) throws IOException {
+        Path tempFile = null;
+        try {
+            Path path;
+            if (resource.isFile()) {
+                path = resource.getFile().toPath();
+            } else {
+                tempFile = Files.createTempFile("ingest-", ".pdf");
+                try (InputStream inputStream = resource.getInputStream()) {
+                    Files.copy(inputStream, tempFile, StandardCopyOption.REPLACE_EXISTING);
+                }
+                path = tempFile;
+            }
+            
+            int pagesPerSegment = Math.max(1, ingestionProperties.getPdfPagesPerSegment());
+            int pageCount;
+            try (PDDocument document = openPdf(path)) {
+                pageCount = document.getNumberOfPages();
+                if (pdfPool == null || pageCount < ingestionProperties.getPdfParallelMinPages()
+                        || pageCount <= pagesPerSegment) {
+                    PDFTextStripper stripper = newStripper();
+                    for (int firstPage = 1; firstPage <= pageCount; firstPage += pagesPerSegment) {
+                        extractPages(document, stripper, firstPage,
+                                Math.min(firstPage + pagesPerSegment - 1, pageCount)).forEach(segments);
+                    }
+                    return;
+                }
+            }
+            // The document used for counting is closed by now; every partition opens its own
+            extractPdfInParallel(path, pageCount, pagesPerSegment, segments);
+        } catch (IOException | RuntimeException e) {
+            // The file counts as failed and stays out of the manifest, so the next run retries it
+            logger.severe("Failed to extract PDF content of " + resource.getFilename() + ": " + e.getMessage());
+            throw new IOException("PDF extraction failed: " + e.getMessage(), e);
+        } finally {
+            if (tempFile != null) {
+                Files.deleteIfExists(tempFile);
+            }
+        }
+    }
+
+    /**
+     * Splits the pages into ranges of {@code pagesPerSegment} that the workers claim in page order,
+     * so all workers stay close to the page the calling thread is waiting for. {@code PDDocument}
+     * and {@code PDFTextStripper} are not thread-safe, so each worker loads its own document from
+     * {@code path}. The calling thread hands ranges downstream strictly in page order; at most
+     * {@link #LOOKAHEAD_RANGES_PER_WORKER} ranges per worker are claimed ahead of it, which bounds the
+     * text held in memory no matter how large the PDF is.
+     */
+    private void extractPdfInParallel(Path path, int pageCount, int pagesPerSegment,
+                                      Consumer<TextSegment> segments) throws IOException {
+        int ranges = (pageCount + pagesPerSegment - 1) / pagesPerSegment;
+        int workers = Math.min(pdfPool.getParallelism(), ranges);
+        List<CompletableFuture<List<TextSegment>>> results = new ArrayList<>(ranges);
+        for (int i = 0; i < ranges; i++) {
+            results.add(new CompletableFuture<>());
+        }
+        AtomicInteger nextRange = new AtomicInteger();
+        Semaphore window = new Semaphore(workers * LOOKAHEAD_RANGES_PER_WORKER);
+        AtomicBoolean stopped = new AtomicBoolean();
+        
+        List<ForkJoinTask<?>> tasks = new ArrayList<>(workers);
+        for (int w = 0; w < workers; w++) {
+            tasks.add(pdfPool.submit(() -> extractRanges(path, pageCount, pagesPerSegment, results,
+                    nextRange, window, stopped)));
+        }
+        
+        try {
+            for (CompletableFuture<List<TextSegment>> result : results) {
+                result.join().forEach(segments);
+                window.release();
+            }
+        } catch (CompletionException e) {
+            throw new IOException(e.getCause().getMessage(), e.getCause());
+        } finally {
+            // Wake workers waiting for the window and wait for all of them to release the file
+            // before the caller deletes it
+            stopped.set(true);
+            window.release(workers);
+            tasks.forEach(ForkJoinTask::quietlyJoin);
+        }
+    }
+
+    private void extractRanges(Path path, int pageCount, int pagesPerSegment,
+                               List<CompletableFuture<List<TextSegment>>> results, AtomicInteger nextRange,
+                               Semaphore window, AtomicBoolean stopped) {
+        try (PDDocument document = openPdf(path)) {
+            PDFTextStripper stripper = newStripper();
+            while (true) {
+                window.acquire();
+                int range = nextRange.getAndIncrement();
+                if (stopped.get() || range >= results.size()) {
+                    window.release();
+                    return;
+                }
+                int firstPage = range * pagesPerSegment + 1;
+                int lastPage = Math.min(firstPage + pagesPerSegment - 1, pageCount);
+                try {
+                    results.get(range).complete(extractPages(document, stripper, firstPage, lastPage));
+                } catch (Exception e) {
+                    results.get(range).completeExceptionally(e);
+                    return;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            // This worker's document could not be loaded; the ranges it would have claimed fail
+            results.forEach(result -> result.completeExceptionally(e));
+        }
+    }
+
+    private PDDocument openPdf(Path path) throws IOException {
+        RandomAccessRead source = new RandomAccessReadBufferedFile(path);
+        try {
+            return Loader.loadPDF(source, IOUtils.createTempFileOnlyStreamCache());
+        } catch (IOException e) {
+            source.close();
+            throw e;
+        }
+    }
+
+    private PDFTextStripper newStripper() {
+        PDFTextStripper stripper = new PDFTextStripper();
+        
+        // Configure PDFTextStripper to be more lenient with font issues
+        stripper.setSortByPosition(true);
+        stripper.setSuppressDuplicateOverlappingText(false);
+        
+        // Page ends are marked so one pass over the range can be split back into pages
+        stripper.setPageEnd(stripper.getLineSeparator() + PAGE_BREAK);
+        return stripper;
+    }
+
+    /**
+     * Extracts pages {@code firstPage..lastPage} in one stripper pass and splits the text at the
+     * page-end markers. Pages without a content stream produce no marker; if the page count does
+     * not line up, the whole range is attributed to its first page.
+     */
+    private List<TextSegment> extractPages(PDDocument document, PDFTextStripper stripper,
+                                           int firstPage, int lastPage) throws IOException {
+        stripper.setStartPage(firstPage);
+        stripper.setEndPage(lastPage);
+        String text = stripper.getText(document);
+        
+        String[] pages = text.split(PAGE_BREAK, -1);
+        // split() leaves the text after the last marker as a trailing element
+        if (pages.length - 1 != lastPage - firstPage + 1) {
+            return List.of(new TextSegment(text.replace(PAGE_BREAK, ""), firstPage));
+        }
+        List<TextSegment> segments = new ArrayList<>(pages.length - 1);
+        for (int i = 0; i < pages.length - 1; i++) {
+            segments.add(new TextSegment(pages[i], firstPage + i));
+        }
+        return segments;
+    }
+
+    /**
+     * Shuts down the PDF extraction pool.
+     */
+    @Override
+    public void close() {
+        if (pdfPool != null) {
+            pdfPool.shutdownNow();
+        }
+    }
+
+    /**
+     * SHA-256 of the raw resource bytes, used to detect unchanged sources on re-ingestion.
+     */
+    public String hashContent(Resource resource) throws IOException {
+        try (InputStream inputStream = resource.getInputStream()) {
+            return ContentHashes.sha256(inputStream);
+        }
+    }
+
+    /**
+     * Identifies a discovered source by its classpath-relative path, e.g. {@code documents/pdf/guide.pdf}.
+     * It is the manifest key, the {@code source} metadata and the seed of the chunk IDs, so it must not
+     * change with the checkout, jar or container the documents are read from; the absolute resource
+     * URL would make every file look new after a move.
+     */
+    public String sourceKey(Resource resource, DocumentType type) {
+        try {
+            String url = resource.getURL().toString();
+            int start = url.lastIndexOf("/" + getDirectoryForType(type));
+            if (start >= 0) {
+                return StringUtils.uriDecode(url.substring(start + 1), StandardCharsets.UTF_8);
+            }
+        } catch (IOException e) {
+            // Not addressable by URL, fall through to the description
+        }
+        return resource.getDescription();
+    }
+
+    public Map<String, Object> createMetadata(Resource resource, DocumentType type) {
+        Map<String, Object> metadata = new HashMap<>();
+        metadata.put("source", sourceKey(resource, type));
+        metadata.put("filename", resource.getFilename());
+        metadata.put("document_type", type.name().toLowerCase());
+        metadata.put("ingestion_timestamp", System.currentTimeMillis());
+        
+        try {
+            metadata.put("content_length", resource.contentLength());
+        } catch (IOException e) {
+            metadata.put("content_length", -1);
+        }
+        
+        return metadata;
+    }
+
+    public String getPatternForType(DocumentType type) {
+        switch (type) {
+            case PDF:
+                return "classpath:documents/pdf/**/*.pdf";
+            case MARKDOWN:
+                return "classpath:documents/markdown/**/*.md";
+            case JSON:
+                return "classpath:documents/json/**/*.json";
+            case TEXT:
+                return "classpath:documents/text/**/*.txt";
+            default:
+                return "classpath:documents/**/*";
+        }
+    }
+
+    /**
+     * The classpath directory {@link #getPatternForType} searches for {@code type}.
+     */
+    private static String getDirectoryForType(DocumentType type) {
+        return "documents/" + type.name().toLowerCase() + "/";
+    }
+}
@@ -0,0 +1,94 @@
+package cs544.project.EnhancedRAG.ingestion;
+
+import cs544.project.EnhancedRAG.model.DocumentType;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.stereotype.Component;
+import redis.clients.jedis.JedisPooled;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Remembers, per document type, the content hash of every ingested source and the IDs of the
+ * chunks stored for it. Kept in one Redis hash per type ({@code ingest:manifest:<type>}) so it
+ * lives and dies with the vector data.
+ * <p>
+ * An entry is only written after all chunks of the source were stored; a source that failed
+ * half-way keeps its old entry and is ingested again on the next run.
+ */
+@Component
+public class IngestionManifest {
+
+    private static final String KEY_PREFIX = "ingest:manifest:";
+
+    // Source keys of documents uploaded through the API rather than found on the classpath
+    private static final String UPLOAD_SOURCE_PREFIX = "manual-upload:";
+
+    public record Entry(String contentHash, List<String> chunkIds) {}
+
+    private final JedisPooled jedisPooled;
+    private final ObjectMapper objectMapper;
+
+    public IngestionManifest(JedisPooled jedisPooled) {
+        this.jedisPooled = jedisPooled;
+        this.objectMapper = new ObjectMapper();
+    }
+
+    public static String uploadSourceKey(String filename) {
+        return UPLOAD_SOURCE_PREFIX + filename;
+    }
+
+    /**
+     * Whether the source was uploaded; uploads are never found by the classpath scan, so they must
+     * not be taken for deleted files.
+     */
+    public static boolean isUpload(String sourceKey) {
+        return sourceKey.startsWith(UPLOAD_SOURCE_PREFIX);
+    }
+
+    public Entry get(DocumentType type, String sourceKey) {
+        String value = jedisPooled.hget(key(type), sourceKey);
+        if (value == null) {
+            return null;
+        }
+        try {
+            return objectMapper.readValue(value, Entry.class);
+        } catch (JsonProcessingException e) {
+            // An unreadable entry only costs a re-ingest of that source
+            return null;
+        }
+    }
+
+    public void put(DocumentType type, String sourceKey, Entry entry) {
+        try {
+            jedisPooled.hset(key(type), sourceKey, objectMapper.writeValueAsString(entry));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize manifest entry for " + sourceKey, e);
+        }
+    }
+
+    public void remove(DocumentType type, String sourceKey) {
+        jedisPooled.hdel(key(type), sourceKey);
+    }
+
+    public Set<String> sources(DocumentType type) {
+        return jedisPooled.hkeys(key(type));
+    }
+
+    public long count(DocumentType type) {
+        return jedisPooled.hlen(key(type));
+    }
+
+    public void deleteChunks(DocumentType type, Collection<String> chunkIds) {
+        if (chunkIds.isEmpty()) {
+            return;
+        }
+        jedisPooled.del(chunkIds.stream().map(id -> type.getPrefix() + id).toArray(String[]::new));
+    }
+
+    private String key(DocumentType type) {
+        return KEY_PREFIX + type.name().toLowerCase();
+    }
+}
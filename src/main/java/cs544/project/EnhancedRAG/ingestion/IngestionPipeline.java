@@ -0,0 +1,500 @@
+package cs544.project.EnhancedRAG.ingestion;
+
+import cs544.project.EnhancedRAG.config.IngestionProperties;
+import cs544.project.EnhancedRAG.embedding.DocumentEmbeddingService;
+import cs544.project.EnhancedRAG.model.DocumentType;
+import cs544.project.EnhancedRAG.metrics.RagMetrics;
+import cs544.project.EnhancedRAG.model.IngestionStats;
+import cs544.project.EnhancedRAG.model.StageStats;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.tokenizer.JTokkitTokenCountEstimator;
+import org.springframework.ai.tokenizer.TokenCountEstimator;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.logging.Logger;
+
+/**
+ * Ingests all files of the requested document types through six stages connected by bounded
+ * queues:
+ * <pre>
+ * discover -> extract -> chunk -> batch -> embed -> store
+ * </pre>
+ * Every stage has its own worker count ({@code rag.ingestion.*-workers}), so CPU-heavy PDF
+ * extraction runs on all cores while embedding requests and Redis writes for earlier files are
+ * already in flight. The batch step groups chunks of the same type up to the token budget of
+ * one embedding request and belongs to the chunking side of the pipeline.
+ * <p>
+ * Extraction emits text segments (for PDFs, page ranges) and chunking consumes them while later
+ * pages are still being extracted, so a file's full text is never assembled in memory.
+ * <p>
+ * Ingestion is incremental: sources whose content hash matches the {@link IngestionManifest} are
+ * skipped after extraction's hashing step, only chunks with new IDs are embedded, chunks a source no
+ * longer has are deleted, and sources that disappeared are removed. A re-run over an unchanged
+ * corpus therefore makes no embedding calls.
+ * <p>
+ * Per-stage throughput, utilization and queue depth are available from {@link #getStats()} while
+ * a run is in progress and after it has finished.
+ */
+@Component
+public class IngestionPipeline {
+
+    private static final Logger logger = Logger.getLogger(IngestionPipeline.class.getName());
+
+    private record SourceFile(DocumentType type, Resource resource, String sourceKey) {}
+
+    private record Segment(Run.FileProgress file, int index, String text, int page, boolean last) {}
+
+    private record Chunk(DocumentType type, Document document, int tokens, Run.FileProgress file) {}
+
+    private record ChunkBatch(DocumentType type, List<Chunk> chunks) {}
+
+    private record EmbeddedBatch(DocumentType type, List<Chunk> chunks, List<float[]> embeddings) {}
+
+    private final DocumentExtractor documentExtractor;
+    private final TextChunker textChunker;
+    private final DocumentEmbeddingService documentEmbeddingService;
+    private final RedisDocumentWriter redisDocumentWriter;
+    private final IngestionManifest ingestionManifest;
+    private final StoreStatistics storeStatistics;
+    private final RagMetrics metrics;
+    private final IngestionProperties properties;
+    private final RetryPolicy retryPolicy;
+    private final TokenCountEstimator tokenCountEstimator;
+    private final PathMatchingResourcePatternResolver resolver;
+
+    private volatile Run currentRun;
+
+    public IngestionPipeline(DocumentExtractor documentExtractor,
+                             TextChunker textChunker,
+                             DocumentEmbeddingService documentEmbeddingService,
+                             RedisDocumentWriter redisDocumentWriter,
+                             IngestionManifest ingestionManifest,
+                             StoreStatistics storeStatistics,
+                             RagMetrics metrics,
+                             IngestionProperties properties) {
+        this.documentExtractor = documentExtractor;
+        this.textChunker = textChunker;
+        this.documentEmbeddingService = documentEmbeddingService;
+        this.redisDocumentWriter = redisDocumentWriter;
+        this.ingestionManifest = ingestionManifest;
+        this.storeStatistics = storeStatistics;
+        this.metrics = metrics;
+        this.properties = properties;
+        this.retryPolicy = new RetryPolicy(properties);
+        this.tokenCountEstimator = new JTokkitTokenCountEstimator();
+        this.resolver = new PathMatchingResourcePatternResolver();
+    }
+
+    /**
+     * Runs the pipeline for the given types and blocks until every discovered file went through all
+     * stages.
+     */
+    public IngestionStats run(Set<DocumentType> types) throws InterruptedException {
+        return newRun().execute(types);
+    }
+
+    /**
+     * Creates a run that can be observed and cancelled while {@link Run#execute} is in progress on
+     * another thread. It becomes the run reported by {@link #getStats()}.
+     */
+    public Run newRun() {
+        Run run = new Run();
+        currentRun = run;
+        return run;
+    }
+
+    /**
+     * Stats of the running or, if none is running, the last ingestion.
+     */
+    public IngestionStats getStats() {
+        Run run = currentRun;
+        return run == null ? new IngestionStats() : run.stats();
+    }
+
+    /**
+     * Stages, queues and counters of one pipeline run.
+     * <p>
+     * Cancellation is cooperative: once cancelled, every stage drops the items it takes instead of
+     * processing them, so the queues drain and the run ends after the calls already in flight.
+     * Sources that were not completely stored keep their previous manifest entry.
+     */
+    public class Run {
+
+        private volatile long startedAt;
+        private volatile long finishedAt;
+        private volatile boolean cancelled;
+
+        private final Map<DocumentType, AtomicLong> chunksStored = new ConcurrentHashMap<>();
+        private final Map<DocumentType, AtomicLong> chunksFailed = new ConcurrentHashMap<>();
+        private final AtomicLong chunksReused = new AtomicLong();
+        private final AtomicLong embeddingCacheHits = new AtomicLong();
+        private final AtomicLong embeddingCacheMisses = new AtomicLong();
+        private final AtomicLong filesDiscovered = new AtomicLong();
+        private final AtomicLong filesFailed = new AtomicLong();
+        private final AtomicLong filesUnchanged = new AtomicLong();
+        private final AtomicLong filesIngested = new AtomicLong();
+        private final AtomicLong filesRemoved = new AtomicLong();
+        private final AtomicLong chunksOfIngestedFiles = new AtomicLong();
+        private final AtomicLong chunksTokenized = new AtomicLong();
+        private final AtomicLong chunkTokens = new AtomicLong();
+        private final AtomicInteger maxTokensPerChunk = new AtomicInteger();
+        private final Set<DocumentType> changedTypes = ConcurrentHashMap.newKeySet();
+        private final AtomicInteger retries = new AtomicInteger();
+
+        private final PipelineStage<EmbeddedBatch, Void> store;
+        private final PipelineStage<ChunkBatch, EmbeddedBatch> embed;
+        private final PipelineStage<Chunk, ChunkBatch> batch;
+        private final PipelineStage<Segment, Chunk> chunk;
+        private final PipelineStage<SourceFile, Segment> extract;
+        private final PipelineStage<DocumentType, SourceFile> discover;
+
+        Run() {
+            int capacity = properties.getQueueCapacity();
+            store = new PipelineStage<>("store", properties.getStoreWorkers(), capacity, this::store, null);
+            embed = new PipelineStage<>("embed", properties.getConcurrency(), capacity, this::embed, store);
+            batch = new PipelineStage<>("batch", 1, capacity, new Batcher(), embed);
+            chunk = new PipelineStage<>("chunk", properties.getChunkWorkers(), capacity, this::chunk, batch);
+            extract = new PipelineStage<>("extract", properties.getExtractWorkers(), capacity, this::extract, chunk);
+            discover = new PipelineStage<>("discover", 1, DocumentType.values().length, this::discover, extract);
+        }
+
+        public IngestionStats execute(Set<DocumentType> types) throws InterruptedException {
+            startedAt = System.currentTimeMillis();
+            logger.info("Starting ingestion pipeline for " + types);
+            
+            try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+                for (PipelineStage<?, ?> stage : stages()) {
+                    stage.start(executor);
+                }
+                for (DocumentType type : types) {
+                    discover.put(type);
+                }
+                discover.complete();
+                store.awaitFinished();
+            } finally {
+                finishedAt = System.currentTimeMillis();
+            }
+            
+            IngestionStats stats = stats();
+            logger.info("Ingestion pipeline " + (cancelled ? "cancelled" : "finished") + " after " + 
+                    stats.getDurationMillis() + " ms: " +
+                    stats.getFilesIngested() + " files ingested, " + stats.getFilesUnchanged() + " unchanged, " +
+                    stats.getFilesRemoved() + " removed, " + stats.getFilesFailed() + " failed; stored " + 
+                    stats.getChunksStored() + ", reused " + stats.getChunksReused() + ", failed " + 
+                    stats.getChunksFailed() + "; embedding cache hit rate " +
+                    String.format("%.2f", stats.getEmbeddingCacheHitRate()));
+            return stats;
+        }
+
+        public void cancel() {
+            cancelled = true;
+        }
+
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        List<PipelineStage<?, ?>> stages() {
+            return List.of(discover, extract, chunk, batch, embed, store);
+        }
+
+        private void discover(DocumentType type, Consumer<SourceFile> emit) throws IOException {
+            if (cancelled) {
+                return;
+            }
+            Resource[] resources = resolver.getResources(documentExtractor.getPatternForType(type));
+            logger.info("Discovered " + resources.length + " " + type + " files");
+            
+            Set<String> discovered = new HashSet<>();
+            filesDiscovered.addAndGet(resources.length);
+            for (Resource resource : resources) {
+                String sourceKey = documentExtractor.sourceKey(resource, type);
+                discovered.add(sourceKey);
+                emit.accept(new SourceFile(type, resource, sourceKey));
+            }
+            
+            // Classpath sources that disappeared since the last run take their chunks with them
+            for (String sourceKey : ingestionManifest.sources(type)) {
+                if (!discovered.contains(sourceKey) && !IngestionManifest.isUpload(sourceKey)) {
+                    IngestionManifest.Entry entry = ingestionManifest.get(type, sourceKey);
+                    if (entry != null) {
+                        ingestionManifest.deleteChunks(type, entry.chunkIds());
+                    }
+                    ingestionManifest.remove(type, sourceKey);
+                    storeStatistics.sourceRemoved(type, entry == null ? 0 : entry.chunkIds().size());
+                    filesRemoved.incrementAndGet();
+                    changedTypes.add(type);
+                    logger.info("Removed chunks of deleted source " + sourceKey);
+                }
+            }
+        }
+
+        private void extract(SourceFile file, Consumer<Segment> emit) throws IOException {
+            if (cancelled) {
+                return;
+            }
+            String sourceKey = file.sourceKey();
+            FileProgress progress = null;
+            Timer.Sample sample = Timer.start();
+            try {
+                String contentHash = documentExtractor.hashContent(file.resource());
+                IngestionManifest.Entry previous = ingestionManifest.get(file.type(), sourceKey);
+                if (previous != null && previous.contentHash().equals(contentHash)) {
+                    filesUnchanged.incrementAndGet();
+                    return;
+                }
+                
+                Map<String, Object> baseMetadata = documentExtractor.createMetadata(file.resource(), file.type());
+                progress = new FileProgress(file, contentHash, previous == null,
+                        previous == null ? Set.of() : new HashSet<>(previous.chunkIds()),
+                        textChunker.newSession(sourceKey, baseMetadata));
+                
+                // Segments go downstream while later pages are still being extracted
+                FileProgress current = progress;
+                AtomicInteger segmentIndex = new AtomicInteger();
+                documentExtractor.extractSegments(file.resource(), file.type(),
+                        segment -> emit.accept(new Segment(current, segmentIndex.getAndIncrement(),
+                                segment.text(), segment.page(), false)));
+                emit.accept(new Segment(progress, segmentIndex.get(), null, 0, true));
+            } catch (IOException | RuntimeException e) {
+                if (progress != null) {
+                    progress.fail();
+                } else {
+                    filesFailed.incrementAndGet();
+                }
+                throw e;
+            } finally {
+                sample.stop(metrics.ingestionStage("extract", file.type()));
+            }
+        }
+
+        private void chunk(Segment segment, Consumer<Chunk> emit) {
+            if (cancelled) {
+                return;
+            }
+            Timer.Sample sample = Timer.start();
+            segment.file().chunk(segment, emit);
+            sample.stop(metrics.ingestionStage("chunk", segment.file().file.type()));
+        }
+
+        private void embed(ChunkBatch batch, Consumer<EmbeddedBatch> emit) throws Exception {
+            if (cancelled) {
+                return;
+            }
+            List<String> texts = batch.chunks().stream().map(c -> c.document().getText()).toList();
+            Timer.Sample sample = Timer.start();
+            try {
+                DocumentEmbeddingService.Result embedded = retryPolicy.call("embedding of " + batch.chunks().size() + " " +
+                        batch.type() + " chunks", () -> documentEmbeddingService.embed(texts), retries);
+                sample.stop(metrics.ingestionStage("embed", batch.type()));
+                embeddingCacheHits.addAndGet(embedded.cacheHits());
+                embeddingCacheMisses.addAndGet(embedded.cacheMisses());
+                metrics.documentEmbeddingCache(embedded.cacheHits(), embedded.cacheMisses());
+                metrics.ingestionTokens(batch.type()).increment(batch.chunks().stream().mapToInt(Chunk::tokens).sum());
+                emit.accept(new EmbeddedBatch(batch.type(), batch.chunks(), embedded.embeddings()));
+            } catch (Exception e) {
+                fail(batch.type(), batch.chunks());
+                throw e;
+            }
+        }
+
+        private void store(EmbeddedBatch batch, Consumer<Void> emit) throws Exception {
+            if (cancelled) {
+                return;
+            }
+            List<Document> documents = batch.chunks().stream().map(Chunk::document).toList();
+            Timer.Sample sample = Timer.start();
+            try {
+                retryPolicy.call("write of " + documents.size() + " " + batch.type() + " chunks", () -> {
+                    redisDocumentWriter.write(batch.type(), documents, batch.embeddings());
+                    return null;
+                }, retries);
+                sample.stop(metrics.ingestionStage("write", batch.type()));
+            } catch (Exception e) {
+                fail(batch.type(), batch.chunks());
+                throw e;
+            }
+            
+            chunksStored.computeIfAbsent(batch.type(), t -> new AtomicLong()).addAndGet(documents.size());
+            for (Chunk chunk : batch.chunks()) {
+                chunk.file().chunkStored();
+            }
+        }
+
+        private void fail(DocumentType type, List<Chunk> chunks) {
+            countFailed(type, chunks.size());
+            chunks.forEach(chunk -> chunk.file().fail());
+        }
+
+        private void countFailed(DocumentType type, int chunks) {
+            chunksFailed.computeIfAbsent(type, t -> new AtomicLong()).addAndGet(chunks);
+        }
+
+        public IngestionStats stats() {
+            IngestionStats stats = new IngestionStats();
+            stats.setRunning(startedAt != 0 && finishedAt == 0);
+            stats.setCancelled(cancelled);
+            stats.setStartedAt(startedAt);
+            stats.setDurationMillis(startedAt == 0 ? 0 : (finishedAt == 0 ? System.currentTimeMillis() : finishedAt) - startedAt);
+            stats.setFilesDiscovered(filesDiscovered.get());
+            stats.setFilesFailed(filesFailed.get());
+            List<StageStats> stageStats = new ArrayList<>();
+            for (PipelineStage<?, ?> stage : stages()) {
+                stageStats.add(stage.stats());
+            }
+            stats.setStages(stageStats);
+            stats.setFilesIngested(filesIngested.get());
+            stats.setFilesUnchanged(filesUnchanged.get());
+            stats.setFilesRemoved(filesRemoved.get());
+            stats.setChunksReused(chunksReused.get());
+            stats.setChunker(textChunker.getStrategyName());
+            stats.setChunksOfIngestedFiles(chunksOfIngestedFiles.get());
+            stats.setChunksTokenized(chunksTokenized.get());
+            stats.setChunkTokens(chunkTokens.get());
+            stats.setMaxTokensPerChunk(maxTokensPerChunk.get());
+            stats.setEmbeddingCacheHits(embeddingCacheHits.get());
+            stats.setEmbeddingCacheMisses(embeddingCacheMisses.get());
+            stats.getChangedTypes().addAll(changedTypes);
+            chunksStored.forEach((type, count) -> stats.getChunksStored().put(type, count.get()));
+            chunksFailed.forEach((type, count) -> stats.getChunksFailed().put(type, count.get()));
+            return stats;
+        }
+
+        /**
+         * Tracks one changed source from chunking to the store. Segments may reach different chunk
+         * workers out of order, so they are buffered until it is their turn and then fed to the
+         * source's chunking session in order.
+         * <p>
+         * When chunking is done and the last chunk is stored, chunks the source no longer has are
+         * deleted, {@code total_chunks} is set on all of its chunks and its manifest entry is updated.
+         * If any chunk failed, the old entry stays and the source is retried next run.
+         */
+        private class FileProgress {
+
+            private final SourceFile file;
+            private final String sourceKey;
+            private final String contentHash;
+            private final boolean newSource;
+            private final Set<String> previousIds;
+            private final TextChunker.Session session;
+
+            // Segments that arrived before their predecessors, by segment index
+            private final Map<Integer, Segment> waiting = new HashMap<>();
+            private int nextSegment;
+            private final List<String> chunkIds = new ArrayList<>();
+            private int changedChunks;
+
+            // One for the chunking itself plus one per chunk on its way to the store
+            private final AtomicInteger pending = new AtomicInteger(1);
+            private final AtomicBoolean failed = new AtomicBoolean();
+
+            FileProgress(SourceFile file, String contentHash, boolean newSource, Set<String> previousIds,
+                         TextChunker.Session session) {
+                this.file = file;
+                this.sourceKey = file.sourceKey();
+                this.contentHash = contentHash;
+                this.newSource = newSource;
+                this.previousIds = previousIds;
+                this.session = session;
+            }
+
+            synchronized void chunk(Segment segment, Consumer<Chunk> emit) {
+                waiting.put(segment.index(), segment);
+                Segment next;
+                while ((next = waiting.remove(nextSegment)) != null) {
+                    nextSegment++;
+                    if (next.last()) {
+                        session.finish(document -> emitChunk(document, emit));
+                        logger.info("Prepared document: " + file.resource().getFilename() + 
+                                   " (split into " + chunkIds.size() + " chunks, " + changedChunks + " new or changed)");
+                        release();
+                    } else {
+                        session.append(next.text(), next.page(), document -> emitChunk(document, emit));
+                    }
+                }
+            }
+
+            private void emitChunk(Document document, Consumer<Chunk> emit) {
+                chunkIds.add(document.getId());
+                
+                // Chunks whose ID is already in the manifest have the same text at the same position
+                if (previousIds.contains(document.getId())) {
+                    chunksReused.incrementAndGet();
+                    return;
+                }
+                changedChunks++;
+                pending.incrementAndGet();
+                int tokens = tokenCountEstimator.estimate(document.getText());
+                chunksTokenized.incrementAndGet();
+                chunkTokens.addAndGet(tokens);
+                maxTokensPerChunk.accumulateAndGet(tokens, Math::max);
+                emit.accept(new Chunk(file.type(), document, tokens, this));
+            }
+
+            void chunkStored() {
+                release();
+            }
+
+            private void release() {
+                if (pending.decrementAndGet() == 0 && !failed.get()) {
+                    commit();
+                }
+            }
+
+            void fail() {
+                if (failed.compareAndSet(false, true)) {
+                    filesFailed.incrementAndGet();
+                }
+            }
+
+            private void commit() {
+                DocumentType type = file.type();
+                Set<String> stale = new HashSet<>(previousIds);
+                chunkIds.forEach(stale::remove);
+                ingestionManifest.deleteChunks(type, stale);
+                redisDocumentWriter.setTotalChunks(type, chunkIds, chunkIds.size());
+                ingestionManifest.put(type, sourceKey, new IngestionManifest.Entry(contentHash, List.copyOf(chunkIds)));
+                storeStatistics.sourceWritten(type, newSource, chunkIds.size() - previousIds.size());
+                filesIngested.incrementAndGet();
+                chunksOfIngestedFiles.addAndGet(chunkIds.size());
+                changedTypes.add(type);
+            }
+        }
+    }
+
+    /**
+     * Groups chunks per type into batches of at most {@code rag.ingestion.batch-max-tokens} estimated
+     * tokens with the {@link BatchingVectorStoreWriter} budget logic. Runs with a single worker, so
+     * the open batches need no further locking.
+     */
+    private class Batcher implements PipelineStage.Worker<Chunk, ChunkBatch> {
+
+        private final Map<DocumentType, BatchingVectorStoreWriter.TokenBudgetBatcher<Chunk>> open =
+                new EnumMap<>(DocumentType.class);
+
+        @Override
+        public void process(Chunk chunk, Consumer<ChunkBatch> emit) {
+            DocumentType type = chunk.type();
+            open.computeIfAbsent(type, t -> new BatchingVectorStoreWriter.TokenBudgetBatcher<>(properties.getBatchMaxTokens()))
+                    .add(chunk, chunk.tokens(), chunks -> emit.accept(new ChunkBatch(type, chunks)));
+        }
+
+        @Override
+        public void flush(Consumer<ChunkBatch> emit) {
+            open.forEach((type, batcher) -> batcher.flush(chunks -> emit.accept(new ChunkBatch(type, chunks))));
+            open.clear();
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package cs544.project.EnhancedRAG.ingestion;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+/**
+ * Streams a JSON document into {@code path.to.field: value} lines, one per scalar, with array
+ * elements addressed as {@code items[3].name}. Empty objects and arrays are written as
+ * {@code {}} and {@code []} so they are not lost.
+ * <p>
+ * The document is read token by token, so memory stays constant apart from the path of the
+ * current value. Objects and arrays closing at the top levels of nesting are followed by a blank
+ * line; the chunker prefers those paragraph breaks, so chunks follow the JSON structure.
+ */
+class JsonFlattener {
+
+    // Lines are handed on at the first structure boundary after this many characters
+    private static final int SEGMENT_CHARS = 8 * 1024;
+
+    // Without any boundary (one deep structure) lines are handed on at this size regardless
+    private static final int MAX_SEGMENT_CHARS = 4 * SEGMENT_CHARS;
+
+    // Containers closing at this depth or above are separated from what follows by a blank line
+    private static final int BOUNDARY_DEPTH = 2;
+
+    private final JsonFactory jsonFactory;
+
+    JsonFlattener(JsonFactory jsonFactory) {
+        this.jsonFactory = jsonFactory;
+    }
+
+    void flatten(InputStream inputStream, Consumer<String> segments) throws IOException {
+        try (JsonParser parser = jsonFactory.createParser(inputStream)) {
+            new Walk(parser, segments).run();
+        }
+    }
+
+    /**
+     * State of one document: the path of the current value plus, per open container, where its
+     * path ends, the next array index (-1 for objects) and how many children it has had.
+     */
+    private static class Walk {
+
+        private final JsonParser parser;
+        private final Consumer<String> segments;
+        private final StringBuilder path = new StringBuilder();
+        private final StringBuilder buffer = new StringBuilder();
+        private int[] pathLengths = new int[16];
+        private int[] nextIndex = new int[16];
+        private int[] children = new int[16];
+        private int depth;
+
+        Walk(JsonParser parser, Consumer<String> segments) {
+            this.parser = parser;
+            this.segments = segments;
+        }
+
+        void run() throws IOException {
+            JsonToken token;
+            while ((token = parser.nextToken()) != null) {
+                switch (token) {
+                    case FIELD_NAME:
+                        children[depth - 1]++;
+                        path.setLength(pathLengths[depth - 1]);
+                        if (path.length() > 0) {
+                            path.append('.');
+                        }
+                        path.append(parser.currentName());
+                        break;
+                    case START_OBJECT:
+                    case START_ARRAY:
+                        enterValue();
+                        push(token == JsonToken.START_ARRAY);
+                        break;
+                    case END_OBJECT:
+                    case END_ARRAY:
+                        depth--;
+                        path.setLength(pathLengths[depth]);
+                        if (children[depth] == 0) {
+                            line(token == JsonToken.END_ARRAY ? "[]" : "{}");
+                        }
+                        if (depth <= BOUNDARY_DEPTH) {
+                            boundary();
+                        }
+                        break;
+                    default:
+                        // Scalars: strings, numbers, booleans and null, as written in the source
+                        enterValue();
+                        line(parser.getText());
+                        if (depth == 0) {
+                            boundary();
+                        }
+                }
+            }
+            if (buffer.length() > 0) {
+                segments.accept(buffer.toString());
+            }
+        }
+
+        private void enterValue() {
+            if (depth > 0 && nextIndex[depth - 1] >= 0) {
+                children[depth - 1]++;
+                path.setLength(pathLengths[depth - 1]);
+                path.append('[').append(nextIndex[depth - 1]++).append(']');
+            }
+        }
+
+        private void push(boolean array) {
+            if (depth == pathLengths.length) {
+                pathLengths = Arrays.copyOf(pathLengths, depth * 2);
+                nextIndex = Arrays.copyOf(nextIndex, depth * 2);
+                children = Arrays.copyOf(children, depth * 2);
+            }
+            pathLengths[depth] = path.length();
+            nextIndex[depth] = array ? 0 : -1;
+            children[depth] = 0;
+            depth++;
+        }
+
+        private void line(String value) {
+            if (path.length() > 0) {
+                buffer.append(path).append(": ");
+            }
+            buffer.append(value).append('\n');
+            if (buffer.length() >= MAX_SEGMENT_CHARS) {
+                flush();
+            }
+        }
+
+        private void boundary() {
+            int length = buffer.length();
+            if (length > 0 && !(length > 1 && buffer.charAt(length - 1) == '\n' && buffer.charAt(length - 2) == '\n')) {
+                buffer.append('\n');
+            }
+            if (buffer.length() >= SEGMENT_CHARS) {
+                flush();
+            }
+        }
+
+        private void flush() {
+            segments.accept(buffer.toString());
+            buffer.setLength(0);
+        }
+    }
+}
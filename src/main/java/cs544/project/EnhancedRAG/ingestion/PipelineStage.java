@@ -0,0 +1,170 @@
+package cs544.project.EnhancedRAG.ingestion;
+
+import cs544.project.EnhancedRAG.model.StageStats;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.logging.Logger;
+
+/**
+ * One stage of the {@link IngestionPipeline}: a fixed number of workers take items from a bounded
+ * input queue and emit results into the next stage's queue. A full downstream queue blocks the
+ * workers, so a slow stage throttles everything before it instead of buffering without limit.
+ * <p>
+ * Completion travels through the pipeline as end markers: once the last worker of a stage has seen
+ * its marker, the stage flushes and completes its downstream stage.
+ */
+class PipelineStage<I, O> {
+
+    private static final Logger logger = Logger.getLogger(PipelineStage.class.getName());
+
+    private static final Object END = new Object();
+
+    /**
+     * Processing logic of a stage. Implementations must be safe to call from all workers at once.
+     */
+    interface Worker<I, O> {
+
+        void process(I item, Consumer<O> emit) throws Exception;
+
+        /**
+         * Called once, after every input item was processed, to emit anything still buffered.
+         */
+        default void flush(Consumer<O> emit) throws Exception {
+        }
+    }
+
+    private final String name;
+    private final int workers;
+    private final int queueCapacity;
+    private final BlockingQueue<Object> input;
+    private final Worker<I, O> worker;
+    private final PipelineStage<O, ?> downstream;
+
+    private final AtomicInteger activeWorkers;
+    private final CountDownLatch finished = new CountDownLatch(1);
+    private final AtomicLong processed = new AtomicLong();
+    private final AtomicLong emitted = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong busyNanos = new AtomicLong();
+    private volatile long startedAt;
+    private volatile long finishedAt;
+
+    PipelineStage(String name, int workers, int queueCapacity, Worker<I, O> worker, PipelineStage<O, ?> downstream) {
+        this.name = name;
+        this.workers = Math.max(1, workers);
+        this.queueCapacity = queueCapacity;
+        this.input = new ArrayBlockingQueue<>(queueCapacity);
+        this.worker = worker;
+        this.downstream = downstream;
+        this.activeWorkers = new AtomicInteger(this.workers);
+    }
+
+    void start(ExecutorService executor) {
+        startedAt = System.nanoTime();
+        for (int i = 0; i < workers; i++) {
+            executor.execute(this::runWorker);
+        }
+    }
+
+    void put(I item) throws InterruptedException {
+        input.put(item);
+    }
+
+    /**
+     * Signals that no more items will be put into this stage.
+     */
+    void complete() throws InterruptedException {
+        for (int i = 0; i < workers; i++) {
+            input.put(END);
+        }
+    }
+
+    void awaitFinished() throws InterruptedException {
+        finished.await();
+    }
+
+    @SuppressWarnings("unchecked")
+    private void runWorker() {
+        try {
+            while (true) {
+                Object item = input.take();
+                if (item == END) {
+                    break;
+                }
+                long start = System.nanoTime();
+                try {
+                    worker.process((I) item, this::emit);
+                    processed.incrementAndGet();
+                } catch (InterruptedException e) {
+                    throw e;
+                } catch (Exception e) {
+                    failed.incrementAndGet();
+                    logger.warning("Stage " + name + " failed on an item: " + e.getMessage());
+                } finally {
+                    busyNanos.addAndGet(System.nanoTime() - start);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.warning("Stage " + name + " worker interrupted");
+        } finally {
+            if (activeWorkers.decrementAndGet() == 0) {
+                finishStage();
+            }
+        }
+    }
+
+    private void finishStage() {
+        try {
+            worker.flush(this::emit);
+        } catch (Exception e) {
+            failed.incrementAndGet();
+            logger.warning("Stage " + name + " failed to flush: " + e.getMessage());
+        }
+        try {
+            if (downstream != null) {
+                downstream.complete();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            finishedAt = System.nanoTime();
+            finished.countDown();
+        }
+    }
+
+    private void emit(O item) {
+        if (downstream == null) {
+            return;
+        }
+        try {
+            downstream.put(item);
+            emitted.incrementAndGet();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while handing over to the next stage", e);
+        }
+    }
+
+    StageStats stats() {
+        long end = finishedAt != 0 ? finishedAt : System.nanoTime();
+        double elapsedSeconds = startedAt == 0 ? 0 : (end - startedAt) / 1_000_000_000.0;
+
+        StageStats stats = new StageStats(name, workers);
+        stats.setQueueDepth(input.size());
+        stats.setQueueCapacity(queueCapacity);
+        stats.setProcessed(processed.get());
+        stats.setEmitted(emitted.get());
+        stats.setFailed(failed.get());
+        stats.setItemsPerSecond(elapsedSeconds > 0 ? processed.get() / elapsedSeconds : 0.0);
+        // Share of the workers' wall time spent processing; a stage near 1.0 is the bottleneck
+        stats.setUtilization(elapsedSeconds > 0 ? busyNanos.get() / (elapsedSeconds * 1_000_000_000.0 * workers) : 0.0);
+        return stats;
+    }
+}
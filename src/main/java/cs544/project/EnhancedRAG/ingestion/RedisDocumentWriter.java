@@ -0,0 +1,75 @@
+package cs544.project.EnhancedRAG.ingestion;
+
+import cs544.project.EnhancedRAG.model.DocumentType;
+import org.springframework.ai.document.Document;
+import org.springframework.stereotype.Component;
+import redis.clients.jedis.JedisPooled;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.json.Path2;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes already embedded chunks into a type's Redis index. {@code RedisVectorStore.add} always
+ * embeds before writing; splitting the two lets the ingestion pipeline run them as separate
+ * stages. The JSON layout (content, embedding and top-level metadata under {@code prefix + id})
+ * is the one {@code RedisVectorStore} writes, so the stores read these chunks like their own.
+ */
+@Component
+public class RedisDocumentWriter {
+
+    private static final String CONTENT_FIELD = "content";
+    private static final String EMBEDDING_FIELD = "embedding";
+    private static final Path2 TOTAL_CHUNKS_PATH = Path2.of("$.total_chunks");
+
+    private final JedisPooled jedisPooled;
+    private final StoreCentroids storeCentroids;
+
+    public RedisDocumentWriter(JedisPooled jedisPooled, StoreCentroids storeCentroids) {
+        this.jedisPooled = jedisPooled;
+        this.storeCentroids = storeCentroids;
+    }
+
+    public void write(DocumentType type, List<Document> documents, List<float[]> embeddings) {
+        if (documents.size() != embeddings.size()) {
+            throw new IllegalArgumentException("Got " + embeddings.size() + " embeddings for " + documents.size() + " documents");
+        }
+
+        try (Pipeline pipeline = jedisPooled.pipelined()) {
+            for (int i = 0; i < documents.size(); i++) {
+                Document document = documents.get(i);
+                Map<String, Object> fields = new HashMap<>();
+                fields.put(EMBEDDING_FIELD, embeddings.get(i));
+                fields.put(CONTENT_FIELD, document.getText());
+                fields.putAll(document.getMetadata());
+                pipeline.jsonSetWithEscape(type.getPrefix() + document.getId(), Path2.ROOT_PATH, fields);
+            }
+
+            List<Object> replies = pipeline.syncAndReturnAll();
+            for (Object reply : replies) {
+                if (!"OK".equals(reply)) {
+                    throw new IllegalStateException("Could not add document to " + type + " store: " + reply);
+                }
+            }
+        }
+        storeCentroids.add(type, embeddings);
+    }
+
+    /**
+     * Sets {@code total_chunks} on already stored chunks. Chunks are written while their source is
+     * still being chunked, so the total is only known afterwards.
+     */
+    public void setTotalChunks(DocumentType type, List<String> documentIds, int totalChunks) {
+        if (documentIds.isEmpty()) {
+            return;
+        }
+        try (Pipeline pipeline = jedisPooled.pipelined()) {
+            for (String id : documentIds) {
+                pipeline.jsonSetWithEscape(type.getPrefix() + id, TOTAL_CHUNKS_PATH, totalChunks);
+            }
+            pipeline.sync();
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package cs544.project.EnhancedRAG.ingestion;
+
+import cs544.project.EnhancedRAG.config.IngestionProperties;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+/**
+ * Retries an embedding or store call with exponential backoff, as configured by
+ * {@code rag.ingestion.max-retries} and {@code rag.ingestion.retry-backoff}.
+ */
+class RetryPolicy {
+
+    private static final Logger logger = Logger.getLogger(RetryPolicy.class.getName());
+
+    private final IngestionProperties properties;
+
+    RetryPolicy(IngestionProperties properties) {
+        this.properties = properties;
+    }
+
+    /**
+     * Runs the action until it succeeds or the retries are used up, in which case the last failure
+     * is rethrown. Every retry is counted in {@code retries}.
+     */
+    <T> T call(String description, Callable<T> action, AtomicInteger retries) throws Exception {
+        long backoffMillis = properties.getRetryBackoff().toMillis();
+
+        for (int attempt = 0; ; attempt++) {
+            try {
+                return action.call();
+            } catch (Exception e) {
+                if (attempt >= properties.getMaxRetries()) {
+                    logger.severe("Giving up on " + description + " after " + (attempt + 1) + " attempts: " + e.getMessage());
+                    throw e;
+                }
+                logger.warning("Retrying " + description + " after failure: " + e.getMessage());
+                retries.incrementAndGet();
+                Thread.sleep(backoffMillis << attempt);
+            }
+        }
+    }
+}
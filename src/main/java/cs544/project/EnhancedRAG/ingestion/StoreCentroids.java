@@ -0,0 +1,312 @@
+package cs544.project.EnhancedRAG.ingestion;
+
+import cs544.project.EnhancedRAG.model.DocumentType;
+import org.json.JSONArray;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import redis.clients.jedis.JedisPooled;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.Response;
+import redis.clients.jedis.json.Path2;
+import redis.clients.jedis.params.ScanParams;
+import redis.clients.jedis.resps.ScanResult;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Logger;
+
+/**
+ * Keeps the centroid (normalized mean embedding) of every store, for routing questions to the
+ * stores that are likely to answer them. Every chunk written through {@link RedisDocumentWriter}
+ * is added to the running sum of its store, which is persisted in one Redis hash per type
+ * ({@code ingest:centroid:<type>}) next to the vector data.
+ * <p>
+ * Removed or replaced chunks are not subtracted, so a centroid drifts towards content that was
+ * once in the store; it is a routing hint, not an index statistic. Stores that hold chunks but no
+ * persisted centroid (ingested before centroids existed) are rebuilt from their stored embeddings.
+ * <p>
+ * Persisted centroids are loaded in the background once the application is ready, not during bean
+ * construction, so a Redis outage at startup does not fail the context. Until loading and any
+ * rebuild finished, {@link #isReady()} is {@code false}; a failed load is retried by the next
+ * {@link #isReady()} call after {@link #RETRY_INTERVAL_MILLIS}.
+ */
+@Component
+public class StoreCentroids {
+
+    private static final Logger logger = Logger.getLogger(StoreCentroids.class.getName());
+
+    private static final String KEY_PREFIX = "ingest:centroid:";
+    private static final byte[] SUM_FIELD = "sum".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] COUNT_FIELD = "count".getBytes(StandardCharsets.UTF_8);
+    private static final Path2 EMBEDDING_PATH = Path2.of("$.embedding");
+    private static final int REBUILD_BATCH = 200;
+    private static final long RETRY_INTERVAL_MILLIS = 30_000;
+
+    private final JedisPooled jedisPooled;
+    private final Map<DocumentType, Accumulator> accumulators = new EnumMap<>(DocumentType.class);
+
+    private final AtomicBoolean loading = new AtomicBoolean();
+
+    private volatile boolean ready;
+    private volatile long lastLoadAttemptAt;
+
+    public StoreCentroids(JedisPooled jedisPooled) {
+        this.jedisPooled = jedisPooled;
+        for (DocumentType type : DocumentType.values()) {
+            accumulators.put(type, new Accumulator());
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        startLoad();
+    }
+
+    /**
+     * Adds the embeddings of chunks just written to {@code type}'s store.
+     */
+    public void add(DocumentType type, List<float[]> embeddings) {
+        if (embeddings.isEmpty()) {
+            return;
+        }
+        Accumulator accumulator = accumulators.get(type);
+        synchronized (accumulator) {
+            for (float[] embedding : embeddings) {
+                accumulator.add(embedding);
+            }
+            // Before the persisted sum is loaded, writing would replace it with just these embeddings
+            if (accumulator.loaded) {
+                persist(type, accumulator);
+            }
+        }
+    }
+
+    /**
+     * The normalized centroid of {@code type}'s store, or {@code null} if nothing was added to it.
+     */
+    public float[] getCentroid(DocumentType type) {
+        Accumulator accumulator = accumulators.get(type);
+        synchronized (accumulator) {
+            return accumulator.centroid();
+        }
+    }
+
+    public long getCount(DocumentType type) {
+        Accumulator accumulator = accumulators.get(type);
+        synchronized (accumulator) {
+            return accumulator.count;
+        }
+    }
+
+    /**
+     * Whether the persisted centroids were loaded (and missing ones rebuilt). While they are not,
+     * this starts another load attempt at most every {@link #RETRY_INTERVAL_MILLIS}.
+     */
+    public boolean isReady() {
+        if (!ready && System.currentTimeMillis() - lastLoadAttemptAt >= RETRY_INTERVAL_MILLIS) {
+            startLoad();
+        }
+        return ready;
+    }
+
+    private void startLoad() {
+        if (!loading.compareAndSet(false, true)) {
+            return;
+        }
+        lastLoadAttemptAt = System.currentTimeMillis();
+        // Reading every stored embedding takes a while, so nobody waits for it
+        Thread.ofVirtual().name("store-centroids-load").start(() -> {
+            try {
+                load();
+            } finally {
+                loading.set(false);
+            }
+        });
+    }
+
+    /**
+     * Loads the persisted centroid of every type not loaded yet and merges it with what was added
+     * in the meantime, then rebuilds the centroids of stores that have chunks but none persisted.
+     */
+    private void load() {
+        try {
+            List<DocumentType> missing = new ArrayList<>();
+            for (DocumentType type : DocumentType.values()) {
+                Accumulator accumulator = accumulators.get(type);
+                if (accumulator.loaded) {
+                    continue;
+                }
+                Map<byte[], byte[]> stored = jedisPooled.hgetAll(key(type));
+                boolean rebuild = stored.isEmpty() && hasChunks(type);
+                synchronized (accumulator) {
+                    Accumulator persisted = new Accumulator();
+                    persisted.restore(stored);
+                    boolean addedMeanwhile = accumulator.count > 0;
+                    accumulator.merge(persisted);
+                    accumulator.loaded = true;
+                    if (addedMeanwhile) {
+                        persist(type, accumulator);
+                    }
+                }
+                if (rebuild) {
+                    missing.add(type);
+                }
+            }
+            for (DocumentType type : missing) {
+                rebuild(type, accumulators.get(type));
+            }
+            ready = true;
+        } catch (Exception e) {
+            logger.warning("Failed to load store centroids, routing falls back to all stores until a retry succeeds: " +
+                    e.getMessage());
+        }
+    }
+
+    private boolean hasChunks(DocumentType type) {
+        ScanResult<String> page = jedisPooled.scan(ScanParams.SCAN_POINTER_START,
+                new ScanParams().match(type.getPrefix() + "*").count(REBUILD_BATCH));
+        return !page.getResult().isEmpty() || !ScanParams.SCAN_POINTER_START.equals(page.getCursor());
+    }
+
+    private void rebuild(DocumentType type, Accumulator accumulator) {
+        Accumulator rebuilt = new Accumulator();
+        ScanParams params = new ScanParams().match(type.getPrefix() + "*").count(REBUILD_BATCH);
+        String cursor = ScanParams.SCAN_POINTER_START;
+        do {
+            ScanResult<String> page = jedisPooled.scan(cursor, params);
+            cursor = page.getCursor();
+            List<Response<Object>> embeddings = new ArrayList<>();
+            try (Pipeline pipeline = jedisPooled.pipelined()) {
+                for (String key : page.getResult()) {
+                    embeddings.add(pipeline.jsonGet(key, EMBEDDING_PATH));
+                }
+                pipeline.sync();
+            }
+            for (Response<Object> response : embeddings) {
+                float[] embedding = toVector(response.get());
+                if (embedding != null) {
+                    rebuilt.add(embedding);
+                }
+            }
+        } while (!ScanParams.SCAN_POINTER_START.equals(cursor));
+
+        synchronized (accumulator) {
+            // Chunks written during the scan may have been counted twice; close enough for routing
+            accumulator.merge(rebuilt);
+            persist(type, accumulator);
+        }
+        logger.info("Rebuilt centroid of the " + type + " store from " + rebuilt.count + " chunks");
+    }
+
+    private void persist(DocumentType type, Accumulator accumulator) {
+        if (accumulator.sum == null) {
+            return;
+        }
+        ByteBuffer sum = ByteBuffer.allocate(accumulator.sum.length * Float.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        for (double value : accumulator.sum) {
+            sum.putFloat((float) value);
+        }
+        jedisPooled.hset(key(type), Map.of(
+                SUM_FIELD, sum.array(),
+                COUNT_FIELD, Long.toString(accumulator.count).getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * {@code JSON.GET key $.embedding} returns the matches as an array: {@code [[0.1, ...]]}.
+     */
+    private static float[] toVector(Object reply) {
+        if (!(reply instanceof JSONArray matches) || matches.isEmpty()
+                || !(matches.get(0) instanceof JSONArray values)) {
+            return null;
+        }
+        float[] vector = new float[values.length()];
+        for (int i = 0; i < vector.length; i++) {
+            vector[i] = values.getFloat(i);
+        }
+        return vector;
+    }
+
+    private static byte[] key(DocumentType type) {
+        return (KEY_PREFIX + type.name().toLowerCase()).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static class Accumulator {
+        double[] sum;
+        long count;
+        // Whether the persisted sum was merged in, so that persisting no longer loses it
+        boolean loaded;
+
+        void add(float[] embedding) {
+            if (sum == null) {
+                sum = new double[embedding.length];
+            } else if (sum.length != embedding.length) {
+                // Embedding model changed; start over rather than mix dimensions
+                sum = new double[embedding.length];
+                count = 0;
+            }
+            for (int i = 0; i < embedding.length; i++) {
+                sum[i] += embedding[i];
+            }
+            count++;
+        }
+
+        void merge(Accumulator other) {
+            if (other.sum == null) {
+                return;
+            }
+            if (sum != null && sum.length == other.sum.length) {
+                for (int i = 0; i < other.sum.length; i++) {
+                    sum[i] += other.sum[i];
+                }
+                count += other.count;
+            } else if (sum == null) {
+                sum = other.sum;
+                count = other.count;
+            }
+        }
+
+        void restore(Map<byte[], byte[]> stored) {
+            byte[] sumBytes = null;
+            byte[] countBytes = null;
+            for (Map.Entry<byte[], byte[]> field : stored.entrySet()) {
+                if (Arrays.equals(field.getKey(), SUM_FIELD)) {
+                    sumBytes = field.getValue();
+                } else if (Arrays.equals(field.getKey(), COUNT_FIELD)) {
+                    countBytes = field.getValue();
+                }
+            }
+            if (sumBytes == null || countBytes == null) {
+                return;
+            }
+            ByteBuffer buffer = ByteBuffer.wrap(sumBytes).order(ByteOrder.LITTLE_ENDIAN);
+            sum = new double[sumBytes.length / Float.BYTES];
+            for (int i = 0; i < sum.length; i++) {
+                sum[i] = buffer.getFloat();
+            }
+            count = Long.parseLong(new String(countBytes, StandardCharsets.UTF_8));
+        }
+
+        float[] centroid() {
+            if (sum == null || count == 0) {
+                return null;
+            }
+            double norm = 0;
+            for (double value : sum) {
+                norm += value * value;
+            }
+            if (norm == 0) {
+                return null;
+            }
+            double scale = 1 / Math.sqrt(norm);
+            float[] centroid = new float[sum.length];
+            for (int i = 0; i < sum.length; i++) {
+                centroid[i] = (float) (sum[i] * scale);
+            }
+            return centroid;
+        }
+    }
+}
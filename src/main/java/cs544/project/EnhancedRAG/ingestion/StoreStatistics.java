@@ -0,0 +1,154 @@
+package cs544.project.EnhancedRAG.ingestion;
+
+import cs544.project.EnhancedRAG.config.IngestionProperties;
+import cs544.project.EnhancedRAG.model.DocumentType;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.stereotype.Component;
+import redis.clients.jedis.JedisPooled;
+import redis.clients.jedis.params.ScanParams;
+import redis.clients.jedis.resps.ScanResult;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+/**
+ * Chunk and source counts per store, held in memory so that reading them never touches Redis.
+ * <p>
+ * Ingestion reports every change as a delta. A background reconciler recounts the chunk keys of
+ * each store with incremental {@code SCAN} (plus {@code HLEN} of the manifest for sources) every
+ * {@code rag.ingestion.stats-reconcile-interval}, which corrects drift from partially failed files
+ * or from other instances writing to the same Redis. Unlike {@code KEYS}, {@code SCAN} only walks
+ * a small slice of the keyspace per call, so searches of other users are never held up by it.
+ */
+@Component
+public class StoreStatistics implements AutoCloseable {
+
+    private static final Logger logger = Logger.getLogger(StoreStatistics.class.getName());
+
+    private final JedisPooled jedisPooled;
+    private final IngestionManifest ingestionManifest;
+    private final IngestionProperties properties;
+    private final Map<DocumentType, Counter> chunks = new EnumMap<>(DocumentType.class);
+    private final Map<DocumentType, Counter> sources = new EnumMap<>(DocumentType.class);
+    private final ScheduledExecutorService reconciler;
+
+    private volatile long reconciledAt;
+
+    public StoreStatistics(JedisPooled jedisPooled, IngestionManifest ingestionManifest, IngestionProperties properties) {
+        this.jedisPooled = jedisPooled;
+        this.ingestionManifest = ingestionManifest;
+        this.properties = properties;
+        for (DocumentType type : DocumentType.values()) {
+            chunks.put(type, new Counter());
+            sources.put(type, new Counter());
+        }
+        
+        this.reconciler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "store-stats-reconciler");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Starts the background reconciler once the bean is fully constructed; the first recount runs
+     * right away.
+     */
+    @PostConstruct
+    public void start() {
+        long interval = properties.getStatsReconcileInterval().toMillis();
+        reconciler.scheduleWithFixedDelay(this::reconcile, 0, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Records that a source of {@code type} was written: {@code chunkDelta} is the number of chunks
+     * it has now minus the number it had before, {@code newSource} whether it had no entry before.
+     */
+    public void sourceWritten(DocumentType type, boolean newSource, long chunkDelta) {
+        chunks.get(type).add(chunkDelta);
+        if (newSource) {
+            sources.get(type).add(1);
+        }
+    }
+
+    public void sourceRemoved(DocumentType type, long chunkCount) {
+        chunks.get(type).add(-chunkCount);
+        sources.get(type).add(-1);
+    }
+
+    public long getChunkCount(DocumentType type) {
+        return chunks.get(type).value.get();
+    }
+
+    public long getSourceCount(DocumentType type) {
+        return sources.get(type).value.get();
+    }
+
+    /**
+     * When the counts were last recounted from Redis; 0 until the first reconciliation finished.
+     */
+    public long getReconciledAt() {
+        return reconciledAt;
+    }
+
+    void reconcile() {
+        try {
+            for (DocumentType type : DocumentType.values()) {
+                Counter chunkCounter = chunks.get(type);
+                long mark = chunkCounter.deltas.get();
+                chunkCounter.reconcile(countKeys(type.getPrefix()), mark);
+                
+                Counter sourceCounter = sources.get(type);
+                mark = sourceCounter.deltas.get();
+                sourceCounter.reconcile(ingestionManifest.count(type), mark);
+            }
+            reconciledAt = System.currentTimeMillis();
+        } catch (Exception e) {
+            logger.warning("Failed to reconcile store statistics: " + e.getMessage());
+        }
+    }
+
+    private long countKeys(String prefix) {
+        ScanParams params = new ScanParams().match(prefix + "*").count(properties.getStatsScanCount());
+        String cursor = ScanParams.SCAN_POINTER_START;
+        long count = 0;
+        do {
+            ScanResult<String> page = jedisPooled.scan(cursor, params);
+            count += page.getResult().size();
+            cursor = page.getCursor();
+        } while (!ScanParams.SCAN_POINTER_START.equals(cursor));
+        return count;
+    }
+
+    @Override
+    @PreDestroy
+    public void close() {
+        reconciler.shutdownNow();
+    }
+
+    /**
+     * A count plus the running sum of all deltas applied to it. Deltas that arrive while the keys
+     * are being scanned are re-applied on top of the scanned value; a delta the scan already saw is
+     * counted twice until the next reconciliation, which is the accepted price for never locking.
+     */
+    private static class Counter {
+
+        private final AtomicLong value = new AtomicLong();
+        private final AtomicLong deltas = new AtomicLong();
+
+        void add(long delta) {
+            value.addAndGet(delta);
+            deltas.addAndGet(delta);
+        }
+
+        void reconcile(long actual, long deltasAtStart) {
+            value.set(actual + deltas.get() - deltasAtStart);
+        }
+    }
+}
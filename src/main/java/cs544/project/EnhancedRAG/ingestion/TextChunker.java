@@ -0,0 +1,208 @@
+package cs544.project.EnhancedRAG.ingestion;
+
+import cs544.project.EnhancedRAG.config.IngestionProperties;
+import org.springframework.ai.document.Document;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+
+/**
+ * Splits extracted text into overlapping chunks small enough for the embedding model. Where
+ * chunks end is decided by the {@link ChunkingStrategy} selected with {@code rag.ingestion.chunker}:
+ * {@code token} (default) packs chunks against a token budget, {@code character} keeps the
+ * original 6000-character windows.
+ * <p>
+ * Text can be fed incrementally through a {@link Session}; chunks are emitted as soon as they are
+ * final, so only the current chunk window is held in memory. The result is the same as chunking
+ * the concatenated text in one go.
+ */
+@Component
+public class TextChunker {
+
+    // Consumed text is dropped from the session buffer once this much has accumulated
+    private static final int COMPACT_THRESHOLD = 64 * 1024;
+
+    private final ChunkingStrategy strategy;
+
+    @Autowired
+    public TextChunker(IngestionProperties properties) {
+        this(switch (properties.getChunker()) {
+            case "character" -> new CharacterChunkingStrategy();
+            case "token" -> new TokenChunkingStrategy(properties.getChunkTokenizerModel(),
+                    properties.getChunkMaxTokens(), properties.getChunkOverlapTokens());
+            default -> throw new IllegalArgumentException("Unknown chunker: " + properties.getChunker());
+        });
+    }
+
+    public TextChunker(ChunkingStrategy strategy) {
+        this.strategy = strategy;
+    }
+
+    public String getStrategyName() {
+        return strategy.name();
+    }
+
+    /**
+     * Chunks the content and wraps every non-blank chunk into a {@link Document} carrying the base
+     * metadata plus its position within the source. Chunk IDs are derived from {@code sourceKey},
+     * the chunk position and the chunk text (see {@link ContentHashes#chunkId}).
+     */
+    public List<Document> toDocuments(String sourceKey, String content, Map<String, Object> baseMetadata) {
+        List<Document> documents = new ArrayList<>();
+        Session session = newSession(sourceKey, baseMetadata);
+        session.append(content, documents::add);
+        int totalChunks = session.finish(documents::add);
+        
+        for (Document document : documents) {
+            document.getMetadata().put("total_chunks", totalChunks);
+        }
+        return documents;
+    }
+
+    /**
+     * Splits content into manageable chunks to avoid token limits
+     */
+    public List<String> chunkContent(String content) {
+        List<String> chunks = new ArrayList<>();
+        Session session = newSession("", Map.of());
+        session.append(content, document -> chunks.add(document.getText()));
+        session.finish(document -> chunks.add(document.getText()));
+        return chunks;
+    }
+
+    public Session newSession(String sourceKey, Map<String, Object> baseMetadata) {
+        return new Session(strategy, sourceKey, baseMetadata);
+    }
+
+    /**
+     * Incremental chunking of one source. Emitted documents carry {@code chunk_index} and
+     * {@code chunk_size}; {@code total_chunks} is only known once {@link #finish} returns.
+     * Not thread-safe.
+     */
+    public static class Session {
+
+        private final ChunkingStrategy strategy;
+        private final String sourceKey;
+        private final Map<String, Object> baseMetadata;
+        private final StringBuilder buffer = new StringBuilder();
+        private int start;
+        private int chunkCount;
+        private boolean split;
+
+        // Characters dropped from the front of the buffer, to map buffer positions to text offsets
+        private long dropped;
+
+        // Text offset at which each page starts, for sources that report pages
+        private final TreeMap<Long, Integer> pageStarts = new TreeMap<>();
+
+        Session(ChunkingStrategy strategy, String sourceKey, Map<String, Object> baseMetadata) {
+            this.strategy = strategy;
+            this.sourceKey = sourceKey;
+            this.baseMetadata = baseMetadata;
+        }
+
+        public void append(CharSequence text, Consumer<Document> chunks) {
+            append(text, 0, chunks);
+        }
+
+        /**
+         * Appends text that starts on {@code page} (1-based); chunks built from it get
+         * {@code page_start} and {@code page_end} metadata. A page of 0 means no page information.
+         */
+        public void append(CharSequence text, int page, Consumer<Document> chunks) {
+            if (text == null || text.isEmpty()) {
+                return;
+            }
+            if (page > 0) {
+                pageStarts.put(dropped + buffer.length(), page);
+            }
+            buffer.append(text);
+            
+            int end;
+            while ((end = strategy.chunkEnd(buffer, start, false)) >= 0) {
+                emitRange(end, chunks);
+                start = strategy.nextStart(buffer, start, end);
+            }
+            
+            if (start > COMPACT_THRESHOLD) {
+                buffer.delete(0, start);
+                dropped += start;
+                start = 0;
+                
+                // Keep the page the new buffer start falls on
+                Long current = pageStarts.floorKey(dropped);
+                if (current != null) {
+                    pageStarts.headMap(current).clear();
+                }
+            }
+        }
+
+        /**
+         * Emits the remaining chunks and returns the total number of chunks of the source.
+         */
+        public int finish(Consumer<Document> chunks) {
+            if (!split) {
+                // If the content never needed splitting, it is a single chunk as-is
+                if (!buffer.toString().trim().isEmpty()) {
+                    emit(buffer.toString(), 0, buffer.length(), chunks);
+                }
+            } else {
+                while (start < buffer.length()) {
+                    int end = strategy.chunkEnd(buffer, start, true);
+                    emitRange(end, chunks);
+                    if (end >= buffer.length()) {
+                        // Once a chunk reaches the end, any further chunk would lie inside its overlap
+                        break;
+                    }
+                    start = strategy.nextStart(buffer, start, end);
+                }
+            }
+            buffer.setLength(0);
+            start = 0;
+            pageStarts.clear();
+            return chunkCount;
+        }
+
+        /**
+         * Emits {@code [start, end)} with surrounding whitespace trimmed; the chunk text is the only
+         * copy taken from the buffer.
+         */
+        private void emitRange(int end, Consumer<Document> chunks) {
+            split = true;
+            int from = start;
+            int to = end;
+            while (from < to && buffer.charAt(from) <= ' ') {
+                from++;
+            }
+            while (to > from && buffer.charAt(to - 1) <= ' ') {
+                to--;
+            }
+            if (from < to) {
+                emit(buffer.substring(from, to), start, end, chunks);
+            }
+        }
+
+        private void emit(String chunk, int from, int to, Consumer<Document> chunks) {
+            int index = chunkCount++;
+            Map<String, Object> chunkMetadata = new HashMap<>(baseMetadata);
+            chunkMetadata.put("chunk_index", index);
+            chunkMetadata.put("chunk_size", chunk.length());
+            if (!pageStarts.isEmpty()) {
+                chunkMetadata.put("page_start", pageAt(dropped + from));
+                chunkMetadata.put("page_end", pageAt(dropped + to - 1));
+            }
+            chunks.accept(new Document(ContentHashes.chunkId(sourceKey, index, chunk), chunk, chunkMetadata));
+        }
+
+        private int pageAt(long offset) {
+            Map.Entry<Long, Integer> entry = pageStarts.floorEntry(offset);
+            return entry != null ? entry.getValue() : pageStarts.firstEntry().getValue();
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package cs544.project.EnhancedRAG.ingestion;
+
+import com.knuddels.jtokkit.Encodings;
+import com.knuddels.jtokkit.api.Encoding;
+import com.knuddels.jtokkit.api.EncodingRegistry;
+import com.knuddels.jtokkit.api.EncodingResult;
+import com.knuddels.jtokkit.api.EncodingType;
+
+/**
+ * Packs each chunk up to a token budget measured with the embedding model's own tokenizer, then
+ * moves the end back to the strongest boundary in the second half of the chunk: a paragraph
+ * break, then a sentence end, then a line break, then any whitespace. Text without any of them
+ * is cut exactly at the budget.
+ */
+public class TokenChunkingStrategy implements ChunkingStrategy {
+
+    // Typical characters per token for English text, used to size the tokenizer window and the overlap
+    private static final int CHARS_PER_TOKEN = 4;
+
+    private final Encoding encoding;
+    private final int maxTokens;
+    private final int overlapTokens;
+
+    public TokenChunkingStrategy(String modelName, int maxTokens, int overlapTokens) {
+        EncodingRegistry registry = Encodings.newLazyEncodingRegistry();
+        this.encoding = registry.getEncodingForModel(modelName)
+                .orElseGet(() -> registry.getEncoding(EncodingType.CL100K_BASE));
+        this.maxTokens = maxTokens;
+        this.overlapTokens = overlapTokens;
+    }
+
+    @Override
+    public int chunkEnd(CharSequence text, int start, boolean complete) {
+        int length = text.length();
+        
+        // Byte-level BPE tokens each cover at least one UTF-8 byte, so this much text always fits;
+        // a character may cost several tokens (CJK, emoji), so characters are no bound
+        if (fitsInBytes(text, start, length, maxTokens)) {
+            return complete ? length : -1;
+        }
+        
+        long windowChars = 2L * maxTokens * CHARS_PER_TOKEN;
+        while (true) {
+            int windowEnd = (int) Math.min(length, start + windowChars);
+            
+            // JTokkit only encodes Strings; this window is the one copy made per chunk, and encoding
+            // stops as soon as the budget is reached
+            EncodingResult result = encoding.encode(text.subSequence(start, windowEnd).toString(), maxTokens);
+            if (result.isTruncated()) {
+                return boundaryBefore(text, start, start + result.getLastProcessedCharacterIndex() + 1);
+            }
+            if (windowEnd == length) {
+                return complete ? length : -1;
+            }
+            windowChars *= 2;
+        }
+    }
+
+    /**
+     * Whether {@code text[start, end)} is at most {@code maxBytes} bytes in UTF-8, without encoding it.
+     */
+    static boolean fitsInBytes(CharSequence text, int start, int end, int maxBytes) {
+        if (end - start > maxBytes) {
+            return false;
+        }
+        int bytes = 0;
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                bytes += 1;
+            } else if (c < 0x800) {
+                bytes += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < end && Character.isLowSurrogate(text.charAt(i + 1))) {
+                bytes += 4;
+                i++;
+            } else {
+                bytes += 3;
+            }
+            if (bytes > maxBytes) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Scans back from {@code limit} to the middle of the chunk once, remembering the latest
+     * boundary of each kind and returning early on a paragraph break.
+     */
+    private int boundaryBefore(CharSequence text, int start, int limit) {
+        int floor = start + (limit - start) / 2;
+        int sentence = -1;
+        int line = -1;
+        int word = -1;
+        for (int i = limit - 1; i > floor; i--) {
+            char c = text.charAt(i);
+            if (!Character.isWhitespace(c)) {
+                continue;
+            }
+            if (c == '\n' && endsBlankLine(text, i, floor)) {
+                return i + 1;
+            }
+            char previous = text.charAt(i - 1);
+            if (sentence < 0 && (previous == '.' || previous == '!' || previous == '?')) {
+                sentence = i + 1;
+            }
+            if (line < 0 && c == '\n') {
+                line = i + 1;
+            }
+            if (word < 0) {
+                word = i + 1;
+            }
+        }
+        if (sentence >= 0) {
+            return sentence;
+        }
+        if (line >= 0) {
+            return line;
+        }
+        return word >= 0 ? word : limit;
+    }
+
+    private boolean endsBlankLine(CharSequence text, int newline, int floor) {
+        for (int i = newline - 1; i > floor; i--) {
+            char c = text.charAt(i);
+            if (c == '\n') {
+                return true;
+            }
+            if (c != ' ' && c != '\t' && c != '\r') {
+                return false;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public int nextStart(CharSequence text, int start, int end) {
+        int overlapStart = Math.max(start + 1, end - overlapTokens * CHARS_PER_TOKEN);
+        
+        // Begin the overlap at the start of a line, or failing that of a word, rather than mid-word
+        int wordStart = -1;
+        for (int i = overlapStart; i < end; i++) {
+            char previous = text.charAt(i - 1);
+            if (previous == '\n' && !Character.isWhitespace(text.charAt(i))) {
+                return i;
+            }
+            if (wordStart < 0 && Character.isWhitespace(previous) && !Character.isWhitespace(text.charAt(i))) {
+                wordStart = i;
+            }
+        }
+        return wordStart >= 0 ? wordStart : overlapStart;
+    }
+
+    @Override
+    public String name() {
+        return "token";
+    }
+}
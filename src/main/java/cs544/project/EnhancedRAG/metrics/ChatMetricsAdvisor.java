@@ -0,0 +1,99 @@
+package cs544.project.EnhancedRAG.metrics;
+
+import io.micrometer.core.instrument.Timer;
+import org.springframework.ai.chat.client.ChatClientRequest;
+import org.springframework.ai.chat.client.ChatClientResponse;
+import org.springframework.ai.chat.client.advisor.api.CallAdvisor;
+import org.springframework.ai.chat.client.advisor.api.CallAdvisorChain;
+import org.springframework.ai.chat.client.advisor.api.StreamAdvisor;
+import org.springframework.ai.chat.client.advisor.api.StreamAdvisorChain;
+import org.springframework.ai.chat.metadata.Usage;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.core.Ordered;
+import reactor.core.publisher.Flux;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Times the chat model call and counts its tokens. Ordered last among the advisors, so retrieval
+ * has already happened by the time it runs and only the model round trip is measured.
+ */
+public class ChatMetricsAdvisor implements CallAdvisor, StreamAdvisor {
+
+    private final RagMetrics metrics;
+
+    public ChatMetricsAdvisor(RagMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    @Override
+    public ChatClientResponse adviseCall(ChatClientRequest request, CallAdvisorChain chain) {
+        Timer.Sample sample = Timer.start();
+        ChatClientResponse response;
+        try {
+            response = chain.nextCall(request);
+        } finally {
+            sample.stop(metrics.chatModel("call"));
+        }
+        recordUsage(response.chatResponse());
+        return response;
+    }
+
+    @Override
+    public Flux<ChatClientResponse> adviseStream(ChatClientRequest request, StreamAdvisorChain chain) {
+        return Flux.defer(() -> {
+            Timer.Sample sample = Timer.start();
+            long start = System.nanoTime();
+            AtomicBoolean first = new AtomicBoolean(true);
+            // Providers report usage on the last chunk only, if at all
+            AtomicReference<ChatResponse> lastWithUsage = new AtomicReference<>();
+            
+            return chain.nextStream(request)
+                    .doOnNext(response -> {
+                        if (first.compareAndSet(true, false)) {
+                            metrics.chatFirstToken().record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                        }
+                        if (hasUsage(response.chatResponse())) {
+                            lastWithUsage.set(response.chatResponse());
+                        }
+                    })
+                    .doFinally(signal -> {
+                        sample.stop(metrics.chatModel("stream"));
+                        recordUsage(lastWithUsage.get());
+                    });
+        });
+    }
+
+    private void recordUsage(ChatResponse chatResponse) {
+        if (!hasUsage(chatResponse)) {
+            return;
+        }
+        Usage usage = chatResponse.getMetadata().getUsage();
+        if (usage.getPromptTokens() != null) {
+            metrics.chatTokens("prompt").increment(usage.getPromptTokens());
+        }
+        if (usage.getCompletionTokens() != null) {
+            metrics.chatTokens("completion").increment(usage.getCompletionTokens());
+        }
+    }
+
+    private boolean hasUsage(ChatResponse chatResponse) {
+        return chatResponse != null && chatResponse.getMetadata() != null
+                && chatResponse.getMetadata().getUsage() != null
+                && chatResponse.getMetadata().getUsage().getTotalTokens() != null
+                && chatResponse.getMetadata().getUsage().getTotalTokens() > 0;
+    }
+
+    @Override
+    public String getName() {
+        return "ChatMetricsAdvisor";
+    }
+
+    @Override
+    public int getOrder() {
+        // Right before the built-in advisor that calls the model
+        return Ordered.LOWEST_PRECEDENCE - 1;
+    }
+}
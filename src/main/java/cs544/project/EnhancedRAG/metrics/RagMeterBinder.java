@@ -0,0 +1,64 @@
+package cs544.project.EnhancedRAG.metrics;
+
+import cs544.project.EnhancedRAG.embedding.QueryEmbeddingCache;
+import cs544.project.EnhancedRAG.embedding.QueryEmbeddingService;
+import cs544.project.EnhancedRAG.ingestion.StoreStatistics;
+import cs544.project.EnhancedRAG.model.DocumentType;
+import cs544.project.EnhancedRAG.service.SemanticAnswerCache;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.stereotype.Component;
+
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Exposes counters the application already keeps (cache hits and misses, store sizes) as meters,
+ * read when Prometheus scrapes instead of being updated on the request path.
+ */
+@Component
+public class RagMeterBinder implements MeterBinder {
+
+    private final QueryEmbeddingService queryEmbeddingService;
+    private final SemanticAnswerCache semanticAnswerCache;
+    private final StoreStatistics storeStatistics;
+
+    public RagMeterBinder(QueryEmbeddingService queryEmbeddingService,
+                          SemanticAnswerCache semanticAnswerCache,
+                          StoreStatistics storeStatistics) {
+        this.queryEmbeddingService = queryEmbeddingService;
+        this.semanticAnswerCache = semanticAnswerCache;
+        this.storeStatistics = storeStatistics;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        QueryEmbeddingCache queryCache = queryEmbeddingService.getCache();
+        if (queryCache != null) {
+            cacheRequests(registry, queryCache, "query_embedding", "hit", QueryEmbeddingCache::getHits);
+            cacheRequests(registry, queryCache, "query_embedding", "miss", QueryEmbeddingCache::getMisses);
+        }
+        cacheRequests(registry, semanticAnswerCache, "answer", "hit", SemanticAnswerCache::getHits);
+        cacheRequests(registry, semanticAnswerCache, "answer", "miss", SemanticAnswerCache::getMisses);
+        
+        for (DocumentType type : DocumentType.values()) {
+            Gauge.builder("rag.store.chunks", storeStatistics, stats -> stats.getChunkCount(type))
+                    .description("Chunks stored per document store")
+                    .tag(RagMetrics.DOCUMENT_TYPE_TAG, RagMetrics.tagValue(type))
+                    .register(registry);
+            Gauge.builder("rag.store.sources", storeStatistics, stats -> stats.getSourceCount(type))
+                    .description("Source files ingested per document store")
+                    .tag(RagMetrics.DOCUMENT_TYPE_TAG, RagMetrics.tagValue(type))
+                    .register(registry);
+        }
+    }
+
+    private <T> void cacheRequests(MeterRegistry registry, T cache, String name, String result,
+                                   ToDoubleFunction<T> count) {
+        FunctionCounter.builder(RagMetrics.CACHE_REQUESTS, cache, count)
+                .tag("cache", name)
+                .tag("result", result)
+                .register(registry);
+    }
+}
@@ -0,0 +1,162 @@
+package cs544.project.EnhancedRAG.metrics;
+
+import cs544.project.EnhancedRAG.model.DocumentType;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+/**
+ * Meters for the query and ingestion paths, exposed through Actuator ({@code /actuator/prometheus}).
+ * All names start with {@code rag.}; meters that concern one store carry a {@code document_type}
+ * tag so latency and volume can be broken down per store. Percentile histograms for the
+ * {@code rag} prefix are switched on in {@code application.properties}.
+ */
+@Component
+public class RagMetrics {
+
+    public static final String DOCUMENT_TYPE_TAG = "document_type";
+
+    static final String CACHE_REQUESTS = "rag.cache.requests";
+
+    private final MeterRegistry registry;
+
+    public RagMetrics(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    public Timer queryEmbedding(boolean cacheHit) {
+        return Timer.builder("rag.query.embedding")
+                .description("Embedding of the user question")
+                .tag("cache", cacheHit ? "hit" : "miss")
+                .register(registry);
+    }
+
+    /**
+     * One KNN search against one store; {@code outcome} is {@code success} or {@code error}. A store
+     * searched in a pipeline is timed by the round trip its reply arrived with.
+     */
+    public Timer storeSearch(DocumentType type, String outcome) {
+        return Timer.builder("rag.retrieval.search")
+                .description("Similarity search in one document store")
+                .tag(DOCUMENT_TYPE_TAG, tagValue(type))
+                .tag("outcome", outcome)
+                .register(registry);
+    }
+
+    /**
+     * One KNN search covering several types in the unified index. Kept apart from
+     * {@code rag.retrieval.search}, whose {@code document_type} tag always names a single store.
+     */
+    public Timer unifiedSearch(String outcome) {
+        return Timer.builder("rag.retrieval.search.unified")
+                .description("Similarity search across several document types in the unified index")
+                .tag("outcome", outcome)
+                .register(registry);
+    }
+
+    public Counter storeTimeouts(DocumentType type) {
+        return Counter.builder("rag.retrieval.timeouts")
+                .description("Store searches abandoned at their deadline")
+                .tag(DOCUMENT_TYPE_TAG, tagValue(type))
+                .register(registry);
+    }
+
+    public Timer retrieval() {
+        return Timer.builder("rag.retrieval")
+                .description("Whole multi-store retrieval, including query embedding and merge")
+                .register(registry);
+    }
+
+    public Timer retrievalMerge() {
+        return Timer.builder("rag.retrieval.merge")
+                .description("Merging the per-store results into the prompt documents")
+                .register(registry);
+    }
+
+    /**
+     * Store routing decisions; {@code decision} is {@code routed} or {@code all}.
+     */
+    public Counter routingDecisions(String decision) {
+        return Counter.builder("rag.retrieval.routing")
+                .description("Questions sent to a subset of the stores or to all of them")
+                .tag("decision", decision)
+                .register(registry);
+    }
+
+    public Counter routingSkips(DocumentType type) {
+        return Counter.builder("rag.retrieval.routing.skipped")
+                .description("Store searches saved by routing")
+                .tag(DOCUMENT_TYPE_TAG, tagValue(type))
+                .register(registry);
+    }
+
+    /**
+     * Share of the full fan-out's top-K that a routed retrieval also returned (sampled).
+     */
+    public DistributionSummary routingRecall() {
+        return DistributionSummary.builder("rag.retrieval.routing.recall")
+                .description("Recall of routed retrieval against searching all stores")
+                .register(registry);
+    }
+
+    /**
+     * The chat model call alone, without retrieval; {@code mode} is {@code call} or {@code stream}.
+     */
+    public Timer chatModel(String mode) {
+        return Timer.builder("rag.chat")
+                .description("Chat model call")
+                .tag("mode", mode)
+                .register(registry);
+    }
+
+    public Timer chatFirstToken() {
+        return Timer.builder("rag.chat.first_token")
+                .description("Time until a streamed chat response produced its first token")
+                .register(registry);
+    }
+
+    /**
+     * Tokens reported by the chat model; {@code kind} is {@code prompt} or {@code completion}.
+     */
+    public Counter chatTokens(String kind) {
+        return Counter.builder("rag.chat.tokens")
+                .tag("kind", kind)
+                .register(registry);
+    }
+
+    /**
+     * Time one ingestion pipeline stage spent on one item (file, segment or batch).
+     */
+    public Timer ingestionStage(String stage, DocumentType type) {
+        return Timer.builder("rag.ingestion.stage")
+                .description("Ingestion pipeline work per item")
+                .tag("stage", stage)
+                .tag(DOCUMENT_TYPE_TAG, tagValue(type))
+                .register(registry);
+    }
+
+    public Counter ingestionTokens(DocumentType type) {
+        return Counter.builder("rag.ingestion.tokens")
+                .description("Estimated tokens of chunks sent for embedding")
+                .tag(DOCUMENT_TYPE_TAG, tagValue(type))
+                .register(registry);
+    }
+
+    public void documentEmbeddingCache(long hits, long misses) {
+        cacheRequests("document_embedding", "hit").increment(hits);
+        cacheRequests("document_embedding", "miss").increment(misses);
+    }
+
+    private Counter cacheRequests(String cache, String result) {
+        return Counter.builder(CACHE_REQUESTS)
+                .tag("cache", cache)
+                .tag("result", result)
+                .register(registry);
+    }
+
+    static String tagValue(DocumentType type) {
+        return type.name().toLowerCase();
+    }
+}
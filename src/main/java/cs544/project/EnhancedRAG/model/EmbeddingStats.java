@@ -0,0 +1,76 @@
+package cs544.project.EnhancedRAG.model;
+
+public class EmbeddingStats {
+    private long queries;
+    private long embeddingCalls;
+    private double embeddingCallsPerQuery;
+    private long cacheHits;
+    private long cacheMisses;
+    private long cacheEvictions;
+    private int cacheSize;
+
+    public EmbeddingStats() {}
+
+    public EmbeddingStats(long queries, long embeddingCalls) {
+        this.queries = queries;
+        this.embeddingCalls = embeddingCalls;
+        this.embeddingCallsPerQuery = queries == 0 ? 0.0 : (double) embeddingCalls / queries;
+    }
+
+    // Getters and setters
+    public long getQueries() {
+        return queries;
+    }
+
+    public void setQueries(long queries) {
+        this.queries = queries;
+    }
+
+    public long getEmbeddingCalls() {
+        return embeddingCalls;
+    }
+
+    public void setEmbeddingCalls(long embeddingCalls) {
+        this.embeddingCalls = embeddingCalls;
+    }
+
+    public double getEmbeddingCallsPerQuery() {
+        return embeddingCallsPerQuery;
+    }
+
+    public void setEmbeddingCallsPerQuery(double embeddingCallsPerQuery) {
+        this.embeddingCallsPerQuery = embeddingCallsPerQuery;
+    }
+
+    public long getCacheHits() {
+        return cacheHits;
+    }
+
+    public void setCacheHits(long cacheHits) {
+        this.cacheHits = cacheHits;
+    }
+
+    public long getCacheMisses() {
+        return cacheMisses;
+    }
+
+    public void setCacheMisses(long cacheMisses) {
+        this.cacheMisses = cacheMisses;
+    }
+
+    public long getCacheEvictions() {
+        return cacheEvictions;
+    }
+
+    public void setCacheEvictions(long cacheEvictions) {
+        this.cacheEvictions = cacheEvictions;
+    }
+
+    public int getCacheSize() {
+        return cacheSize;
+    }
+
+    public void setCacheSize(int cacheSize) {
+        this.cacheSize = cacheSize;
+    }
+}
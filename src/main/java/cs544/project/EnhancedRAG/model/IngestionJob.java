@@ -0,0 +1,134 @@
+package cs544.project.EnhancedRAG.model;
+
+public class IngestionJob {
+
+    public enum Status {
+        QUEUED, RUNNING, COMPLETED, FAILED, CANCELLED
+    }
+
+    private String jobId;
+    private Status status;
+    private long submittedAt;
+    private long startedAt;
+    private long finishedAt;
+    private long filesDiscovered;
+    private long filesCompleted;
+    private long chunksStored;
+    private long embeddingsComputed;
+    private double filesPerSecond;
+    private Long etaSeconds;
+    private String message;
+    private IngestionStats stats;
+
+    public IngestionJob() {}
+
+    public IngestionJob(String jobId, Status status) {
+        this.jobId = jobId;
+        this.status = status;
+    }
+
+    // Getters and setters
+    public String getJobId() {
+        return jobId;
+    }
+
+    public void setJobId(String jobId) {
+        this.jobId = jobId;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public void setStatus(Status status) {
+        this.status = status;
+    }
+
+    public long getSubmittedAt() {
+        return submittedAt;
+    }
+
+    public void setSubmittedAt(long submittedAt) {
+        this.submittedAt = submittedAt;
+    }
+
+    public long getStartedAt() {
+        return startedAt;
+    }
+
+    public void setStartedAt(long startedAt) {
+        this.startedAt = startedAt;
+    }
+
+    public long getFinishedAt() {
+        return finishedAt;
+    }
+
+    public void setFinishedAt(long finishedAt) {
+        this.finishedAt = finishedAt;
+    }
+
+    public long getFilesDiscovered() {
+        return filesDiscovered;
+    }
+
+    public void setFilesDiscovered(long filesDiscovered) {
+        this.filesDiscovered = filesDiscovered;
+    }
+
+    public long getFilesCompleted() {
+        return filesCompleted;
+    }
+
+    public void setFilesCompleted(long filesCompleted) {
+        this.filesCompleted = filesCompleted;
+    }
+
+    public long getChunksStored() {
+        return chunksStored;
+    }
+
+    public void setChunksStored(long chunksStored) {
+        this.chunksStored = chunksStored;
+    }
+
+    public long getEmbeddingsComputed() {
+        return embeddingsComputed;
+    }
+
+    public void setEmbeddingsComputed(long embeddingsComputed) {
+        this.embeddingsComputed = embeddingsComputed;
+    }
+
+    public double getFilesPerSecond() {
+        return filesPerSecond;
+    }
+
+    public void setFilesPerSecond(double filesPerSecond) {
+        this.filesPerSecond = filesPerSecond;
+    }
+
+    public Long getEtaSeconds() {
+        return etaSeconds;
+    }
+
+    public void setEtaSeconds(Long etaSeconds) {
+        this.etaSeconds = etaSeconds;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public void setMessage(String message) {
+        this.message = message;
+    }
+
+    public IngestionStats getStats() {
+        return stats;
+    }
+
+    public void setStats(IngestionStats stats) {
+        this.stats = stats;
+    }
+}
@@ -0,0 +1,216 @@
+package cs544.project.EnhancedRAG.model;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+public class IngestionStats {
+    private boolean running;
+    private boolean cancelled;
+    private long filesDiscovered;
+    private long filesFailed;
+    private long startedAt;
+    private long durationMillis;
+    private List<StageStats> stages = new ArrayList<>();
+    private Map<DocumentType, Long> chunksStored = new HashMap<>();
+    private Map<DocumentType, Long> chunksFailed = new HashMap<>();
+    private long chunksReused;
+    private long embeddingCacheHits;
+    private long embeddingCacheMisses;
+    private long filesIngested;
+    private long filesUnchanged;
+    private long filesRemoved;
+    private Set<DocumentType> changedTypes = EnumSet.noneOf(DocumentType.class);
+    private String chunker;
+    private long chunksOfIngestedFiles;
+    private long chunksTokenized;
+    private long chunkTokens;
+    private int maxTokensPerChunk;
+
+    public IngestionStats() {}
+
+    // Getters and setters
+    public boolean isRunning() {
+        return running;
+    }
+
+    public void setRunning(boolean running) {
+        this.running = running;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    public void setCancelled(boolean cancelled) {
+        this.cancelled = cancelled;
+    }
+
+    public long getFilesDiscovered() {
+        return filesDiscovered;
+    }
+
+    public void setFilesDiscovered(long filesDiscovered) {
+        this.filesDiscovered = filesDiscovered;
+    }
+
+    public long getFilesFailed() {
+        return filesFailed;
+    }
+
+    public void setFilesFailed(long filesFailed) {
+        this.filesFailed = filesFailed;
+    }
+
+    public long getStartedAt() {
+        return startedAt;
+    }
+
+    public void setStartedAt(long startedAt) {
+        this.startedAt = startedAt;
+    }
+
+    public long getDurationMillis() {
+        return durationMillis;
+    }
+
+    public void setDurationMillis(long durationMillis) {
+        this.durationMillis = durationMillis;
+    }
+
+    public List<StageStats> getStages() {
+        return stages;
+    }
+
+    public void setStages(List<StageStats> stages) {
+        this.stages = stages;
+    }
+
+    public Map<DocumentType, Long> getChunksStored() {
+        return chunksStored;
+    }
+
+    public void setChunksStored(Map<DocumentType, Long> chunksStored) {
+        this.chunksStored = chunksStored;
+    }
+
+    public Map<DocumentType, Long> getChunksFailed() {
+        return chunksFailed;
+    }
+
+    public void setChunksFailed(Map<DocumentType, Long> chunksFailed) {
+        this.chunksFailed = chunksFailed;
+    }
+
+    public long getChunksReused() {
+        return chunksReused;
+    }
+
+    public void setChunksReused(long chunksReused) {
+        this.chunksReused = chunksReused;
+    }
+
+    public long getFilesIngested() {
+        return filesIngested;
+    }
+
+    public void setFilesIngested(long filesIngested) {
+        this.filesIngested = filesIngested;
+    }
+
+    public long getFilesUnchanged() {
+        return filesUnchanged;
+    }
+
+    public void setFilesUnchanged(long filesUnchanged) {
+        this.filesUnchanged = filesUnchanged;
+    }
+
+    public long getFilesRemoved() {
+        return filesRemoved;
+    }
+
+    public void setFilesRemoved(long filesRemoved) {
+        this.filesRemoved = filesRemoved;
+    }
+
+    public Set<DocumentType> getChangedTypes() {
+        return changedTypes;
+    }
+
+    public void setChangedTypes(Set<DocumentType> changedTypes) {
+        this.changedTypes = changedTypes;
+    }
+
+    public long getEmbeddingCacheHits() {
+        return embeddingCacheHits;
+    }
+
+    public void setEmbeddingCacheHits(long embeddingCacheHits) {
+        this.embeddingCacheHits = embeddingCacheHits;
+    }
+
+    public long getEmbeddingCacheMisses() {
+        return embeddingCacheMisses;
+    }
+
+    public void setEmbeddingCacheMisses(long embeddingCacheMisses) {
+        this.embeddingCacheMisses = embeddingCacheMisses;
+    }
+
+    public double getEmbeddingCacheHitRate() {
+        long lookups = embeddingCacheHits + embeddingCacheMisses;
+        return lookups == 0 ? 0.0 : (double) embeddingCacheHits / lookups;
+    }
+
+    public String getChunker() {
+        return chunker;
+    }
+
+    public void setChunker(String chunker) {
+        this.chunker = chunker;
+    }
+
+    public long getChunksOfIngestedFiles() {
+        return chunksOfIngestedFiles;
+    }
+
+    public void setChunksOfIngestedFiles(long chunksOfIngestedFiles) {
+        this.chunksOfIngestedFiles = chunksOfIngestedFiles;
+    }
+
+    public long getChunksTokenized() {
+        return chunksTokenized;
+    }
+
+    public void setChunksTokenized(long chunksTokenized) {
+        this.chunksTokenized = chunksTokenized;
+    }
+
+    public long getChunkTokens() {
+        return chunkTokens;
+    }
+
+    public void setChunkTokens(long chunkTokens) {
+        this.chunkTokens = chunkTokens;
+    }
+
+    public int getMaxTokensPerChunk() {
+        return maxTokensPerChunk;
+    }
+
+    public void setMaxTokensPerChunk(int maxTokensPerChunk) {
+        this.maxTokensPerChunk = maxTokensPerChunk;
+    }
+
+    public double getVectorsPerDocument() {
+        return filesIngested == 0 ? 0.0 : (double) chunksOfIngestedFiles / filesIngested;
+    }
+
+    public double getTokensPerChunk() {
+        return chunksTokenized == 0 ? 0.0 : (double) chunkTokens / chunksTokenized;
+    }
+}
@@ -1,5 +1,6 @@
 package cs544.project.EnhancedRAG.model;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 
@@ -8,6 +9,12 @@ public class MultiDocumentResponse {
     private List<DocumentSource> sources;
     private Map<String, Integer> sourceBreakdown;
     private double totalConfidence;
+    private List<DocumentType> searchedStores = new ArrayList<>();
+    private List<DocumentType> timedOutStores = new ArrayList<>();
+    private List<DocumentType> failedStores = new ArrayList<>();
+    private List<DocumentSource> droppedSources = new ArrayList<>();
+    private int contextTokens;
+    private boolean cached;
 
     public MultiDocumentResponse() {}
 
@@ -51,4 +58,52 @@ public class MultiDocumentResponse {
     public void setTotalConfidence(double totalConfidence) {
         this.totalConfidence = totalConfidence;
     }
+
+    public List<DocumentType> getSearchedStores() {
+        return searchedStores;
+    }
+
+    public void setSearchedStores(List<DocumentType> searchedStores) {
+        this.searchedStores = searchedStores;
+    }
+
+    public List<DocumentType> getTimedOutStores() {
+        return timedOutStores;
+    }
+
+    public void setTimedOutStores(List<DocumentType> timedOutStores) {
+        this.timedOutStores = timedOutStores;
+    }
+
+    public List<DocumentType> getFailedStores() {
+        return failedStores;
+    }
+
+    public void setFailedStores(List<DocumentType> failedStores) {
+        this.failedStores = failedStores;
+    }
+
+    public List<DocumentSource> getDroppedSources() {
+        return droppedSources;
+    }
+
+    public void setDroppedSources(List<DocumentSource> droppedSources) {
+        this.droppedSources = droppedSources;
+    }
+
+    public int getContextTokens() {
+        return contextTokens;
+    }
+
+    public void setContextTokens(int contextTokens) {
+        this.contextTokens = contextTokens;
+    }
+
+    public boolean isCached() {
+        return cached;
+    }
+
+    public void setCached(boolean cached) {
+        this.cached = cached;
+    }
 }
@@ -6,6 +6,8 @@ public class StoreStatus {
     private Map<DocumentType, Integer> documentCounts;
     private Map<DocumentType, Boolean> storeHealth;
     private String redisConnectionStatus;
+    private Map<DocumentType, Long> sourceCounts;
+    private long statsReconciledAt;
 
     public StoreStatus() {}
 
@@ -41,4 +43,20 @@ public class StoreStatus {
     public void setRedisConnectionStatus(String redisConnectionStatus) {
         this.redisConnectionStatus = redisConnectionStatus;
     }
+
+    public Map<DocumentType, Long> getSourceCounts() {
+        return sourceCounts;
+    }
+
+    public void setSourceCounts(Map<DocumentType, Long> sourceCounts) {
+        this.sourceCounts = sourceCounts;
+    }
+
+    public long getStatsReconciledAt() {
+        return statsReconciledAt;
+    }
+
+    public void setStatsReconciledAt(long statsReconciledAt) {
+        this.statsReconciledAt = statsReconciledAt;
+    }
 }
@@ -0,0 +1,266 @@
+package cs544.project.EnhancedRAG.retrieval;
+
+import cs544.project.EnhancedRAG.config.RetrievalProperties;
+import cs544.project.EnhancedRAG.embedding.QueryEmbeddingService;
+import cs544.project.EnhancedRAG.metrics.RagMetrics;
+import cs544.project.EnhancedRAG.model.DocumentType;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.rag.Query;
+import org.springframework.ai.rag.retrieval.search.DocumentRetriever;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.logging.Logger;
+
+/**
+ * Searches every document store concurrently and merges whatever comes back before the deadlines.
+ * Each store gets its own deadline, and the whole fan-out is additionally capped by a global deadline,
+ * so retrieval latency tracks the slowest healthy store instead of the sum of all of them.
+ * <p>
+ * Each store contributes at most {@code rag.retrieval.store-top-k} candidates; {@link TopKMerger}
+ * collapses overlapping chunks and keeps the global {@code rag.retrieval.top-k} by similarity.
+ * <p>
+ * With a unified index ({@code rag.index.mode=UNIFIED}), all stores to search are covered by a
+ * single KNN query filtered on {@code document_type} instead of one query per store. With per-type
+ * indexes and {@code rag.retrieval.pipeline-store-searches} (off by default), the per-store queries are
+ * sent in one pipeline. They then share one deadline: a single slow store times out all of them, which
+ * is why pipelining is opt-in. An index that answers with an error fails only its own store.
+ * <p>
+ * With a {@link QueryRouter}, only the stores it picks for the question are searched. A sample of
+ * routed queries also searches the skipped stores in the background and records how much of the
+ * full fan-out's top-K the routed result contained ({@code rag.retrieval.routing.recall}).
+ * <p>
+ * The question is embedded once per retrieval and the same vector is used for every store.
+ * Callers that already hold the question vector can pass it in the query context under
+ * {@link #QUERY_VECTOR_KEY} to skip that embedding as well. An {@code Integer} under
+ * {@link #EF_RUNTIME_KEY} overrides the HNSW search breadth of every index for this query.
+ */
+public class MultiStoreDocumentRetriever implements DocumentRetriever {
+
+    private static final Logger logger = Logger.getLogger(MultiStoreDocumentRetriever.class.getName());
+
+    public static final String QUERY_VECTOR_KEY = "rag_query_vector";
+    public static final String EF_RUNTIME_KEY = "rag_ef_runtime";
+
+    /**
+     * Outcome of one search call covering a group of stores.
+     */
+    private record GroupResult(List<Document> documents, Set<DocumentType> failed) {}
+
+    private final Set<DocumentType> storeTypes;
+    private final QueryEmbeddingService queryEmbeddingService;
+    private final StoreSearcher knnSearcher;
+    private final QueryRouter router;
+    private final ExecutorService executor;
+    private final RetrievalProperties properties;
+    private final RagMetrics metrics;
+
+    /**
+     * @param router picks the stores to search per question; {@code null} searches all of them
+     */
+    public MultiStoreDocumentRetriever(Set<DocumentType> storeTypes,
+                                       QueryEmbeddingService queryEmbeddingService,
+                                       StoreSearcher knnSearcher,
+                                       QueryRouter router,
+                                       ExecutorService executor,
+                                       RetrievalProperties properties,
+                                       RagMetrics metrics) {
+        this.storeTypes = storeTypes;
+        this.queryEmbeddingService = queryEmbeddingService;
+        this.knnSearcher = knnSearcher;
+        this.router = router;
+        this.executor = executor;
+        this.properties = properties;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public List<Document> retrieve(Query query) {
+        MultiStoreRetrievalResult result = retrieveFromAllStores(query);
+        if (query.context().get(RetrievalReport.CONTEXT_KEY) instanceof RetrievalReport report) {
+            report.record(result);
+        }
+        return result.documents();
+    }
+
+    public MultiStoreRetrievalResult retrieveFromAllStores(Query query) {
+        Timer.Sample retrieval = Timer.start();
+        try {
+            return searchAllStores(query);
+        } finally {
+            retrieval.stop(metrics.retrieval());
+        }
+    }
+
+    private MultiStoreRetrievalResult searchAllStores(Query query) {
+        long start = System.nanoTime();
+        long globalDeadline = start + properties.getGlobalTimeout().toNanos();
+
+        float[] queryVector;
+        try {
+            queryVector = query.context().get(QUERY_VECTOR_KEY) instanceof float[] precomputed
+                    ? precomputed
+                    : queryEmbeddingService.embed(query.text());
+        } catch (Exception e) {
+            logger.warning("Failed to embed query, no store can be searched: " + e.getMessage());
+            return new MultiStoreRetrievalResult(List.of(), List.of(), List.of(), List.copyOf(storeTypes));
+        }
+
+        Integer efRuntime = query.context().get(EF_RUNTIME_KEY) instanceof Integer ef ? ef : null;
+
+        QueryRouter.Decision routing = router != null ? router.route(query.text(), queryVector, storeTypes) : null;
+        Set<DocumentType> targets = routing != null ? routing.stores() : storeTypes;
+        if (routing != null) {
+            recordRouting(routing);
+        }
+
+        // Embedding counts against the global deadline only; the per-store clock starts with the searches
+        long storeDeadline = Math.min(globalDeadline, System.nanoTime() + properties.getStoreTimeout().toNanos());
+        // A unified index answers all target types with one KNN query, a pipeline sends the per-type
+        // queries in one round trip; otherwise each store is searched concurrently
+        List<Set<DocumentType>> groups = new ArrayList<>();
+        if (knnSearcher.isUnifiedIndex() || properties.isPipelineStoreSearches()) {
+            if (!targets.isEmpty()) {
+                groups.add(targets);
+            }
+        } else {
+            targets.forEach(type -> groups.add(EnumSet.of(type)));
+        }
+        Map<Set<DocumentType>, Future<GroupResult>> searches = new LinkedHashMap<>();
+        for (Set<DocumentType> group : groups) {
+            searches.put(group, executor.submit(() -> timedSearch(group, queryVector, efRuntime)));
+        }
+
+        List<Document> candidates = new ArrayList<>();
+        List<DocumentType> timedOutStores = new ArrayList<>();
+        List<DocumentType> failedStores = new ArrayList<>();
+
+        for (Map.Entry<Set<DocumentType>, Future<GroupResult>> entry : searches.entrySet()) {
+            Set<DocumentType> group = entry.getKey();
+            Future<GroupResult> search = entry.getValue();
+            try {
+                long remaining = Math.max(0, storeDeadline - System.nanoTime());
+                GroupResult groupResult = search.get(remaining, TimeUnit.NANOSECONDS);
+                candidates.addAll(groupResult.documents());
+                failedStores.addAll(groupResult.failed());
+            } catch (TimeoutException e) {
+                search.cancel(true);
+                timedOutStores.addAll(group);
+                group.forEach(type -> metrics.storeTimeouts(type).increment());
+                logger.warning("Search in " + group + " timed out after " +
+                        properties.getStoreTimeout().toMillis() + " ms");
+            } catch (ExecutionException e) {
+                failedStores.addAll(group);
+                logger.warning("Error searching " + group + ": " + e.getCause().getMessage());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                search.cancel(true);
+                timedOutStores.addAll(group);
+            }
+        }
+
+        Timer.Sample merge = Timer.start();
+        List<Document> allDocuments = TopKMerger.merge(candidates, properties.getTopK(),
+                properties.isCollapseAdjacentChunks());
+        merge.stop(metrics.retrievalMerge());
+
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        logger.info("Retrieved " + allDocuments.size() + " documents (of " + candidates.size() + " candidates) from " +
+                targets + " in " + searches.size() + " searches, " + elapsedMillis + " ms" +
+                (routing == null ? "" : " (" + (routing.routed() ? "routed, " : "all stores, ") + routing.reason() + ")") +
+                (timedOutStores.isEmpty() ? "" : " (timed out: " + timedOutStores + ")"));
+
+        if (routing != null && routing.routed()
+                && ThreadLocalRandom.current().nextDouble() < properties.getRouting().getShadowSampleRate()) {
+            Set<DocumentType> skipped = EnumSet.copyOf(routing.scores().keySet());
+            skipped.removeAll(targets);
+            executor.submit(() -> measureRecall(query.text(), queryVector, efRuntime, candidates, skipped, allDocuments));
+        }
+
+        return new MultiStoreRetrievalResult(allDocuments, List.copyOf(targets), timedOutStores, failedStores);
+    }
+
+    private void recordRouting(QueryRouter.Decision routing) {
+        metrics.routingDecisions(routing.routed() ? "routed" : "all").increment();
+        for (DocumentType type : routing.scores().keySet()) {
+            if (!routing.stores().contains(type)) {
+                metrics.routingSkips(type).increment();
+            }
+        }
+    }
+
+    /**
+     * Searches the stores the router skipped and records which share of the full fan-out's top-K
+     * the routed retrieval returned. Runs after the routed result was handed out.
+     */
+    private void measureRecall(String question, float[] queryVector, Integer efRuntime, List<Document> routedCandidates,
+                               Set<DocumentType> skipped, List<Document> routedDocuments) {
+        try {
+            List<Document> candidates = new ArrayList<>(routedCandidates);
+            for (DocumentType type : skipped) {
+                candidates.addAll(knnSearcher.search(type, queryVector,
+                        properties.getStoreTopK(), properties.getSimilarityThreshold(), efRuntime));
+            }
+            List<Document> full = TopKMerger.merge(candidates, properties.getTopK(), properties.isCollapseAdjacentChunks());
+            if (full.isEmpty()) {
+                return;
+            }
+            Set<String> routedIds = new HashSet<>();
+            routedDocuments.forEach(document -> routedIds.add(document.getId()));
+            long found = full.stream().filter(document -> routedIds.contains(document.getId())).count();
+            metrics.routingRecall().record((double) found / full.size());
+            if (found < full.size()) {
+                logger.info("Routing missed " + (full.size() - found) + " of the top " + full.size() +
+                        " documents by skipping " + skipped + " for: " + question);
+            }
+        } catch (Exception e) {
+            logger.fine("Could not measure routing recall: " + e.getMessage());
+        }
+    }
+
+    private GroupResult timedSearch(Set<DocumentType> types, float[] queryVector, Integer efRuntime) {
+        if (types.size() > 1 && !knnSearcher.isUnifiedIndex()) {
+            return pipelinedSearch(types, queryVector, efRuntime);
+        }
+        Timer.Sample sample = Timer.start();
+        String outcome = "error";
+        DocumentType single = types.size() == 1 ? types.iterator().next() : null;
+        try {
+            List<Document> documents = single != null
+                    ? knnSearcher.search(single, queryVector, properties.getStoreTopK(),
+                            properties.getSimilarityThreshold(), efRuntime)
+                    // A multi-type search gets the candidates the per-store searches would have had together
+                    : knnSearcher.search(types, queryVector, properties.getStoreTopK() * types.size(),
+                            properties.getSimilarityThreshold(), efRuntime);
+            outcome = "success";
+            return new GroupResult(documents, Set.of());
+        } finally {
+            sample.stop(single != null ? metrics.storeSearch(single, outcome) : metrics.unifiedSearch(outcome));
+        }
+    }
+
+    /**
+     * Searches the per-type indexes in one pipeline. All replies arrive with the same round trip, so
+     * each store's search is timed by it under its own {@code document_type}.
+     */
+    private GroupResult pipelinedSearch(Set<DocumentType> types, float[] queryVector, Integer efRuntime) {
+        long start = System.nanoTime();
+        Map<DocumentType, List<Document>> perStore = Map.of();
+        try {
+            perStore = knnSearcher.searchEach(types, queryVector, properties.getStoreTopK(),
+                    properties.getSimilarityThreshold(), efRuntime);
+        } finally {
+            long elapsed = System.nanoTime() - start;
+            for (DocumentType type : types) {
+                metrics.storeSearch(type, perStore.containsKey(type) ? "success" : "error")
+                        .record(elapsed, TimeUnit.NANOSECONDS);
+            }
+        }
+        List<Document> documents = new ArrayList<>();
+        perStore.values().forEach(documents::addAll);
+        Set<DocumentType> failed = EnumSet.copyOf(types);
+        failed.removeAll(perStore.keySet());
+        return new GroupResult(documents, failed);
+    }
+}
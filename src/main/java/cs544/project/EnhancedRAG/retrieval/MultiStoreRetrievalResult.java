@@ -0,0 +1,20 @@
+package cs544.project.EnhancedRAG.retrieval;
+
+import cs544.project.EnhancedRAG.model.DocumentType;
+import org.springframework.ai.document.Document;
+
+import java.util.List;
+
+/**
+ * Outcome of one fan-out over the document stores: the documents that came back in time, the
+ * stores that were searched, and those of them that missed their deadline or failed outright.
+ */
+public record MultiStoreRetrievalResult(List<Document> documents,
+                                        List<DocumentType> searchedStores,
+                                        List<DocumentType> timedOutStores,
+                                        List<DocumentType> failedStores) {
+
+    public boolean isPartial() {
+        return !timedOutStores.isEmpty() || !failedStores.isEmpty();
+    }
+}
@@ -0,0 +1,108 @@
+package cs544.project.EnhancedRAG.retrieval;
+
+import cs544.project.EnhancedRAG.config.RetrievalProperties;
+import cs544.project.EnhancedRAG.ingestion.StoreCentroids;
+import cs544.project.EnhancedRAG.model.DocumentType;
+
+import java.util.*;
+import java.util.regex.Pattern;
+
+/**
+ * Picks the stores worth searching for a question, so that a question about JSON settings does
+ * not also cost a PDF search. Each store is scored by the cosine similarity between the question
+ * vector and the store's centroid ({@link StoreCentroids}), plus a small boost for each of the
+ * store's keywords in the question. The best store and any store within
+ * {@code rag.retrieval.routing.margin} of it are searched.
+ * <p>
+ * Whenever the router cannot tell, every store is searched: routing disabled, centroids not loaded
+ * yet, a best score below {@code rag.retrieval.routing.min-score}, or more than
+ * {@code rag.retrieval.routing.max-stores} stores within the margin. Stores without any chunks are
+ * never searched.
+ */
+public class QueryRouter {
+
+    private static final Pattern NON_WORD = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    // A question repeating a keyword should not outweigh the centroid similarity
+    private static final int MAX_KEYWORD_HITS = 2;
+
+    /**
+     * @param stores   the stores to search
+     * @param routed   whether stores with content were left out (as opposed to a full fan-out)
+     * @param reason   why, for logging
+     * @param scores   per-store routing score; empty if the router did not score the stores
+     */
+    public record Decision(Set<DocumentType> stores, boolean routed, String reason, Map<DocumentType, Double> scores) {}
+
+    private final StoreCentroids storeCentroids;
+    private final RetrievalProperties.Routing properties;
+
+    public QueryRouter(StoreCentroids storeCentroids, RetrievalProperties.Routing properties) {
+        this.storeCentroids = storeCentroids;
+        this.properties = properties;
+    }
+
+    public Decision route(String question, float[] queryVector, Set<DocumentType> available) {
+        if (!properties.isEnabled()) {
+            return all(available, "routing disabled");
+        }
+        if (!storeCentroids.isReady()) {
+            return all(available, "centroids not loaded");
+        }
+
+        Set<String> questionWords = new HashSet<>(Arrays.asList(NON_WORD.split(question.toLowerCase(Locale.ROOT))));
+        Map<DocumentType, Double> scores = new EnumMap<>(DocumentType.class);
+        for (DocumentType type : available) {
+            float[] centroid = storeCentroids.getCentroid(type);
+            if (centroid == null) {
+                // Nothing was ever written to this store
+                continue;
+            }
+            long keywordHits = properties.getKeywords().getOrDefault(type, List.of()).stream()
+                    .filter(questionWords::contains)
+                    .count();
+            scores.put(type, cosine(queryVector, centroid)
+                    + properties.getKeywordBoost() * Math.min(MAX_KEYWORD_HITS, keywordHits));
+        }
+        if (scores.isEmpty()) {
+            return all(available, "no store has a centroid");
+        }
+
+        double best = Collections.max(scores.values());
+        if (best < properties.getMinScore()) {
+            // Being closest to the question does not make a store related to it
+            return new Decision(EnumSet.copyOf(scores.keySet()), false, "best score " +
+                    String.format(Locale.ROOT, "%.3f", best) + " below minimum", scores);
+        }
+        Set<DocumentType> selected = EnumSet.noneOf(DocumentType.class);
+        scores.forEach((type, score) -> {
+            if (score >= best - properties.getMargin()) {
+                selected.add(type);
+            }
+        });
+        if (selected.size() > properties.getMaxStores()) {
+            return new Decision(EnumSet.copyOf(scores.keySet()), false,
+                    selected.size() + " stores within margin", scores);
+        }
+        return new Decision(selected, selected.size() < scores.size(), "best score " +
+                String.format(Locale.ROOT, "%.3f", best), scores);
+    }
+
+    private static Decision all(Set<DocumentType> available, String reason) {
+        return new Decision(available.isEmpty() ? Set.of() : EnumSet.copyOf(available), false, reason, Map.of());
+    }
+
+    private static double cosine(float[] a, float[] b) {
+        if (a.length != b.length) {
+            return 0;
+        }
+        double dot = 0;
+        double normA = 0;
+        for (int i = 0; i < a.length; i++) {
+            dot += a[i] * b[i];
+            normA += a[i] * a[i];
+        }
+        // Centroids are normalized already
+        return normA == 0 ? 0 : dot / Math.sqrt(normA);
+    }
+}
@@ -0,0 +1,225 @@
+package cs544.project.EnhancedRAG.retrieval;
+
+import cs544.project.EnhancedRAG.config.IndexProperties;
+import cs544.project.EnhancedRAG.model.DocumentType;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.document.DocumentMetadata;
+import org.springframework.stereotype.Component;
+import redis.clients.jedis.JedisPooled;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.Response;
+import redis.clients.jedis.search.FieldName;
+import redis.clients.jedis.search.Query;
+import redis.clients.jedis.search.RediSearchUtil;
+import redis.clients.jedis.search.SearchResult;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+
+/**
+ * Runs KNN searches directly against the per-type Redis indexes with a query vector that was
+ * computed up front. {@code RedisVectorStore.similaritySearch} always embeds the query text itself,
+ * which means one embedding call per store; this searcher lets all stores share a single vector.
+ * <p>
+ * The query shape and the score conversion mirror {@code RedisVectorStore}, so results are
+ * interchangeable with what the vector store itself would return.
+ * <p>
+ * In the {@code UNIFIED} index layout every search goes to the single index, restricted to the
+ * requested types with a {@code document_type} TAG pre-filter; searching several types is then
+ * one KNN query instead of one per type.
+ * <p>
+ * With per-type indexes, {@link #searchEach} sends the KNN queries of all requested stores in one
+ * pipeline, so a fan-out costs one connection and one network round trip instead of one per store.
+ * <p>
+ * Query vectors are encoded in the data type of the index searched ({@code rag.index.stores.<type>.data-type}),
+ * and a per-query {@code EF_RUNTIME} overrides the index's HNSW search breadth.
+ */
+@Component
+public class RedisKnnSearcher implements StoreSearcher {
+
+    private static final Logger logger = Logger.getLogger(RedisKnnSearcher.class.getName());
+
+    static final String CONTENT_FIELD = "content";
+    static final String EMBEDDING_FIELD = "embedding";
+    static final String SCORE_FIELD = "vector_score";
+    private static final String VECTOR_PARAM = "BLOB";
+
+    // Metadata written by DocumentIngestionService that callers rely on for source attribution
+    private static final List<String> METADATA_FIELDS =
+            List.of("source", "filename", "document_type", "chunk_index", "total_chunks", "page_start", "page_end");
+
+    private final JedisPooled jedisPooled;
+    private final IndexProperties indexProperties;
+
+    public RedisKnnSearcher(JedisPooled jedisPooled, IndexProperties indexProperties) {
+        this.jedisPooled = jedisPooled;
+        this.indexProperties = indexProperties;
+    }
+
+    @Override
+    public List<Document> search(DocumentType type, float[] queryVector, int topK, double similarityThreshold) {
+        return search(type, queryVector, topK, similarityThreshold, null);
+    }
+
+    @Override
+    public List<Document> search(DocumentType type, float[] queryVector, int topK, double similarityThreshold,
+                                 Integer efRuntime) {
+        if (indexProperties.isUnified()) {
+            return search(EnumSet.of(type), queryVector, topK, similarityThreshold, efRuntime);
+        }
+        SearchResult result = jedisPooled.ftSearch(type.getIndexName(),
+                knnQuery("*", queryVector, topK, indexProperties.vectorIndexFor(type), efRuntime));
+        return toDocuments(result, similarityThreshold);
+    }
+
+    @Override
+    public boolean isUnifiedIndex() {
+        return indexProperties.isUnified();
+    }
+
+    @Override
+    public List<Document> search(Set<DocumentType> types, float[] queryVector, int topK, double similarityThreshold,
+                                 Integer efRuntime) {
+        if (!indexProperties.isUnified()) {
+            return StoreSearcher.super.search(types, queryVector, topK, similarityThreshold, efRuntime);
+        }
+        if (types.isEmpty()) {
+            return List.of();
+        }
+        SearchResult result = jedisPooled.ftSearch(indexProperties.getUnifiedIndexName(),
+                knnQuery(typeFilter(types), queryVector, topK, indexProperties.getUnified(), efRuntime));
+        return toDocuments(result, similarityThreshold);
+    }
+
+    @Override
+    public Map<DocumentType, List<Document>> searchEach(Set<DocumentType> types, float[] queryVector, int topK,
+                                                        double similarityThreshold, Integer efRuntime) {
+        if (indexProperties.isUnified() || types.size() < 2) {
+            return StoreSearcher.super.searchEach(types, queryVector, topK, similarityThreshold, efRuntime);
+        }
+
+        Map<DocumentType, Response<SearchResult>> responses = new EnumMap<>(DocumentType.class);
+        try (Pipeline pipeline = jedisPooled.pipelined()) {
+            for (DocumentType type : types) {
+                responses.put(type, pipeline.ftSearch(type.getIndexName(),
+                        knnQuery("*", queryVector, topK, indexProperties.vectorIndexFor(type), efRuntime)));
+            }
+            pipeline.sync();
+        }
+
+        // An error reply fails only its own search, e.g. an index that does not exist yet
+        Map<DocumentType, List<Document>> results = new EnumMap<>(DocumentType.class);
+        responses.forEach((type, response) -> {
+            try {
+                results.put(type, toDocuments(response.get(), similarityThreshold));
+            } catch (RuntimeException e) {
+                logger.warning("Error searching " + type + ": " + e.getMessage());
+            }
+        });
+        return results;
+    }
+
+    /**
+     * {@code *} for all types, otherwise a TAG pre-filter such as {@code (@document_type:{pdf|json})}.
+     */
+    static String typeFilter(Set<DocumentType> types) {
+        if (types.size() == DocumentType.values().length) {
+            return "*";
+        }
+        return types.stream()
+                .map(type -> type.name().toLowerCase())
+                .collect(Collectors.joining("|", "(@document_type:{", "})"));
+    }
+
+    /**
+     * The KNN query for an index with the given vector settings: the vector is encoded in the index's
+     * data type, and {@code EF_RUNTIME} is only passed to HNSW indexes (FLAT rejects it).
+     */
+    Query knnQuery(String filter, float[] queryVector, int topK, IndexProperties.VectorIndex settings,
+                   Integer efRuntime) {
+        String ef = efRuntime != null && settings.isHnsw() ? " EF_RUNTIME " + efRuntime : "";
+        String knn = String.format("%s=>[KNN %d @%s $%s%s AS %s]", filter, topK, EMBEDDING_FIELD, VECTOR_PARAM, ef, SCORE_FIELD);
+
+        List<FieldName> returnFields = new ArrayList<>();
+        returnFields.add(FieldName.of("$." + CONTENT_FIELD).as(CONTENT_FIELD));
+        for (String field : METADATA_FIELDS) {
+            returnFields.add(FieldName.of("$." + field).as(field));
+        }
+        returnFields.add(FieldName.of(SCORE_FIELD));
+
+        return new Query(knn)
+                .addParam(VECTOR_PARAM, toBlob(queryVector, settings.getDataType()))
+                .returnFields(returnFields.toArray(new FieldName[0]))
+                .setSortBy(SCORE_FIELD, true)
+                .limit(0, topK)
+                .dialect(2);
+    }
+
+    List<Document> toDocuments(SearchResult result, double similarityThreshold) {
+        List<Document> documents = new ArrayList<>();
+        for (redis.clients.jedis.search.Document hit : result.getDocuments()) {
+            double score = similarity(Double.parseDouble(hit.getString(SCORE_FIELD)));
+            DocumentType type = typeOf(hit.getId());
+            if (score < similarityThreshold || type == null) {
+                continue;
+            }
+
+            Map<String, Object> metadata = new HashMap<>();
+            for (String field : METADATA_FIELDS) {
+                if (hit.hasProperty(field)) {
+                    metadata.put(field, hit.getString(field));
+                }
+            }
+            metadata.putIfAbsent("document_type", type.name().toLowerCase());
+            metadata.put(SCORE_FIELD, score);
+            metadata.put(DocumentMetadata.DISTANCE.value(), 1 - score);
+
+            documents.add(Document.builder()
+                    .id(hit.getId().substring(type.getPrefix().length()))
+                    .text(hit.hasProperty(CONTENT_FIELD) ? hit.getString(CONTENT_FIELD) : "")
+                    .metadata(metadata)
+                    .score(score)
+                    .build());
+        }
+        return documents;
+    }
+
+    static byte[] toBlob(float[] vector, IndexProperties.DataType dataType) {
+        if (dataType == IndexProperties.DataType.FLOAT32) {
+            return RediSearchUtil.toByteArray(vector);
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(vector.length * Short.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        for (float value : vector) {
+            buffer.putShort(Float.floatToFloat16(value));
+        }
+        return buffer.array();
+    }
+
+    /**
+     * The type whose key prefix {@code key} starts with; both index layouts keep the per-type prefixes.
+     */
+    static DocumentType typeOf(String key) {
+        for (DocumentType type : DocumentType.values()) {
+            if (key.startsWith(type.getPrefix())) {
+                return type;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Converts a Redis COSINE distance (0..2) into the 0..1 similarity used by {@code RedisVectorStore}.
+     */
+    public static double similarity(double cosineDistance) {
+        return (2 - cosineDistance) / 2;
+    }
+}
@@ -0,0 +1,81 @@
+package cs544.project.EnhancedRAG.retrieval;
+
+import cs544.project.EnhancedRAG.model.DocumentType;
+import org.springframework.ai.document.Document;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Mutable side channel for retrieval diagnostics that do not fit into the document list
+ * returned to the {@code RetrievalAugmentationAdvisor}.
+ * <p>
+ * Callers put an instance into the advisor context under {@link #CONTEXT_KEY}; the advisor hands
+ * a copy of that context to the retriever through {@code Query.context()}, so the retriever fills
+ * the same instance the caller reads back after the chat call.
+ * <p>
+ * The documents that end up in the prompt are published as soon as the query is augmented, which
+ * lets streaming callers send sources before the chat model produces its first token.
+ */
+public class RetrievalReport {
+
+    public static final String CONTEXT_KEY = "rag_retrieval_report";
+
+    private final List<DocumentType> searchedStores = new ArrayList<>();
+    private final List<DocumentType> timedOutStores = new ArrayList<>();
+    private final List<DocumentType> failedStores = new ArrayList<>();
+    private final List<Document> droppedDocuments = new ArrayList<>();
+    private int contextTokens;
+    private final CompletableFuture<List<Document>> promptDocuments = new CompletableFuture<>();
+
+    public synchronized void record(MultiStoreRetrievalResult result) {
+        searchedStores.addAll(result.searchedStores());
+        timedOutStores.addAll(result.timedOutStores());
+        failedStores.addAll(result.failedStores());
+    }
+
+    /**
+     * Records the outcome of {@link TokenBudgetPacker}: documents that did not fit the prompt budget
+     * and the estimated tokens of the context that did.
+     */
+    public synchronized void recordPacking(List<Document> dropped, int contextTokens) {
+        droppedDocuments.addAll(dropped);
+        this.contextTokens = contextTokens;
+    }
+
+    public void recordPromptDocuments(List<Document> documents) {
+        promptDocuments.complete(List.copyOf(documents));
+    }
+
+    public synchronized List<DocumentType> getSearchedStores() {
+        return List.copyOf(searchedStores);
+    }
+
+    public synchronized List<DocumentType> getTimedOutStores() {
+        return List.copyOf(timedOutStores);
+    }
+
+    public synchronized List<DocumentType> getFailedStores() {
+        return List.copyOf(failedStores);
+    }
+
+    public synchronized List<Document> getDroppedDocuments() {
+        return List.copyOf(droppedDocuments);
+    }
+
+    public synchronized int getContextTokens() {
+        return contextTokens;
+    }
+
+    public synchronized boolean isPartial() {
+        return !timedOutStores.isEmpty() || !failedStores.isEmpty();
+    }
+
+    /**
+     * Completes once the advisor has augmented the query, with the documents placed into the prompt.
+     */
+    public CompletableFuture<List<Document>> getPromptDocuments() {
+        return promptDocuments;
+    }
+}
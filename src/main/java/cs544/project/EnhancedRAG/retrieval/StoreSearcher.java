@@ -0,0 +1,73 @@
+package cs544.project.EnhancedRAG.retrieval;
+
+import cs544.project.EnhancedRAG.model.DocumentType;
+import org.springframework.ai.document.Document;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Searches one document store with a precomputed query vector. {@link RedisKnnSearcher} is the
+ * production implementation; benchmarks and load tests plug in in-memory stores.
+ */
+public interface StoreSearcher {
+
+    /**
+     * Returns up to {@code topK} documents of the store with a similarity of at least
+     * {@code similarityThreshold}, best first.
+     */
+    List<Document> search(DocumentType type, float[] queryVector, int topK, double similarityThreshold);
+
+    /**
+     * Like {@link #search(DocumentType, float[], int, double)}, with the HNSW candidate list size
+     * {@code efRuntime} for this query only; {@code null} uses the index's own {@code EF_RUNTIME}.
+     * Searchers without HNSW indexes ignore it.
+     */
+    default List<Document> search(DocumentType type, float[] queryVector, int topK, double similarityThreshold,
+                                  Integer efRuntime) {
+        return search(type, queryVector, topK, similarityThreshold);
+    }
+
+    /**
+     * Whether all types share one index, so that {@link #search(Set, float[], int, double, Integer)}
+     * covers several types with a single query.
+     */
+    default boolean isUnifiedIndex() {
+        return false;
+    }
+
+    /**
+     * Returns up to {@code topK} documents of any of {@code types}, best first. A single query
+     * when {@link #isUnifiedIndex()}; the default searches each type on its own and merges the hits
+     * by score, failing if any of the searches fails.
+     */
+    default List<Document> search(Set<DocumentType> types, float[] queryVector, int topK, double similarityThreshold,
+                                  Integer efRuntime) {
+        List<Document> hits = new ArrayList<>();
+        for (DocumentType type : types) {
+            hits.addAll(search(type, queryVector, topK, similarityThreshold, efRuntime));
+        }
+        return TopKMerger.merge(hits, topK, false);
+    }
+
+    /**
+     * Searches each of {@code types} on its own and returns the hits per type. A type whose search
+     * failed is missing from the result. The default searches the stores one after another;
+     * {@link RedisKnnSearcher} pipelines the searches over a single connection.
+     */
+    default Map<DocumentType, List<Document>> searchEach(Set<DocumentType> types, float[] queryVector, int topK,
+                                                         double similarityThreshold, Integer efRuntime) {
+        Map<DocumentType, List<Document>> results = new EnumMap<>(DocumentType.class);
+        for (DocumentType type : types) {
+            try {
+                results.put(type, search(type, queryVector, topK, similarityThreshold, efRuntime));
+            } catch (RuntimeException e) {
+                // Reported by the caller as a failed store
+            }
+        }
+        return results;
+    }
+}
@@ -0,0 +1,164 @@
+package cs544.project.EnhancedRAG.retrieval;
+
+import cs544.project.EnhancedRAG.config.RetrievalProperties;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.rag.Query;
+import org.springframework.ai.rag.postretrieval.document.DocumentPostProcessor;
+import org.springframework.ai.tokenizer.JTokkitTokenCountEstimator;
+import org.springframework.ai.tokenizer.TokenCountEstimator;
+
+import java.util.*;
+import java.util.logging.Logger;
+import java.util.regex.Pattern;
+
+/**
+ * Packs the retrieved documents into a fixed prompt budget of {@code rag.retrieval.context-max-tokens},
+ * so prompt size stays flat no matter how large the corpus or the chunks are.
+ * <p>
+ * Documents are taken best first. A document longer than its allowance (the per-document cap or
+ * whatever budget is left) is trimmed to the passages that mention the most query terms, kept in
+ * their original order. Documents for which not even one passage fits are dropped; they are recorded
+ * in the {@link RetrievalReport} so the response can list them.
+ */
+public class TokenBudgetPacker implements DocumentPostProcessor {
+
+    private static final Logger logger = Logger.getLogger(TokenBudgetPacker.class.getName());
+
+    static final String CONTEXT_TOKENS_METADATA = "context_tokens";
+    static final String TRIMMED_METADATA = "trimmed";
+
+    // Paragraphs first; paragraphs that alone exceed the allowance are split into sentences
+    private static final Pattern PARAGRAPH_BREAK = Pattern.compile("\\n\\s*\\n");
+    private static final Pattern SENTENCE_END = Pattern.compile("(?<=[.!?])\\s+|\\n");
+    private static final Pattern NON_WORD = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    private static final Set<String> STOP_WORDS = Set.of(
+            "the", "and", "for", "are", "but", "not", "you", "all", "can", "how", "what", "when", "where",
+            "which", "who", "why", "does", "with", "this", "that", "from", "have", "should", "would", "could",
+            "into", "about", "your", "there", "their", "will", "use", "using");
+
+    private final RetrievalProperties properties;
+    private final TokenCountEstimator tokenCountEstimator;
+
+    public TokenBudgetPacker(RetrievalProperties properties) {
+        this(properties, new JTokkitTokenCountEstimator());
+    }
+
+    public TokenBudgetPacker(RetrievalProperties properties, TokenCountEstimator tokenCountEstimator) {
+        this.properties = properties;
+        this.tokenCountEstimator = tokenCountEstimator;
+    }
+
+    @Override
+    public List<Document> process(Query query, List<Document> documents) {
+        Set<String> queryTerms = terms(query.text());
+        int remaining = properties.getContextMaxTokens();
+        List<Document> packed = new ArrayList<>();
+        List<Document> dropped = new ArrayList<>();
+        int trimmed = 0;
+
+        for (Document document : documents) {
+            int allowance = Math.min(properties.getContextMaxTokensPerDocument(), remaining);
+            String text = document.getText() != null ? document.getText() : "";
+            int tokens = tokenCountEstimator.estimate(text);
+            boolean trim = tokens > allowance;
+            if (trim) {
+                text = relevantPassages(text, queryTerms, allowance);
+                tokens = text.isEmpty() ? 0 : tokenCountEstimator.estimate(text);
+                if (text.isEmpty() || tokens > allowance) {
+                    dropped.add(document);
+                    continue;
+                }
+                trimmed++;
+            }
+            remaining -= tokens;
+
+            Map<String, Object> metadata = new HashMap<>(document.getMetadata());
+            metadata.put(CONTEXT_TOKENS_METADATA, tokens);
+            if (trim) {
+                metadata.put(TRIMMED_METADATA, true);
+            }
+            packed.add(Document.builder()
+                    .id(document.getId())
+                    .text(text)
+                    .metadata(metadata)
+                    .score(document.getScore())
+                    .build());
+        }
+
+        int contextTokens = properties.getContextMaxTokens() - remaining;
+        if (query.context().get(RetrievalReport.CONTEXT_KEY) instanceof RetrievalReport report) {
+            report.recordPacking(dropped, contextTokens);
+        }
+        if (trimmed > 0 || !dropped.isEmpty()) {
+            logger.fine("Packed " + packed.size() + " documents into " + contextTokens + " tokens (" + trimmed +
+                    " trimmed, " + dropped.size() + " dropped)");
+        }
+        return packed;
+    }
+
+    /**
+     * Picks the passages with the most distinct query terms (earlier passages win ties) until the
+     * allowance is used up, and returns them in document order. If no passage mentions a query term,
+     * the leading passages are kept, since the chunk matched the query semantically as a whole.
+     */
+    String relevantPassages(String text, Set<String> queryTerms, int allowance) {
+        List<String> passages = new ArrayList<>();
+        for (String paragraph : PARAGRAPH_BREAK.split(text)) {
+            if (paragraph.isBlank()) {
+                continue;
+            }
+            if (tokenCountEstimator.estimate(paragraph) <= allowance) {
+                passages.add(paragraph.strip());
+            } else {
+                for (String sentence : SENTENCE_END.split(paragraph)) {
+                    if (!sentence.isBlank()) {
+                        passages.add(sentence.strip());
+                    }
+                }
+            }
+        }
+
+        int[] relevance = new int[passages.size()];
+        Integer[] order = new Integer[passages.size()];
+        for (int i = 0; i < passages.size(); i++) {
+            Set<String> passageTerms = terms(passages.get(i));
+            passageTerms.retainAll(queryTerms);
+            relevance[i] = passageTerms.size();
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.<Integer>comparingInt(i -> -relevance[i]).thenComparingInt(i -> i));
+
+        boolean anyRelevant = passages.size() > 0 && relevance[order[0]] > 0;
+        BitSet selected = new BitSet(passages.size());
+        int used = 0;
+        for (int i : order) {
+            if (anyRelevant && relevance[i] == 0) {
+                break;
+            }
+            // One token for the separator between passages
+            int tokens = tokenCountEstimator.estimate(passages.get(i)) + 1;
+            if (used + tokens <= allowance) {
+                selected.set(i);
+                used += tokens;
+            }
+        }
+
+        StringJoiner joined = new StringJoiner("\n\n");
+        selected.stream().forEach(i -> joined.add(passages.get(i)));
+        return joined.toString();
+    }
+
+    static Set<String> terms(String text) {
+        Set<String> terms = new HashSet<>();
+        if (text == null) {
+            return terms;
+        }
+        for (String word : NON_WORD.split(text.toLowerCase(Locale.ROOT))) {
+            if (word.length() >= 3 && !STOP_WORDS.contains(word)) {
+                terms.add(word);
+            }
+        }
+        return terms;
+    }
+}
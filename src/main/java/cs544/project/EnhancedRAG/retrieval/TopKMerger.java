@@ -0,0 +1,196 @@
+package cs544.project.EnhancedRAG.retrieval;
+
+import org.springframework.ai.document.Document;
+import org.springframework.ai.document.DocumentMetadata;
+
+import java.util.*;
+
+/**
+ * Merges the per-store hit lists into one global top-K by similarity.
+ * <p>
+ * Consecutive chunks of the same source share their overlap text, so before ranking, hits that are
+ * adjacent chunks ({@code chunk_index} n and n+1) of the same source are collapsed into one document
+ * with the overlap removed. A collapsed document keeps the best score of its parts. The top-K is then
+ * selected with a bounded min-heap, so the cost is O(n log k) no matter how many candidates the
+ * stores return.
+ */
+public final class TopKMerger {
+
+    // The overlap is searched for by its first characters; long enough to rarely match by chance
+    private static final int OVERLAP_PROBE_LENGTH = 32;
+
+    private static final Comparator<Document> BY_SCORE = Comparator.comparingDouble(TopKMerger::score);
+
+    private TopKMerger() {
+    }
+
+    /**
+     * @param candidates       hits of all stores, in any order
+     * @param topK             maximum number of documents returned
+     * @param collapseAdjacent whether adjacent chunks of the same source are collapsed first
+     * @return at most {@code topK} documents, best first
+     */
+    public static List<Document> merge(Collection<Document> candidates, int topK, boolean collapseAdjacent) {
+        if (topK <= 0 || candidates.isEmpty()) {
+            return List.of();
+        }
+        Collection<Document> unique = deduplicate(candidates);
+        if (collapseAdjacent) {
+            unique = collapseAdjacentChunks(unique);
+        }
+
+        PriorityQueue<Document> heap = new PriorityQueue<>(topK + 1, BY_SCORE);
+        for (Document document : unique) {
+            if (heap.size() < topK) {
+                heap.add(document);
+            } else if (score(document) > score(heap.peek())) {
+                heap.poll();
+                heap.add(document);
+            }
+        }
+
+        Document[] ranked = new Document[heap.size()];
+        for (int i = ranked.length - 1; i >= 0; i--) {
+            ranked[i] = heap.poll();
+        }
+        return Arrays.asList(ranked);
+    }
+
+    /**
+     * Similarity of a hit: {@link Document#getScore()}, or the {@code vector_score} metadata written
+     * by {@link RedisKnnSearcher} when no score is set.
+     */
+    public static double score(Document document) {
+        if (document.getScore() != null) {
+            return document.getScore();
+        }
+        Object score = document.getMetadata().get(RedisKnnSearcher.SCORE_FIELD);
+        return score != null ? Double.parseDouble(score.toString()) : 0;
+    }
+
+    private static Collection<Document> deduplicate(Collection<Document> candidates) {
+        Map<String, Document> byId = new LinkedHashMap<>();
+        for (Document document : candidates) {
+            byId.merge(document.getId(), document, (a, b) -> score(b) > score(a) ? b : a);
+        }
+        return byId.values();
+    }
+
+    private static List<Document> collapseAdjacentChunks(Collection<Document> candidates) {
+        List<Document> result = new ArrayList<>(candidates.size());
+        Map<String, List<Document>> chunksBySource = new HashMap<>();
+        for (Document document : candidates) {
+            String key = documentKey(document);
+            if (key == null || chunkIndex(document) < 0) {
+                result.add(document);
+                continue;
+            }
+            chunksBySource.computeIfAbsent(key, k -> new ArrayList<>()).add(document);
+        }
+
+        for (List<Document> chunks : chunksBySource.values()) {
+            if (chunks.size() == 1) {
+                result.add(chunks.get(0));
+                continue;
+            }
+            chunks.sort(Comparator.comparingInt(TopKMerger::chunkIndex));
+            List<Document> run = new ArrayList<>();
+            for (Document chunk : chunks) {
+                if (!run.isEmpty() && chunkIndex(chunk) > chunkIndex(run.get(run.size() - 1)) + 1) {
+                    result.add(collapse(run));
+                    run.clear();
+                }
+                run.add(chunk);
+            }
+            result.add(collapse(run));
+        }
+        return result;
+    }
+
+    /**
+     * Identifies the document a chunk was cut from. {@code source} alone is not enough: all uploads
+     * share {@code source=manual-upload} and are told apart by {@code filename}.
+     */
+    static String documentKey(Document document) {
+        Map<String, Object> metadata = document.getMetadata();
+        Object source = metadata.get("source");
+        Object filename = metadata.get("filename");
+        if (source == null && filename == null) {
+            return null;
+        }
+        return metadata.getOrDefault("document_type", "") + "|" + source + "|" + filename;
+    }
+
+    private static Document collapse(List<Document> run) {
+        if (run.size() == 1) {
+            return run.get(0);
+        }
+        Document first = run.get(0);
+        StringBuilder text = new StringBuilder(first.getText() != null ? first.getText() : "");
+        double best = score(first);
+        int lastIndex = chunkIndex(first);
+        for (Document chunk : run.subList(1, run.size())) {
+            best = Math.max(best, score(chunk));
+            if (chunkIndex(chunk) == lastIndex) {
+                // Same chunk reported twice (e.g. under two IDs); nothing to add
+                continue;
+            }
+            lastIndex = chunkIndex(chunk);
+            String next = chunk.getText() != null ? chunk.getText() : "";
+            int overlap = overlap(text, next);
+            if (overlap == 0 && !text.isEmpty()) {
+                text.append('\n');
+            }
+            text.append(next, overlap, next.length());
+        }
+
+        Document last = run.get(run.size() - 1);
+        Map<String, Object> metadata = new HashMap<>(first.getMetadata());
+        metadata.put("chunk_end_index", lastIndex);
+        if (last.getMetadata().containsKey("page_end")) {
+            metadata.put("page_end", last.getMetadata().get("page_end"));
+        }
+        metadata.put(RedisKnnSearcher.SCORE_FIELD, best);
+        metadata.put(DocumentMetadata.DISTANCE.value(), 1 - best);
+        return Document.builder()
+                .id(first.getId())
+                .text(text.toString())
+                .metadata(metadata)
+                .score(best)
+                .build();
+    }
+
+    /**
+     * Length of the longest suffix of {@code previous} that is a prefix of {@code next}.
+     */
+    static int overlap(CharSequence previous, String next) {
+        int probeLength = Math.min(OVERLAP_PROBE_LENGTH, next.length());
+        if (probeLength == 0) {
+            return 0;
+        }
+        String text = previous.toString();
+        String probe = next.substring(0, probeLength);
+        // The earliest occurrence within reach gives the longest overlap
+        for (int at = text.indexOf(probe, Math.max(0, text.length() - next.length()));
+             at >= 0;
+             at = text.indexOf(probe, at + 1)) {
+            int length = text.length() - at;
+            if (next.regionMatches(0, text, at, length)) {
+                return length;
+            }
+        }
+        return 0;
+    }
+
+    private static int chunkIndex(Document document) {
+        Object index = document.getMetadata().get("chunk_index");
+        if (index == null) {
+            return -1;
+        }
+        try {
+            return index instanceof Number number ? number.intValue() : Integer.parseInt(index.toString());
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package cs544.project.EnhancedRAG.service;
+
+import cs544.project.EnhancedRAG.model.DocumentType;
+
+import java.util.Set;
+
+/**
+ * Published after new content was written to one or more document stores, so that anything
+ * derived from the store contents (cached answers, statistics, ...) can be refreshed.
+ */
+public record DocumentsIngestedEvent(Set<DocumentType> documentTypes) {
+}
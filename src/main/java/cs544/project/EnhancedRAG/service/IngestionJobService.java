@@ -0,0 +1,180 @@
+package cs544.project.EnhancedRAG.service;
+
+import cs544.project.EnhancedRAG.config.IngestionProperties;
+import cs544.project.EnhancedRAG.ingestion.IngestionPipeline;
+import cs544.project.EnhancedRAG.model.IngestionJob;
+import cs544.project.EnhancedRAG.model.IngestionStats;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.logging.Logger;
+
+/**
+ * Runs full ingestions as background jobs so the HTTP request returns immediately with a job ID.
+ * <p>
+ * At most {@code rag.ingestion.max-concurrent-jobs} jobs run at a time on a dedicated pool; the
+ * rest stay queued. Ingestion therefore never holds servlet threads, and its embedding and Redis
+ * load stays bounded by the pipeline settings of the running jobs.
+ */
+@Service
+public class IngestionJobService implements AutoCloseable {
+
+    private static final Logger logger = Logger.getLogger(IngestionJobService.class.getName());
+
+    private final DocumentIngestionService documentIngestionService;
+    private final IngestionProperties properties;
+    private final ExecutorService jobExecutor;
+    private final Map<String, JobState> jobs = new ConcurrentHashMap<>();
+
+    public IngestionJobService(DocumentIngestionService documentIngestionService, IngestionProperties properties) {
+        this.documentIngestionService = documentIngestionService;
+        this.properties = properties;
+        this.jobExecutor = Executors.newFixedThreadPool(Math.max(1, properties.getMaxConcurrentJobs()));
+    }
+
+    public IngestionJob submit() {
+        pruneFinishedJobs();
+        
+        JobState state = new JobState(UUID.randomUUID().toString());
+        // The future is set before the job becomes visible, so a cancel right after submission finds it
+        state.future = jobExecutor.submit(() -> runJob(state));
+        jobs.put(state.jobId, state);
+        
+        logger.info("Submitted ingestion job " + state.jobId);
+        return state.toJob();
+    }
+
+    public Optional<IngestionJob> getJob(String jobId) {
+        return Optional.ofNullable(jobs.get(jobId)).map(JobState::toJob);
+    }
+
+    public List<IngestionJob> getJobs() {
+        return jobs.values().stream()
+                .sorted(Comparator.comparingLong((JobState state) -> state.submittedAt).reversed())
+                .map(JobState::toJob)
+                .toList();
+    }
+
+    /**
+     * Cancels a queued job right away; a running job stops after its in-flight embedding and store
+     * calls. Returns the job as it is after the request, or empty for an unknown ID.
+     */
+    public Optional<IngestionJob> cancel(String jobId) {
+        JobState state = jobs.get(jobId);
+        if (state == null) {
+            return Optional.empty();
+        }
+        
+        synchronized (state) {
+            state.cancelRequested = true;
+            if (state.status == IngestionJob.Status.QUEUED) {
+                state.future.cancel(false);
+                state.finish(IngestionJob.Status.CANCELLED, "Cancelled before it started");
+            } else if (state.run != null) {
+                state.run.cancel();
+            }
+        }
+        logger.info("Cancellation requested for ingestion job " + jobId);
+        return Optional.of(state.toJob());
+    }
+
+    private void runJob(JobState state) {
+        synchronized (state) {
+            if (state.cancelRequested) {
+                return;
+            }
+            state.run = documentIngestionService.newIngestionRun();
+            state.status = IngestionJob.Status.RUNNING;
+            state.startedAt = System.currentTimeMillis();
+        }
+        
+        try {
+            IngestionStats stats = documentIngestionService.ingestAllDocuments(state.run);
+            if (stats.isCancelled()) {
+                state.finish(IngestionJob.Status.CANCELLED, "Cancelled while running");
+            } else {
+                state.finish(IngestionJob.Status.COMPLETED, "All documents have been ingested into their respective vector stores");
+            }
+        } catch (Exception e) {
+            logger.severe("Ingestion job " + state.jobId + " failed: " + e.getMessage());
+            state.finish(IngestionJob.Status.FAILED, "Failed to ingest documents: " + e.getMessage());
+        }
+    }
+
+    private void pruneFinishedJobs() {
+        List<JobState> finished = jobs.values().stream()
+                .filter(state -> state.finishedAt != 0)
+                .sorted(Comparator.comparingLong(state -> state.finishedAt))
+                .toList();
+        for (int i = 0; i < finished.size() - properties.getRetainedJobs(); i++) {
+            jobs.remove(finished.get(i).jobId);
+        }
+    }
+
+    @Override
+    public void close() {
+        jobs.values().forEach(state -> {
+            if (state.run != null) {
+                state.run.cancel();
+            }
+        });
+        jobExecutor.shutdownNow();
+    }
+
+    private static class JobState {
+
+        private final String jobId;
+        private final long submittedAt = System.currentTimeMillis();
+        private volatile IngestionJob.Status status = IngestionJob.Status.QUEUED;
+        private volatile long startedAt;
+        private volatile long finishedAt;
+        private volatile String message = "Waiting for a free ingestion slot";
+        private volatile boolean cancelRequested;
+        private volatile IngestionPipeline.Run run;
+        private volatile Future<?> future;
+
+        JobState(String jobId) {
+            this.jobId = jobId;
+        }
+
+        synchronized void finish(IngestionJob.Status finalStatus, String finalMessage) {
+            status = finalStatus;
+            message = finalMessage;
+            finishedAt = System.currentTimeMillis();
+        }
+
+        IngestionJob toJob() {
+            IngestionJob job = new IngestionJob(jobId, status);
+            job.setSubmittedAt(submittedAt);
+            job.setStartedAt(startedAt);
+            job.setFinishedAt(finishedAt);
+            job.setMessage(cancelRequested && finishedAt == 0 ? "Cancelling" : message);
+            
+            IngestionPipeline.Run currentRun = run;
+            if (currentRun == null) {
+                return job;
+            }
+            
+            IngestionStats stats = currentRun.stats();
+            long filesCompleted = stats.getFilesIngested() + stats.getFilesUnchanged() + stats.getFilesFailed();
+            job.setStats(stats);
+            job.setFilesDiscovered(stats.getFilesDiscovered());
+            job.setFilesCompleted(filesCompleted);
+            job.setChunksStored(stats.getChunksStored().values().stream().mapToLong(Long::longValue).sum());
+            job.setEmbeddingsComputed(stats.getEmbeddingCacheMisses());
+            
+            double elapsedSeconds = stats.getDurationMillis() / 1000.0;
+            double filesPerSecond = elapsedSeconds > 0 ? filesCompleted / elapsedSeconds : 0.0;
+            job.setFilesPerSecond(filesPerSecond);
+            if (status == IngestionJob.Status.RUNNING && filesPerSecond > 0) {
+                long remaining = Math.max(0, stats.getFilesDiscovered() - filesCompleted);
+                job.setEtaSeconds(Math.round(remaining / filesPerSecond));
+            }
+            return job;
+        }
+    }
+}
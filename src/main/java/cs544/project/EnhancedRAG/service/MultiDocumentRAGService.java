@@ -1,20 +1,31 @@
 package cs544.project.EnhancedRAG.service;
 
+import cs544.project.EnhancedRAG.embedding.QueryEmbeddingCache;
+import cs544.project.EnhancedRAG.embedding.QueryEmbeddingService;
+import cs544.project.EnhancedRAG.ingestion.StoreStatistics;
 import cs544.project.EnhancedRAG.model.DocumentSource;
 import cs544.project.EnhancedRAG.model.DocumentType;
+import cs544.project.EnhancedRAG.model.EmbeddingStats;
 import cs544.project.EnhancedRAG.model.MultiDocumentResponse;
 import cs544.project.EnhancedRAG.model.StoreStatus;
+import cs544.project.EnhancedRAG.retrieval.MultiStoreDocumentRetriever;
+import cs544.project.EnhancedRAG.retrieval.RetrievalReport;
+import cs544.project.EnhancedRAG.retrieval.TopKMerger;
 import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.chat.client.ChatClientResponse;
 import org.springframework.ai.chat.client.advisor.api.Advisor;
+import org.springframework.ai.chat.model.ChatResponse;
 import org.springframework.ai.document.Document;
-import org.springframework.ai.rag.Query;
-import org.springframework.ai.rag.retrieval.search.DocumentRetriever;
+import org.springframework.ai.rag.advisor.RetrievalAugmentationAdvisor;
 import org.springframework.ai.vectorstore.VectorStore;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.stereotype.Service;
-import redis.clients.jedis.JedisPooled;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
 import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Logger;
 
 @Service
@@ -26,34 +37,70 @@ public class MultiDocumentRAGService {
     private final Advisor multiDocumentRetrievalAdvisor;
     private final Map<DocumentType, VectorStore> vectorStores;
     private final RedisTemplate<String, Object> redisTemplate;
-    private final JedisPooled jedisPooled;
-    private final DocumentRetriever multiStoreDocumentRetriever;
+    private final StoreStatistics storeStatistics;
+    private final QueryEmbeddingService queryEmbeddingService;
+    private final SemanticAnswerCache semanticAnswerCache;
+    private final AtomicLong queriesProcessed = new AtomicLong();
+    
+    private static final String SOURCES_EVENT = "sources";
+    private static final String TOKEN_EVENT = "token";
+    private static final String DONE_EVENT = "done";
+    private static final String ERROR_EVENT = "error";
 
     public MultiDocumentRAGService(ChatClient chatClient, 
                                  Advisor multiDocumentRetrievalAdvisor,
                                  Map<DocumentType, VectorStore> vectorStores,
                                  RedisTemplate<String, Object> redisTemplate,
-                                 JedisPooled jedisPooled,
-                                 DocumentRetriever multiStoreDocumentRetriever) {
+                                 StoreStatistics storeStatistics,
+                                 QueryEmbeddingService queryEmbeddingService,
+                                 SemanticAnswerCache semanticAnswerCache) {
         this.chatClient = chatClient;
         this.multiDocumentRetrievalAdvisor = multiDocumentRetrievalAdvisor;
         this.vectorStores = vectorStores;
         this.redisTemplate = redisTemplate;
-        this.jedisPooled = jedisPooled;
-        this.multiStoreDocumentRetriever = multiStoreDocumentRetriever;
+        this.storeStatistics = storeStatistics;
+        this.queryEmbeddingService = queryEmbeddingService;
+        this.semanticAnswerCache = semanticAnswerCache;
     }
 
     public MultiDocumentResponse queryMultipleStores(String question) {
+        return queryMultipleStores(question, null);
+    }
+
+    /**
+     * @param efRuntime HNSW search breadth for this question, or {@code null} for the index settings.
+     *                  An explicit value bypasses the answer cache, so the answer reflects that breadth.
+     */
+    public MultiDocumentResponse queryMultipleStores(String question, Integer efRuntime) {
         logger.info("Processing multi-document query: " + question);
+        queriesProcessed.incrementAndGet();
         
         try {
-            // Simply use the RetrievalAugmentationAdvisor - it handles everything
-            String answer = chatClient.prompt()
+            float[] questionVector = embedQuestion(question);
+            if (questionVector != null && efRuntime == null) {
+                Optional<MultiDocumentResponse> cachedResponse = semanticAnswerCache.lookup(questionVector);
+                if (cachedResponse.isPresent()) {
+                    MultiDocumentResponse response = cachedResponse.get();
+                    response.setCached(true);
+                    return response;
+                }
+            }
+            
+            // Taken before retrieval, so an ingestion finishing meanwhile keeps this answer out of the cache
+            long cacheGeneration = semanticAnswerCache.generation();
+            
+            // The retriever reports timed-out/failed stores through this holder in the advisor context
+            RetrievalReport retrievalReport = new RetrievalReport();
+            
+            ChatClientResponse chatClientResponse = chatClient.prompt()
                     .user(question)
-                    .advisors(multiDocumentRetrievalAdvisor)
+                    .advisors(advisor -> advisor
+                            .advisors(multiDocumentRetrievalAdvisor)
+                            .params(advisorParams(retrievalReport, questionVector, efRuntime)))
                     .call()
-                    .content();
+                    .chatClientResponse();
             
+            String answer = extractAnswer(chatClientResponse);
             if (answer == null || answer.trim().isEmpty()) {
                 return new MultiDocumentResponse(
                     "I couldn't find relevant information to answer your question.",
@@ -63,35 +110,14 @@ public class MultiDocumentRAGService {
                 );
             }
             
-            // For source tracking, manually retrieve documents to show what was used
-            Query query = new Query(question);
-            List<Document> retrievedDocuments = multiStoreDocumentRetriever.retrieve(query);
-            
-            List<DocumentSource> allSources = new ArrayList<>();
-            Map<String, Integer> sourceBreakdown = new HashMap<>();
+            // Sources are exactly the documents the advisor placed into the prompt
+            MultiDocumentResponse response = buildResponse(answer, getRetrievedDocuments(chatClientResponse), retrievalReport);
+            logger.info("Generated response with " + response.getSources().size() + " sources");
             
-            for (int i = 0; i < retrievedDocuments.size(); i++) {
-                Document doc = retrievedDocuments.get(i);
-                
-                String sourceName = doc.getMetadata().getOrDefault("source", "document-" + i).toString();
-                String sourceType = determineSourceType(sourceName);
-                String content = doc.getText();
-                String excerpt = content.length() > 300 ? content.substring(0, 300) + "..." : content;
-                
-                DocumentSource source = new DocumentSource(
-                    sourceName,
-                    excerpt,
-                    0.8,
-                    sourceType,
-                    "Retrieved from " + sourceType
-                );
-                
-                allSources.add(source);
-                sourceBreakdown.merge(sourceType, 1, Integer::sum);
+            if (efRuntime == null) {
+                cacheIfComplete(question, questionVector, response, cacheGeneration);
             }
-            
-            logger.info("Generated response with " + allSources.size() + " sources");
-            return new MultiDocumentResponse(answer, allSources, sourceBreakdown, 0.8);
+            return response;
             
         } catch (Exception e) {
             logger.severe("Error processing multi-document query: " + e.getMessage());
@@ -104,32 +130,199 @@ public class MultiDocumentRAGService {
         }
     }
 
+    /**
+     * Streams the answer as server-sent events: one {@code sources} event as soon as the prompt
+     * context is known, then {@code token} events as the chat model produces them, and finally a
+     * {@code done} event (or an {@code error} event if the chat call fails).
+     */
+    public Flux<ServerSentEvent<Object>> streamMultipleStores(String question) {
+        return streamMultipleStores(question, null);
+    }
+
+    /**
+     * @param efRuntime as for {@link #queryMultipleStores(String, Integer)}
+     */
+    public Flux<ServerSentEvent<Object>> streamMultipleStores(String question, Integer efRuntime) {
+        logger.info("Processing streaming multi-document query: " + question);
+        queriesProcessed.incrementAndGet();
+        
+        float[] questionVector = embedQuestion(question);
+        if (questionVector != null && efRuntime == null) {
+            Optional<MultiDocumentResponse> cachedResponse = semanticAnswerCache.lookup(questionVector);
+            if (cachedResponse.isPresent()) {
+                MultiDocumentResponse response = cachedResponse.get();
+                response.setCached(true);
+                return Flux.just(
+                        sourcesEvent(response),
+                        ServerSentEvent.builder((Object) response.getAnswer()).event(TOKEN_EVENT).build(),
+                        ServerSentEvent.builder((Object) response).event(DONE_EVENT).build());
+            }
+        }
+        
+        long cacheGeneration = semanticAnswerCache.generation();
+        RetrievalReport retrievalReport = new RetrievalReport();
+        StringBuilder answer = new StringBuilder();
+        
+        // Shared so the sources event and the token gate below wait on the same completion
+        Mono<MultiDocumentResponse> sources = Mono.fromFuture(retrievalReport.getPromptDocuments())
+                .map(documents -> buildResponse("", documents, retrievalReport))
+                .cache();
+        
+        Flux<ServerSentEvent<Object>> tokens = chatClient.prompt()
+                .user(question)
+                .advisors(advisor -> advisor
+                        .advisors(multiDocumentRetrievalAdvisor)
+                        .params(advisorParams(retrievalReport, questionVector, efRuntime)))
+                .stream()
+                .chatClientResponse()
+                .mapNotNull(this::extractAnswer)
+                .filter(token -> !token.isEmpty())
+                // The sources event must reach the client before the first token
+                .delayUntil(token -> sources)
+                .doOnNext(answer::append)
+                .map(token -> ServerSentEvent.builder((Object) token).event(TOKEN_EVENT).build());
+        
+        Mono<ServerSentEvent<Object>> done = sources.map(response -> {
+            response.setAnswer(answer.toString());
+            logger.info("Streamed response with " + response.getSources().size() + " sources");
+            if (efRuntime == null) {
+                cacheIfComplete(question, questionVector, response, cacheGeneration);
+            }
+            return ServerSentEvent.builder((Object) response).event(DONE_EVENT).build();
+        });
+        
+        return Flux.merge(sources.map(this::sourcesEvent), tokens)
+                .concatWith(done)
+                .onErrorResume(e -> {
+                    logger.severe("Error streaming multi-document query: " + e.getMessage());
+                    return Flux.just(ServerSentEvent.builder((Object) 
+                            ("An error occurred while processing your question: " + e.getMessage()))
+                            .event(ERROR_EVENT)
+                            .build());
+                })
+                // Releases the sources gate if the call failed before the prompt was augmented
+                .doFinally(signal -> retrievalReport.recordPromptDocuments(List.of()));
+    }
+
+    private ServerSentEvent<Object> sourcesEvent(MultiDocumentResponse response) {
+        Map<String, Object> sources = new HashMap<>();
+        sources.put("sources", response.getSources());
+        sources.put("sourceBreakdown", response.getSourceBreakdown());
+        sources.put("timedOutStores", response.getTimedOutStores());
+        sources.put("failedStores", response.getFailedStores());
+        sources.put("cached", response.isCached());
+        return ServerSentEvent.builder((Object) sources).event(SOURCES_EVENT).build();
+    }
+
+    private Map<String, Object> advisorParams(RetrievalReport retrievalReport, float[] questionVector, Integer efRuntime) {
+        Map<String, Object> advisorParams = new HashMap<>();
+        advisorParams.put(RetrievalReport.CONTEXT_KEY, retrievalReport);
+        if (questionVector != null) {
+            advisorParams.put(MultiStoreDocumentRetriever.QUERY_VECTOR_KEY, questionVector);
+        }
+        if (efRuntime != null) {
+            advisorParams.put(MultiStoreDocumentRetriever.EF_RUNTIME_KEY, efRuntime);
+        }
+        return advisorParams;
+    }
+
+    private MultiDocumentResponse buildResponse(String answer, List<Document> documents, RetrievalReport retrievalReport) {
+        List<DocumentSource> allSources = new ArrayList<>();
+        Map<String, Integer> sourceBreakdown = new HashMap<>();
+        
+        for (int i = 0; i < documents.size(); i++) {
+            DocumentSource source = toDocumentSource(documents.get(i), i);
+            allSources.add(source);
+            sourceBreakdown.merge(source.getType(), 1, Integer::sum);
+        }
+        
+        // Overall confidence is the mean similarity of the documents the answer is based on
+        double totalConfidence = allSources.stream().mapToDouble(DocumentSource::getConfidence).average().orElse(0);
+        MultiDocumentResponse response = new MultiDocumentResponse(answer, allSources, sourceBreakdown, totalConfidence);
+        response.setSearchedStores(retrievalReport.getSearchedStores());
+        response.setTimedOutStores(retrievalReport.getTimedOutStores());
+        response.setFailedStores(retrievalReport.getFailedStores());
+        List<Document> dropped = retrievalReport.getDroppedDocuments();
+        List<DocumentSource> droppedSources = new ArrayList<>();
+        for (int i = 0; i < dropped.size(); i++) {
+            droppedSources.add(toDocumentSource(dropped.get(i), documents.size() + i));
+        }
+        response.setDroppedSources(droppedSources);
+        response.setContextTokens(retrievalReport.getContextTokens());
+        return response;
+    }
+
+    private void cacheIfComplete(String question, float[] questionVector, MultiDocumentResponse response,
+                                 long cacheGeneration) {
+        // Partial answers are not cached; the next attempt may reach all stores
+        if (questionVector != null && response.getTimedOutStores().isEmpty() && response.getFailedStores().isEmpty()
+                && response.getAnswer() != null && !response.getAnswer().isBlank()) {
+            semanticAnswerCache.store(question, questionVector, response, cacheGeneration);
+        }
+    }
+
+    private float[] embedQuestion(String question) {
+        try {
+            return queryEmbeddingService.embed(question);
+        } catch (Exception e) {
+            // Retrieval will try again and report the affected stores
+            logger.warning("Failed to embed question: " + e.getMessage());
+            return null;
+        }
+    }
+
+    private String extractAnswer(ChatClientResponse chatClientResponse) {
+        ChatResponse chatResponse = chatClientResponse.chatResponse();
+        if (chatResponse == null || chatResponse.getResult() == null) {
+            return null;
+        }
+        return chatResponse.getResult().getOutput().getText();
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Document> getRetrievedDocuments(ChatClientResponse chatClientResponse) {
+        Object documents = chatClientResponse.context().get(RetrievalAugmentationAdvisor.DOCUMENT_CONTEXT);
+        return documents instanceof List<?> ? (List<Document>) documents : List.of();
+    }
+
+    private DocumentSource toDocumentSource(Document doc, int position) {
+        String sourceName = doc.getMetadata().getOrDefault("source", "document-" + position).toString();
+        String documentName = doc.getMetadata().getOrDefault("filename", sourceName).toString();
+        String sourceType = determineSourceType(sourceName);
+        String content = doc.getText();
+        String excerpt = content.length() > 300 ? content.substring(0, 300) + "..." : content;
+        
+        return new DocumentSource(
+            sourceType,
+            excerpt,
+            TopKMerger.score(doc),
+            documentName,
+            "Retrieved from " + sourceType
+        );
+    }
+
+    /**
+     * Store counts come from {@link StoreStatistics}, which keeps them in memory, so polling this
+     * costs a single cheap Redis round trip for the connection check.
+     */
     public StoreStatus getStoreStatus() {
         Map<DocumentType, Integer> documentCounts = new HashMap<>();
+        Map<DocumentType, Long> sourceCounts = new HashMap<>();
         Map<DocumentType, Boolean> storeHealth = new HashMap<>();
         
         for (DocumentType type : DocumentType.values()) {
-            try {
-                VectorStore store = vectorStores.get(type);
-                if (store != null) {
-                    // For demo purposes, we'll estimate document counts
-                    // In a real implementation, you'd query the actual store
-                    documentCounts.put(type, getEstimatedDocumentCount(type));
-                    storeHealth.put(type, true);
-                } else {
-                    documentCounts.put(type, 0);
-                    storeHealth.put(type, false);
-                }
-            } catch (Exception e) {
-                logger.warning("Health check failed for " + type + " store: " + e.getMessage());
-                documentCounts.put(type, 0);
-                storeHealth.put(type, false);
-            }
+            boolean available = vectorStores.get(type) != null;
+            documentCounts.put(type, available ? (int) storeStatistics.getChunkCount(type) : 0);
+            sourceCounts.put(type, available ? storeStatistics.getSourceCount(type) : 0L);
+            storeHealth.put(type, available);
         }
         
         String redisStatus = checkRedisConnection();
         
-        return new StoreStatus(documentCounts, storeHealth, redisStatus);
+        StoreStatus status = new StoreStatus(documentCounts, storeHealth, redisStatus);
+        status.setSourceCounts(sourceCounts);
+        status.setStatsReconciledAt(storeStatistics.getReconciledAt());
+        return status;
     }
 
     private String checkRedisConnection() {
@@ -141,42 +334,16 @@ public class MultiDocumentRAGService {
         }
     }
 
-    private int getEstimatedDocumentCount(DocumentType type) {
-        try {
-            // Query Redis directly using FT.INFO command to get real document counts
-            Object result = jedisPooled.sendCommand(
-                redis.clients.jedis.Protocol.Command.valueOf("FT.INFO"),
-                type.getIndexName()
-            );
-            
-            if (result instanceof List<?>) {
-                List<?> infoList = (List<?>) result;
-                // Parse the FT.INFO response to extract document count
-                // The response format typically includes "num_docs" field
-                for (int i = 0; i < infoList.size() - 1; i++) {
-                    if ("num_docs".equals(String.valueOf(infoList.get(i)))) {
-                        return Integer.parseInt(String.valueOf(infoList.get(i + 1)));
-                    }
-                }
-            }
-            
-            logger.warning("Could not parse document count from FT.INFO response for " + type);
-            return 0;
-            
-        } catch (Exception e) {
-            // Fall back to counting keys with the document prefix
-            try {
-                Set<String> keys = jedisPooled.keys(type.getPrefix() + "*");
-                int count = keys != null ? keys.size() : 0;
-                logger.info("Retrieved embedding count for " + type + " using key pattern: " + count);
-                return count;
-            } catch (Exception fallbackException) {
-                logger.warning("Failed to get document count for " + type + 
-                             ". FT.INFO error: " + e.getMessage() + 
-                             ", Keys fallback error: " + fallbackException.getMessage());
-                return 0;
-            }
+    public EmbeddingStats getEmbeddingStats() {
+        EmbeddingStats stats = new EmbeddingStats(queriesProcessed.get(), queryEmbeddingService.getEmbeddingCalls());
+        QueryEmbeddingCache cache = queryEmbeddingService.getCache();
+        if (cache != null) {
+            stats.setCacheHits(cache.getHits());
+            stats.setCacheMisses(cache.getMisses());
+            stats.setCacheEvictions(cache.getEvictions());
+            stats.setCacheSize(cache.size());
         }
+        return stats;
     }
 
     public List<String> getDemoQueries() {
@@ -199,7 +366,7 @@ public class MultiDocumentRAGService {
     /**
      * Determines the document source type based on the source name/path
      */
-    private String determineSourceType(String sourceName) {
+    static String determineSourceType(String sourceName) {
         if (sourceName == null) {
             return "unknown";
         }
@@ -0,0 +1,218 @@
+package cs544.project.EnhancedRAG.service;
+
+import cs544.project.EnhancedRAG.config.CacheProperties;
+import cs544.project.EnhancedRAG.model.MultiDocumentResponse;
+import cs544.project.EnhancedRAG.retrieval.RedisKnnSearcher;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import redis.clients.jedis.JedisPooled;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.Response;
+import redis.clients.jedis.search.FTCreateParams;
+import redis.clients.jedis.search.IndexDataType;
+import redis.clients.jedis.search.Query;
+import redis.clients.jedis.search.RediSearchUtil;
+import redis.clients.jedis.search.SearchResult;
+import redis.clients.jedis.search.schemafields.TextField;
+import redis.clients.jedis.search.schemafields.VectorField;
+import redis.clients.jedis.util.SafeEncoder;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+/**
+ * Caches complete answers in a dedicated Redis vector index, keyed by the question embedding.
+ * A new question whose embedding is close enough to an already answered one gets the stored
+ * response back without another chat model call.
+ * <p>
+ * Entries expire after the configured TTL and the whole index is dropped whenever documents are
+ * ingested, because answers computed against the old store contents may no longer be accurate.
+ * <p>
+ * A query still running during ingestion would store its answer after the drop. So every
+ * invalidation first bumps a generation counter in Redis. Callers take the {@link #generation()}
+ * before retrieving, and {@link #store} refuses answers of an older generation. Entries carry the
+ * generation they were stored under, and lookups ignore any that are not current, which covers an
+ * invalidation between that check and the write.
+ */
+@Service
+public class SemanticAnswerCache {
+
+    private static final Logger logger = Logger.getLogger(SemanticAnswerCache.class.getName());
+
+    private static final String QUESTION_FIELD = "question";
+    private static final String EMBEDDING_FIELD = "embedding";
+    private static final String RESPONSE_FIELD = "response";
+    private static final String SCORE_FIELD = "vector_score";
+    private static final String GENERATION_FIELD = "generation";
+
+    private final JedisPooled jedisPooled;
+    private final CacheProperties.Answer settings;
+    private final ObjectMapper objectMapper;
+
+    private volatile boolean indexReady;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    public SemanticAnswerCache(JedisPooled jedisPooled, CacheProperties cacheProperties) {
+        this.jedisPooled = jedisPooled;
+        this.settings = cacheProperties.getAnswer();
+        this.objectMapper = new ObjectMapper();
+    }
+
+    public Optional<MultiDocumentResponse> lookup(float[] questionVector) {
+        if (!settings.isEnabled()) {
+            return Optional.empty();
+        }
+
+        try {
+            ensureIndex(questionVector.length);
+
+            Query query = new Query("*=>[KNN 1 @" + EMBEDDING_FIELD + " $BLOB AS " + SCORE_FIELD + "]")
+                    .addParam("BLOB", RediSearchUtil.toByteArray(questionVector))
+                    .returnFields(QUESTION_FIELD, RESPONSE_FIELD, SCORE_FIELD, GENERATION_FIELD)
+                    .setSortBy(SCORE_FIELD, true)
+                    .limit(0, 1)
+                    .dialect(2);
+
+            // The current generation and the nearest cached question in one round trip
+            Response<String> currentGeneration;
+            Response<SearchResult> result;
+            try (Pipeline pipeline = jedisPooled.pipelined()) {
+                currentGeneration = pipeline.get(generationKey());
+                result = pipeline.ftSearch(settings.getIndexName(), query);
+                pipeline.sync();
+            }
+            String generation = Objects.requireNonNullElse(currentGeneration.get(), "0");
+
+            for (redis.clients.jedis.search.Document hit : result.get().getDocuments()) {
+                double similarity = RedisKnnSearcher.similarity(Double.parseDouble(hit.getString(SCORE_FIELD)));
+                if (similarity >= settings.getSimilarityThreshold() && generation.equals(hit.getString(GENERATION_FIELD))) {
+                    hits.incrementAndGet();
+                    logger.info("Answer cache hit (similarity " + String.format("%.4f", similarity) +
+                            ") for cached question: " + hit.getString(QUESTION_FIELD));
+                    return Optional.of(objectMapper.readValue(hit.getString(RESPONSE_FIELD),
+                            MultiDocumentResponse.class));
+                }
+            }
+        } catch (Exception e) {
+            logger.warning("Answer cache lookup failed: " + e.getMessage());
+        }
+
+        misses.incrementAndGet();
+        return Optional.empty();
+    }
+
+    /**
+     * The current ingestion generation, to be taken before retrieval and passed to {@link #store};
+     * -1 if it cannot be read, in which case nothing is stored.
+     */
+    public long generation() {
+        if (!settings.isEnabled()) {
+            return 0;
+        }
+        try {
+            String generation = jedisPooled.get(generationKey());
+            return generation == null ? 0 : Long.parseLong(generation);
+        } catch (Exception e) {
+            logger.warning("Failed to read answer cache generation: " + e.getMessage());
+            return -1;
+        }
+    }
+
+    /**
+     * @param generation the {@link #generation()} taken before the answer's documents were retrieved
+     */
+    public void store(String question, float[] questionVector, MultiDocumentResponse response, long generation) {
+        if (!settings.isEnabled() || generation < 0) {
+            return;
+        }
+
+        try {
+            if (generation != generation()) {
+                logger.fine("Not caching answer retrieved before the last ingestion: " + question);
+                return;
+            }
+            ensureIndex(questionVector.length);
+
+            byte[] key = SafeEncoder.encode(settings.getPrefix() + UUID.randomUUID());
+            Map<byte[], byte[]> fields = new HashMap<>();
+            fields.put(SafeEncoder.encode(QUESTION_FIELD), SafeEncoder.encode(question));
+            fields.put(SafeEncoder.encode(EMBEDDING_FIELD), RediSearchUtil.toByteArray(questionVector));
+            fields.put(SafeEncoder.encode(RESPONSE_FIELD), objectMapper.writeValueAsBytes(response));
+            fields.put(SafeEncoder.encode(GENERATION_FIELD), SafeEncoder.encode(Long.toString(generation)));
+
+            jedisPooled.hset(key, fields);
+            // Milliseconds, so a sub-second TTL does not become 0 and drop the entry at once
+            jedisPooled.pexpire(key, settings.getTtl().toMillis());
+        } catch (Exception e) {
+            logger.warning("Failed to cache answer: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Drops every cached answer. The index is recreated lazily on the next lookup or store.
+     */
+    public void invalidateAll() {
+        try {
+            // Before the drop, so answers retrieved until now are refused or ignored from here on
+            jedisPooled.incr(generationKey());
+            if (jedisPooled.ftList().contains(settings.getIndexName())) {
+                jedisPooled.ftDropIndexDD(settings.getIndexName());
+                logger.info("Answer cache invalidated");
+            }
+        } catch (Exception e) {
+            logger.warning("Failed to invalidate answer cache: " + e.getMessage());
+        } finally {
+            indexReady = false;
+        }
+    }
+
+    @EventListener
+    public void onDocumentsIngested(DocumentsIngestedEvent event) {
+        invalidateAll();
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    private String generationKey() {
+        // Outside the entry prefix, so neither the index nor its DD drop touches it
+        return settings.getIndexName() + ":generation";
+    }
+
+    private void ensureIndex(int dimensions) {
+        if (indexReady) {
+            return;
+        }
+        synchronized (this) {
+            if (indexReady) {
+                return;
+            }
+            if (!jedisPooled.ftList().contains(settings.getIndexName())) {
+                Map<String, Object> vectorAttributes = new HashMap<>();
+                vectorAttributes.put("TYPE", "FLOAT32");
+                vectorAttributes.put("DIM", dimensions);
+                vectorAttributes.put("DISTANCE_METRIC", "COSINE");
+
+                jedisPooled.ftCreate(settings.getIndexName(),
+                        FTCreateParams.createParams().on(IndexDataType.HASH).addPrefix(settings.getPrefix()),
+                        List.of(TextField.of(QUESTION_FIELD),
+                                VectorField.builder()
+                                        .fieldName(EMBEDDING_FIELD)
+                                        .algorithm(VectorField.VectorAlgorithm.FLAT)
+                                        .attributes(vectorAttributes)
+                                        .build()));
+                logger.info("Created answer cache index " + settings.getIndexName());
+            }
+            indexReady = true;
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package cs544.project.EnhancedRAG.embedding;
+
+import cs544.project.EnhancedRAG.ingestion.ContentHashes;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class DiskEmbeddingCacheTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void vectorsSurviveReopening() throws IOException {
+        Path file = directory.resolve("model.vec");
+        try (DiskEmbeddingCache cache = new DiskEmbeddingCache(file)) {
+            cache.put(ContentHashes.sha256("first"), new float[] {0.1f, 0.2f, 0.3f});
+            cache.put(ContentHashes.sha256("second"), new float[] {1f, 2f, 3f});
+        }
+
+        try (DiskEmbeddingCache cache = new DiskEmbeddingCache(file)) {
+            assertThat(cache.size()).isEqualTo(2);
+            assertThat(cache.get(ContentHashes.sha256("first"))).containsExactly(0.1f, 0.2f, 0.3f);
+            assertThat(cache.get(ContentHashes.sha256("second"))).containsExactly(1f, 2f, 3f);
+            assertThat(cache.get(ContentHashes.sha256("missing"))).isNull();
+            assertThat(cache.getHits()).isEqualTo(2);
+            assertThat(cache.getMisses()).isEqualTo(1);
+        }
+    }
+
+    @Test
+    void growingBeyondTheInitialMappingKeepsEarlierVectors() throws IOException {
+        try (DiskEmbeddingCache cache = new DiskEmbeddingCache(directory.resolve("model.vec"))) {
+            for (int i = 0; i < 5000; i++) {
+                cache.put(ContentHashes.sha256("text " + i), new float[] {i, i + 0.5f});
+            }
+            assertThat(cache.get(ContentHashes.sha256("text 0"))).containsExactly(0f, 0.5f);
+            assertThat(cache.get(ContentHashes.sha256("text 4999"))).containsExactly(4999f, 4999.5f);
+        }
+    }
+
+    @Test
+    void truncatedFileKeepsItsCompleteRecords() throws IOException {
+        Path file = directory.resolve("model.vec");
+        try (DiskEmbeddingCache cache = new DiskEmbeddingCache(file)) {
+            cache.put(ContentHashes.sha256("first"), new float[] {1f, 2f});
+            cache.put(ContentHashes.sha256("second"), new float[] {3f, 4f});
+        }
+        // Header (16) + one record (32 + 2 * 4) + half of the second
+        try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw")) {
+            raf.setLength(16 + 40 + 20);
+        }
+
+        try (DiskEmbeddingCache cache = new DiskEmbeddingCache(file)) {
+            assertThat(cache.size()).isEqualTo(1);
+            assertThat(cache.get(ContentHashes.sha256("first"))).containsExactly(1f, 2f);
+        }
+    }
+
+    @Test
+    void foreignOrCorruptFilesAreRejected() throws IOException {
+        Path foreign = directory.resolve("foreign.vec");
+        Files.write(foreign, new byte[64]);
+        assertThatThrownBy(() -> new DiskEmbeddingCache(foreign)).isInstanceOf(IOException.class);
+
+        Path corrupt = directory.resolve("corrupt.vec");
+        try (DiskEmbeddingCache cache = new DiskEmbeddingCache(corrupt)) {
+            cache.put(ContentHashes.sha256("first"), new float[] {1f});
+        }
+        try (RandomAccessFile raf = new RandomAccessFile(corrupt.toFile(), "rw")) {
+            raf.seek(4);
+            raf.writeInt(-1);
+        }
+        assertThatThrownBy(() -> new DiskEmbeddingCache(corrupt)).isInstanceOf(IOException.class);
+    }
+}
@@ -0,0 +1,40 @@
+package cs544.project.EnhancedRAG.ingestion;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CharacterChunkingStrategyTest {
+
+    private final CharacterChunkingStrategy strategy = new CharacterChunkingStrategy();
+
+    @Test
+    void shortTextWaitsUntilItIsComplete() {
+        assertThat(strategy.chunkEnd("short text", 0, false)).isEqualTo(-1);
+        assertThat(strategy.chunkEnd("short text", 0, true)).isEqualTo(10);
+    }
+
+    @Test
+    void longTextBreaksAfterTheLastSpaceOfTheWindow() {
+        // 6000 is not a multiple of the 7-character unit, so the window ends inside a word
+        String text = "abcdef ".repeat(1500);
+
+        int end = strategy.chunkEnd(text, 0, false);
+
+        assertThat(end).isEqualTo(5999);
+        assertThat(text.charAt(end - 1)).isEqualTo(' ');
+    }
+
+    @Test
+    void textWithoutBreaksIsCutAtTheMaximum() {
+        assertThat(strategy.chunkEnd("x".repeat(7000), 0, true)).isEqualTo(6000);
+    }
+
+    @Test
+    void nextChunkOverlapsThePreviousOne() {
+        String text = "x".repeat(7000);
+
+        assertThat(strategy.nextStart(text, 0, 6000)).isEqualTo(5800);
+        assertThat(strategy.nextStart(text, 0, 100)).isEqualTo(1);
+    }
+}
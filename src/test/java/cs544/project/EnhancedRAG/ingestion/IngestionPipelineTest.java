@@ -0,0 +1,351 @@
+package cs544.project.EnhancedRAG.ingestion;
+
+import cs544.project.EnhancedRAG.config.CacheProperties;
+import cs544.project.EnhancedRAG.config.IngestionProperties;
+import cs544.project.EnhancedRAG.embedding.DocumentEmbeddingService;
+import cs544.project.EnhancedRAG.metrics.RagMetrics;
+import cs544.project.EnhancedRAG.model.DocumentType;
+import cs544.project.EnhancedRAG.model.IngestionStats;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.tokenizer.JTokkitTokenCountEstimator;
+import org.springframework.ai.tokenizer.TokenCountEstimator;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class IngestionPipelineTest {
+
+    private static final String GUIDE = "documents/text/guide.txt";
+
+    @TempDir
+    Path root;
+
+    private final IngestionProperties properties = new IngestionProperties();
+    private final EmbeddingModel embeddingModel = mock(EmbeddingModel.class);
+    private final RedisDocumentWriter writer = mock(RedisDocumentWriter.class);
+    private final StoreStatistics storeStatistics = mock(StoreStatistics.class);
+    private final InMemoryManifest manifest = new InMemoryManifest();
+    private final LineExtractor extractor = new LineExtractor();
+
+    private final List<List<String>> embeddingBatches = Collections.synchronizedList(new ArrayList<>());
+    private final List<Document> stored = Collections.synchronizedList(new ArrayList<>());
+
+    @BeforeEach
+    void setUp() throws IOException {
+        Files.createDirectories(root.resolve("documents/text"));
+        properties.setChunkWorkers(8);
+        properties.setMaxRetries(0);
+
+        when(embeddingModel.embed(anyList())).thenAnswer(invocation -> {
+            List<String> texts = invocation.getArgument(0);
+            embeddingBatches.add(texts);
+            return texts.stream().map(text -> new float[]{1, 0}).toList();
+        });
+        doAnswer(invocation -> stored.addAll(invocation.getArgument(1)))
+                .when(writer).write(eq(DocumentType.TEXT), anyList(), anyList());
+    }
+
+    @AfterEach
+    void tearDown() {
+        extractor.close();
+    }
+
+    @Test
+    void everyDiscoveredFileIsStoredOnce() throws Exception {
+        List<String> notes = writeNotes(50);
+
+        IngestionStats stats = run();
+
+        assertThat(stored).extracting(Document::getText).containsExactlyInAnyOrderElementsOf(notes);
+        assertThat(stats.getChunksStored()).containsEntry(DocumentType.TEXT, 50L);
+    }
+
+    @Test
+    void embeddingRequestsStayWithinTheTokenBudget() throws Exception {
+        writeNotes(50);
+        properties.setBatchMaxTokens(20);
+
+        run();
+
+        TokenCountEstimator estimator = new JTokkitTokenCountEstimator();
+        assertThat(embeddingBatches).hasSizeGreaterThan(1);
+        assertThat(embeddingBatches).allSatisfy(texts ->
+                assertThat(texts.stream().mapToInt(estimator::estimate).sum()).isLessThanOrEqualTo(20));
+        assertThat(embeddingBatches.stream().mapToInt(List::size).sum()).isEqualTo(50);
+    }
+
+    @Test
+    void aWriteThatKeepsFailingCountsItsChunksAsFailed() throws Exception {
+        writeNotes(50);
+        properties.setMaxRetries(1);
+        properties.setRetryBackoff(Duration.ofMillis(1));
+        doThrow(new IllegalStateException("Redis unavailable"))
+                .when(writer).write(eq(DocumentType.TEXT), anyList(), anyList());
+
+        IngestionStats stats = run();
+
+        assertThat(stats.getChunksFailed()).containsEntry(DocumentType.TEXT, 50L);
+        assertThat(stats.getChunksStored()).doesNotContainKey(DocumentType.TEXT);
+    }
+
+    @Test
+    void chunksKeepTheSegmentOrderWhicheverWorkerChunksThem() throws Exception {
+        writeGuide(lines(300));
+
+        run();
+
+        assertThat(storedInOrder()).extracting(Document::getText).containsExactlyElementsOf(lines(300));
+    }
+
+    @Test
+    void theManifestIsCommittedOnceEveryChunkIsStored() throws Exception {
+        writeGuide(lines(20));
+
+        IngestionStats stats = run();
+
+        List<String> chunkIds = storedInOrder().stream().map(Document::getId).toList();
+        IngestionManifest.Entry entry = manifest.get(DocumentType.TEXT, GUIDE);
+        assertThat(entry.chunkIds()).isEqualTo(chunkIds);
+        assertThat(entry.contentHash()).isEqualTo(extractor.hashContent(extractor.guide()));
+        verify(writer).setTotalChunks(DocumentType.TEXT, chunkIds, 20);
+        verify(storeStatistics).sourceWritten(DocumentType.TEXT, true, 20);
+        assertThat(stats.getFilesIngested()).isEqualTo(1);
+        assertThat(stats.getChunksStored()).containsEntry(DocumentType.TEXT, 20L);
+    }
+
+    @Test
+    void aSourceWithAFailedChunkKeepsItsPreviousManifestEntry() throws Exception {
+        writeGuide(lines(20));
+        doThrow(new IllegalStateException("Redis unavailable"))
+                .when(writer).write(eq(DocumentType.TEXT), anyList(), anyList());
+
+        IngestionStats stats = run();
+
+        assertThat(manifest.get(DocumentType.TEXT, GUIDE)).isNull();
+        assertThat(stats.getFilesFailed()).isEqualTo(1);
+        assertThat(stats.getFilesIngested()).isZero();
+        verify(writer, never()).setTotalChunks(any(), anyList(), eq(20));
+    }
+
+    @Test
+    void sourcesAreKeyedByTheirClasspathRelativePath() throws Exception {
+        writeGuide(lines(3));
+
+        run();
+
+        assertThat(manifest.sources(DocumentType.TEXT)).containsExactly(GUIDE);
+        assertThat(stored).allSatisfy(document -> assertThat(document.getMetadata()).containsEntry("source", GUIDE));
+    }
+
+    @Test
+    void anUnchangedSourceIsSkippedWithoutEmbedding() throws Exception {
+        writeGuide(lines(20));
+        run();
+        embeddingBatches.clear();
+
+        IngestionStats stats = run();
+
+        assertThat(stats.getFilesUnchanged()).isEqualTo(1);
+        assertThat(stats.getFilesIngested()).isZero();
+        assertThat(embeddingBatches).isEmpty();
+    }
+
+    @Test
+    void aChangedSourceEmbedsOnlyItsNewChunksAndDeletesTheStaleOnes() throws Exception {
+        writeGuide(lines(5));
+        run();
+        String replaced = manifest.get(DocumentType.TEXT, GUIDE).chunkIds().get(4);
+        embeddingBatches.clear();
+
+        List<String> changed = new ArrayList<>(lines(4));
+        changed.add("a new last line");
+        writeGuide(changed);
+        IngestionStats stats = run();
+
+        assertThat(embeddingBatches).flatExtracting(texts -> texts).containsExactly("a new last line");
+        assertThat(stats.getChunksReused()).isEqualTo(4);
+        assertThat(manifest.deletedChunks).containsExactly(replaced);
+        assertThat(manifest.get(DocumentType.TEXT, GUIDE).chunkIds()).hasSize(5).doesNotContain(replaced);
+    }
+
+    @Test
+    void aDeletedSourceTakesItsChunksWithIt() throws Exception {
+        writeGuide(lines(5));
+        run();
+        List<String> chunkIds = manifest.get(DocumentType.TEXT, GUIDE).chunkIds();
+        String upload = IngestionManifest.uploadSourceKey("notes.txt");
+        manifest.put(DocumentType.TEXT, upload, new IngestionManifest.Entry("hash", List.of("upload-chunk")));
+
+        Files.delete(root.resolve(GUIDE));
+        IngestionStats stats = run();
+
+        assertThat(stats.getFilesRemoved()).isEqualTo(1);
+        assertThat(manifest.deletedChunks).containsExactlyInAnyOrderElementsOf(chunkIds);
+        assertThat(manifest.sources(DocumentType.TEXT)).containsExactly(upload);
+        verify(storeStatistics).sourceRemoved(DocumentType.TEXT, 5);
+    }
+
+    private IngestionStats run() throws InterruptedException {
+        CacheProperties cacheProperties = new CacheProperties();
+        cacheProperties.getDocumentEmbedding().setEnabled(false);
+        IngestionPipeline pipeline = new IngestionPipeline(extractor, new TextChunker(new LineChunkingStrategy()),
+                new DocumentEmbeddingService(embeddingModel, cacheProperties), writer, manifest, storeStatistics,
+                new RagMetrics(new SimpleMeterRegistry()), properties);
+        return pipeline.run(Set.of(DocumentType.TEXT));
+    }
+
+    private List<String> writeNotes(int count) throws IOException {
+        List<String> notes = IntStream.range(0, count).mapToObj(i -> "Release note number " + i).toList();
+        for (int i = 0; i < count; i++) {
+            Files.writeString(root.resolve("documents/text/note-" + i + ".txt"), notes.get(i), StandardCharsets.UTF_8);
+        }
+        return notes;
+    }
+
+    private void writeGuide(List<String> lines) throws IOException {
+        Files.writeString(root.resolve(GUIDE), String.join("\n", lines) + "\n", StandardCharsets.UTF_8);
+    }
+
+    private List<Document> storedInOrder() {
+        return stored.stream()
+                .sorted(Comparator.comparingInt(document -> (Integer) document.getMetadata().get("chunk_index")))
+                .toList();
+    }
+
+    private static List<String> lines(int count) {
+        return IntStream.range(0, count).mapToObj(i -> "line " + i).toList();
+    }
+
+    /**
+     * Reads {@code documents/<type>} under the temp directory and hands every line on as its own
+     * segment, so a source has enough segments to reach the chunk workers out of order.
+     */
+    private class LineExtractor extends DocumentExtractor {
+
+        LineExtractor() {
+            super(properties);
+        }
+
+        Resource guide() {
+            return new FileSystemResource(root.resolve(GUIDE));
+        }
+
+        @Override
+        public String getPatternForType(DocumentType type) {
+            return root.toUri() + "documents/" + type.name().toLowerCase() + "/**/*.txt";
+        }
+
+        @Override
+        public void extractSegments(Resource resource, DocumentType type, Consumer<TextSegment> segments) throws IOException {
+            for (String line : resource.getContentAsString(StandardCharsets.UTF_8).split("(?<=\n)")) {
+                segments.accept(new TextSegment(line, 0));
+            }
+        }
+    }
+
+    /**
+     * One chunk per line, without overlap.
+     */
+    private static class LineChunkingStrategy implements ChunkingStrategy {
+
+        @Override
+        public int chunkEnd(CharSequence text, int start, boolean complete) {
+            for (int i = start; i < text.length(); i++) {
+                if (text.charAt(i) == '\n') {
+                    return i + 1;
+                }
+            }
+            return complete ? text.length() : -1;
+        }
+
+        @Override
+        public int nextStart(CharSequence text, int start, int end) {
+            return end;
+        }
+
+        @Override
+        public String name() {
+            return "line";
+        }
+    }
+
+    /**
+     * Manifest entries kept in memory instead of Redis; deleted chunk IDs are recorded.
+     */
+    static class InMemoryManifest extends IngestionManifest {
+
+        private final Map<DocumentType, Map<String, Entry>> entries = new EnumMap<>(DocumentType.class);
+        final List<String> deletedChunks = Collections.synchronizedList(new ArrayList<>());
+
+        InMemoryManifest() {
+            super(null);
+        }
+
+        private synchronized Map<String, Entry> of(DocumentType type) {
+            return entries.computeIfAbsent(type, t -> new ConcurrentHashMap<>());
+        }
+
+        @Override
+        public Entry get(DocumentType type, String sourceKey) {
+            return of(type).get(sourceKey);
+        }
+
+        @Override
+        public void put(DocumentType type, String sourceKey, Entry entry) {
+            of(type).put(sourceKey, entry);
+        }
+
+        @Override
+        public void remove(DocumentType type, String sourceKey) {
+            of(type).remove(sourceKey);
+        }
+
+        @Override
+        public Set<String> sources(DocumentType type) {
+            return Set.copyOf(of(type).keySet());
+        }
+
+        @Override
+        public long count(DocumentType type) {
+            return of(type).size();
+        }
+
+        @Override
+        public void deleteChunks(DocumentType type, Collection<String> chunkIds) {
+            deletedChunks.addAll(chunkIds);
+        }
+    }
+}
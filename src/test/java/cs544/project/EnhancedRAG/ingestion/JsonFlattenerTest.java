@@ -0,0 +1,59 @@
+package cs544.project.EnhancedRAG.ingestion;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class JsonFlattenerTest {
+
+    private final JsonFlattener flattener = new JsonFlattener(new ObjectMapper().getFactory());
+
+    @Test
+    void scalarsBecomePathValueLines() throws IOException {
+        String json = "{\"a\":{\"b\":1,\"c\":[true,{\"d\":\"x\"}]},\"e\":[],\"f\":{},\"g\":null}";
+
+        List<String> lines = String.join("", flatten(json)).lines().filter(line -> !line.isBlank()).toList();
+
+        assertThat(lines).containsExactly("a.b: 1", "a.c[0]: true", "a.c[1].d: x", "e: []", "f: {}", "g: null");
+    }
+
+    @Test
+    void topLevelContainersAreSeparatedByBlankLines() throws IOException {
+        String text = String.join("", flatten("{\"first\":{\"x\":1},\"second\":{\"y\":2}}"));
+
+        assertThat(text).isEqualTo("first.x: 1\n\nsecond.y: 2\n\n");
+    }
+
+    @Test
+    void scalarDocumentHasNoPath() throws IOException {
+        assertThat(flatten("42")).containsExactly("42\n\n");
+    }
+
+    @Test
+    void largeDocumentsAreHandedOnInSegmentsAtStructureBoundaries() throws IOException {
+        StringBuilder json = new StringBuilder("[");
+        for (int i = 0; i < 2000; i++) {
+            json.append(i > 0 ? "," : "").append("{\"name\":\"item ").append(i).append("\"}");
+        }
+        json.append(']');
+
+        List<String> segments = flatten(json.toString());
+
+        assertThat(segments).hasSizeGreaterThan(1);
+        assertThat(segments).allSatisfy(segment -> assertThat(segment).endsWith("\n\n"));
+        assertThat(String.join("", segments)).contains("[0].name: item 0\n").contains("[1999].name: item 1999\n");
+    }
+
+    private List<String> flatten(String json) throws IOException {
+        List<String> segments = new ArrayList<>();
+        flattener.flatten(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)), segments::add);
+        return segments;
+    }
+}
@@ -0,0 +1,77 @@
+package cs544.project.EnhancedRAG.ingestion;
+
+import com.knuddels.jtokkit.Encodings;
+import com.knuddels.jtokkit.api.Encoding;
+import com.knuddels.jtokkit.api.EncodingType;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TokenChunkingStrategyTest {
+
+    private static final Encoding CL100K = Encodings.newLazyEncodingRegistry().getEncoding(EncodingType.CL100K_BASE);
+
+    private static final String SENTENCE = "The quick brown fox jumps. ";
+
+    @Test
+    void shortTextWaitsUntilItIsComplete() {
+        TokenChunkingStrategy strategy = new TokenChunkingStrategy("text-embedding-ada-002", 100, 10);
+
+        assertThat(strategy.chunkEnd("Hello world.", 0, false)).isEqualTo(-1);
+        assertThat(strategy.chunkEnd("Hello world.", 0, true)).isEqualTo(12);
+    }
+
+    @Test
+    void longTextIsCutAfterASentenceWithinTheBudget() {
+        String text = SENTENCE.repeat(100);
+        TokenChunkingStrategy strategy = new TokenChunkingStrategy("text-embedding-ada-002", 50, 10);
+
+        int end = strategy.chunkEnd(text, 0, false);
+
+        assertThat(text.substring(0, end)).endsWith(". ");
+        assertThat(CL100K.countTokens(text.substring(0, end))).isLessThanOrEqualTo(50);
+    }
+
+    @Test
+    void paragraphBreakIsPreferredOverLaterSentences() {
+        String paragraph = SENTENCE.repeat(4).strip();
+        String text = paragraph + "\n\n" + SENTENCE.repeat(20);
+        TokenChunkingStrategy strategy = new TokenChunkingStrategy("text-embedding-ada-002", 40, 10);
+
+        assertThat(strategy.chunkEnd(text, 0, false)).isEqualTo(paragraph.length() + 2);
+    }
+
+    @Test
+    void nextChunkStartsAtAWordWithinTheOverlap() {
+        String text = SENTENCE.repeat(100);
+        TokenChunkingStrategy strategy = new TokenChunkingStrategy("text-embedding-ada-002", 50, 10);
+        int end = strategy.chunkEnd(text, 0, false);
+
+        int next = strategy.nextStart(text, 0, end);
+
+        assertThat(next).isGreaterThanOrEqualTo(end - 10 * 4).isLessThan(end);
+        assertThat(Character.isWhitespace(text.charAt(next - 1))).isTrue();
+        assertThat(Character.isWhitespace(text.charAt(next))).isFalse();
+    }
+
+    @Test
+    void multiByteTextNeverExceedsTheBudget() {
+        // Fewer characters than the budget, but three tokens per character
+        String text = "鬱".repeat(50);
+        TokenChunkingStrategy strategy = new TokenChunkingStrategy("text-embedding-ada-002", 100, 10);
+
+        int end = strategy.chunkEnd(text, 0, true);
+
+        assertThat(text.length()).isLessThan(100);
+        assertThat(CL100K.countTokens(text)).isGreaterThan(100);
+        assertThat(end).isLessThan(text.length());
+        assertThat(CL100K.countTokens(text.substring(0, end))).isLessThanOrEqualTo(100);
+    }
+
+    @Test
+    void utf8LengthBoundsShortText() {
+        assertThat(TokenChunkingStrategy.fitsInBytes("abc", 0, 3, 3)).isTrue();
+        assertThat(TokenChunkingStrategy.fitsInBytes("日本", 0, 2, 5)).isFalse();
+        assertThat(TokenChunkingStrategy.fitsInBytes("🙂", 0, 2, 4)).isTrue();
+    }
+}
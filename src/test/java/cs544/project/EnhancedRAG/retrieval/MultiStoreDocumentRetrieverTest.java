@@ -0,0 +1,177 @@
+package cs544.project.EnhancedRAG.retrieval;
+
+import cs544.project.EnhancedRAG.config.CacheProperties;
+import cs544.project.EnhancedRAG.config.RetrievalProperties;
+import cs544.project.EnhancedRAG.embedding.QueryEmbeddingService;
+import cs544.project.EnhancedRAG.metrics.RagMetrics;
+import cs544.project.EnhancedRAG.model.DocumentType;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.rag.Query;
+
+import java.time.Duration;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class MultiStoreDocumentRetrieverTest {
+
+    private static final Set<DocumentType> ALL = EnumSet.allOf(DocumentType.class);
+
+    private final EmbeddingModel embeddingModel = mock(EmbeddingModel.class);
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final RetrievalProperties properties = new RetrievalProperties();
+    private final CountDownLatch release = new CountDownLatch(1);
+    private ExecutorService executor;
+
+    // PDF never answers, TEXT fails, the other stores return one hit each
+    private final StoreSearcher stores = (type, vector, topK, threshold) -> switch (type) {
+        case PDF -> hang();
+        case TEXT -> throw new IllegalStateException("no such index");
+        default -> List.of(hit(type));
+    };
+
+    @BeforeEach
+    void setUp() {
+        executor = Executors.newCachedThreadPool();
+        when(embeddingModel.embed(anyString())).thenReturn(new float[]{1, 0, 0});
+        properties.setStoreTimeout(Duration.ofMillis(200));
+        properties.setGlobalTimeout(Duration.ofSeconds(5));
+    }
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        executor.shutdownNow();
+    }
+
+    @Test
+    void aHangingStoreDoesNotHoldUpTheOthers() {
+        long start = System.nanoTime();
+
+        MultiStoreRetrievalResult result = retriever(stores).retrieveFromAllStores(query());
+
+        assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(Duration.ofSeconds(2));
+        assertThat(result.documents()).extracting(Document::getId).containsExactlyInAnyOrder("markdown", "json");
+        assertThat(result.timedOutStores()).containsExactly(DocumentType.PDF);
+        assertThat(result.failedStores()).containsExactly(DocumentType.TEXT);
+        assertThat(result.isPartial()).isTrue();
+        assertThat(registry.counter("rag.retrieval.timeouts", RagMetrics.DOCUMENT_TYPE_TAG, "pdf").count())
+                .isEqualTo(1);
+    }
+
+    @Test
+    void theGlobalDeadlineCapsTheWholeFanOut() {
+        properties.setStoreTimeout(Duration.ofSeconds(5));
+        properties.setGlobalTimeout(Duration.ofMillis(200));
+        long start = System.nanoTime();
+
+        MultiStoreRetrievalResult result = retriever(stores).retrieveFromAllStores(query());
+
+        assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(Duration.ofSeconds(2));
+        assertThat(result.timedOutStores()).containsExactly(DocumentType.PDF);
+        assertThat(result.documents()).extracting(Document::getId).containsExactlyInAnyOrder("markdown", "json");
+    }
+
+    @Test
+    void theQuestionIsEmbeddedOnceForAllStores() {
+        StoreSearcher answering = (type, vector, topK, threshold) -> List.of(hit(type));
+
+        MultiStoreRetrievalResult result = retriever(answering).retrieveFromAllStores(query());
+
+        assertThat(result.documents()).hasSize(ALL.size());
+        assertThat(result.isPartial()).isFalse();
+        verify(embeddingModel, times(1)).embed(anyString());
+    }
+
+    @Test
+    void aPrecomputedQueryVectorSkipsTheEmbedding() {
+        StoreSearcher answering = (type, vector, topK, threshold) -> List.of(hit(type));
+        Query query = Query.builder()
+                .text("How do I configure the cache?")
+                .context(Map.of(MultiStoreDocumentRetriever.QUERY_VECTOR_KEY, new float[]{0, 1, 0}))
+                .build();
+
+        assertThat(retriever(answering).retrieve(query)).hasSize(ALL.size());
+        verify(embeddingModel, times(0)).embed(anyString());
+    }
+
+    @Test
+    void aFailedEmbeddingReportsEveryStoreAsFailed() {
+        when(embeddingModel.embed(anyString())).thenThrow(new IllegalStateException("model unavailable"));
+
+        MultiStoreRetrievalResult result = retriever(stores).retrieveFromAllStores(query());
+
+        assertThat(result.documents()).isEmpty();
+        assertThat(result.failedStores()).containsExactlyInAnyOrderElementsOf(ALL);
+    }
+
+    @Test
+    void pipelinedStoresShareOneDeadlineButFailOnTheirOwn() {
+        properties.setPipelineStoreSearches(true);
+        StoreSearcher failingText = (type, vector, topK, threshold) -> {
+            if (type == DocumentType.TEXT) {
+                throw new IllegalStateException("no such index");
+            }
+            return List.of(hit(type));
+        };
+
+        MultiStoreRetrievalResult answered = retriever(failingText).retrieveFromAllStores(query());
+
+        assertThat(answered.documents()).extracting(Document::getId)
+                .containsExactlyInAnyOrder("pdf", "markdown", "json");
+        assertThat(answered.failedStores()).containsExactly(DocumentType.TEXT);
+        assertThat(registry.timer("rag.retrieval.search", RagMetrics.DOCUMENT_TYPE_TAG, "json", "outcome", "success")
+                .count()).isEqualTo(1);
+
+        // The hanging PDF store holds up the one round trip all stores share
+        MultiStoreRetrievalResult hung = retriever(stores).retrieveFromAllStores(query());
+
+        assertThat(hung.documents()).isEmpty();
+        assertThat(hung.timedOutStores()).containsExactlyInAnyOrderElementsOf(ALL);
+    }
+
+    private MultiStoreDocumentRetriever retriever(StoreSearcher searcher) {
+        RagMetrics metrics = new RagMetrics(registry);
+        QueryEmbeddingService queryEmbeddingService = new QueryEmbeddingService(embeddingModel, new CacheProperties(), metrics);
+        return new MultiStoreDocumentRetriever(ALL, queryEmbeddingService, searcher, null, executor, properties, metrics);
+    }
+
+    private List<Document> hang() {
+        try {
+            release.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return List.of();
+    }
+
+    private static Query query() {
+        return new Query("How do I configure the cache?");
+    }
+
+    private static Document hit(DocumentType type) {
+        String name = type.name().toLowerCase();
+        return Document.builder()
+                .id(name)
+                .text("A " + name + " chunk about the cache")
+                .metadata(Map.of("document_type", name, "source", name + "-source"))
+                .score(0.95)
+                .build();
+    }
+}
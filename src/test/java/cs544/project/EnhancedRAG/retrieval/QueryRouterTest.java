@@ -0,0 +1,102 @@
+package cs544.project.EnhancedRAG.retrieval;
+
+import cs544.project.EnhancedRAG.config.RetrievalProperties;
+import cs544.project.EnhancedRAG.ingestion.StoreCentroids;
+import cs544.project.EnhancedRAG.model.DocumentType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class QueryRouterTest {
+
+    private static final Set<DocumentType> ALL = EnumSet.allOf(DocumentType.class);
+
+    private final StoreCentroids centroids = mock(StoreCentroids.class);
+    private final RetrievalProperties.Routing properties = new RetrievalProperties.Routing();
+    private final QueryRouter router = new QueryRouter(centroids, properties);
+
+    @BeforeEach
+    void centroids() {
+        // Questions between two of these unit centroids score lower than real embeddings do
+        properties.setMinScore(0.5);
+
+        // The TEXT store never had anything written to it
+        when(centroids.isReady()).thenReturn(true);
+        when(centroids.getCentroid(DocumentType.PDF)).thenReturn(new float[]{1, 0, 0});
+        when(centroids.getCentroid(DocumentType.JSON)).thenReturn(new float[]{0, 1, 0});
+        when(centroids.getCentroid(DocumentType.MARKDOWN)).thenReturn(new float[]{0, 0, 1});
+    }
+
+    @Test
+    void questionGoesToTheClosestStore() {
+        QueryRouter.Decision decision = router.route("what is the timeout", new float[]{0.1f, 1, 0}, ALL);
+
+        assertThat(decision.stores()).containsExactly(DocumentType.JSON);
+        assertThat(decision.routed()).isTrue();
+        assertThat(decision.scores()).doesNotContainKey(DocumentType.TEXT);
+    }
+
+    @Test
+    void storesWithinTheMarginAreSearchedTogether() {
+        QueryRouter.Decision decision = router.route("what is the timeout", new float[]{1, 1, 0}, ALL);
+
+        assertThat(decision.stores()).containsExactlyInAnyOrder(DocumentType.PDF, DocumentType.JSON);
+        assertThat(decision.routed()).isTrue();
+    }
+
+    @Test
+    void keywordsBreakTies() {
+        QueryRouter.Decision decision = router.route("which json setting sets the timeout", new float[]{1, 1, 0}, ALL);
+
+        assertThat(decision.stores()).containsExactly(DocumentType.JSON);
+    }
+
+    @Test
+    void tooManyCloseStoresFanOutToAllStoresWithContent() {
+        QueryRouter.Decision decision = router.route("what is the timeout", new float[]{1, 1, 1}, ALL);
+
+        assertThat(decision.stores())
+                .containsExactlyInAnyOrder(DocumentType.PDF, DocumentType.JSON, DocumentType.MARKDOWN);
+        assertThat(decision.routed()).isFalse();
+    }
+
+    @Test
+    void aWeakBestMatchFansOutToAllStoresWithContent() {
+        float[] vague = {1, 0.9f, 0.9f};
+        assertThat(router.route("what is the timeout", vague, ALL).stores()).containsExactly(DocumentType.PDF);
+
+        properties.setMinScore(0.7);
+        QueryRouter.Decision decision = router.route("what is the timeout", vague, ALL);
+
+        assertThat(decision.stores())
+                .containsExactlyInAnyOrder(DocumentType.PDF, DocumentType.JSON, DocumentType.MARKDOWN);
+        assertThat(decision.routed()).isFalse();
+        assertThat(decision.reason()).endsWith("below minimum");
+    }
+
+    @Test
+    void everyStoreIsSearchedUntilCentroidsAreLoaded() {
+        when(centroids.isReady()).thenReturn(false);
+
+        QueryRouter.Decision decision = router.route("what is the timeout", new float[]{0, 1, 0}, ALL);
+
+        assertThat(decision.stores()).isEqualTo(ALL);
+        assertThat(decision.routed()).isFalse();
+    }
+
+    @Test
+    void everyStoreIsSearchedWhenRoutingIsDisabled() {
+        properties.setEnabled(false);
+
+        QueryRouter.Decision decision = router.route("what is the timeout", new float[]{0, 1, 0}, ALL);
+
+        assertThat(decision.stores()).isEqualTo(ALL);
+        assertThat(decision.reason()).isEqualTo("routing disabled");
+    }
+}
@@ -0,0 +1,60 @@
+package cs544.project.EnhancedRAG.retrieval;
+
+import cs544.project.EnhancedRAG.config.RetrievalProperties;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.tokenizer.JTokkitTokenCountEstimator;
+import org.springframework.ai.tokenizer.TokenCountEstimator;
+
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TokenBudgetPackerTest {
+
+    private static final String STORAGE = "Redis stores every chunk as a JSON document.";
+    private static final String WEATHER = "The weather was nice on the day the docs were written.";
+    private static final String SEARCH = "Vector search in Redis uses HNSW indexes over the embeddings.";
+    private static final String TEXT = STORAGE + "\n\n" + WEATHER + "\n\n" + SEARCH;
+
+    private final TokenCountEstimator estimator = new JTokkitTokenCountEstimator();
+    private final TokenBudgetPacker packer = new TokenBudgetPacker(new RetrievalProperties(), estimator);
+
+    @Test
+    void passagesWithoutQueryTermsAreLeftOut() {
+        Set<String> terms = TokenBudgetPacker.terms("How does Redis vector search work?");
+
+        assertThat(packer.relevantPassages(TEXT, terms, 1000)).isEqualTo(STORAGE + "\n\n" + SEARCH);
+    }
+
+    @Test
+    void mostRelevantPassageWinsWhenOnlyOneFits() {
+        Set<String> terms = TokenBudgetPacker.terms("How does Redis vector search work?");
+
+        String packed = packer.relevantPassages(TEXT, terms, estimator.estimate(SEARCH) + 1);
+
+        assertThat(packed).isEqualTo(SEARCH);
+    }
+
+    @Test
+    void leadingPassagesAreKeptWhenNoneMentionsTheQuery() {
+        Set<String> terms = TokenBudgetPacker.terms("kubernetes");
+        int allowance = estimator.estimate(STORAGE) + 1 + estimator.estimate(WEATHER) + 1;
+
+        assertThat(packer.relevantPassages(TEXT, terms, allowance)).isEqualTo(STORAGE + "\n\n" + WEATHER);
+    }
+
+    @Test
+    void paragraphAboveTheAllowanceIsSplitIntoSentences() {
+        String paragraph = "Cats sleep most of the day. Redis is an in-memory database. Dogs bark at strangers.";
+        Set<String> terms = TokenBudgetPacker.terms("Which database keeps data in memory?");
+        int allowance = estimator.estimate("Redis is an in-memory database.") + 1;
+
+        assertThat(estimator.estimate(paragraph)).isGreaterThan(allowance);
+        assertThat(packer.relevantPassages(paragraph, terms, allowance)).isEqualTo("Redis is an in-memory database.");
+    }
+
+    @Test
+    void termsIgnoreCaseShortWordsAndStopWords() {
+        assertThat(TokenBudgetPacker.terms("How do I use the Redis CLI?")).containsExactlyInAnyOrder("redis", "cli");
+    }
+}
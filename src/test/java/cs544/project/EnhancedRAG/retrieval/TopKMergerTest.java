@@ -0,0 +1,96 @@
+package cs544.project.EnhancedRAG.retrieval;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.document.Document;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TopKMergerTest {
+
+    private static final String OVERLAP = "the overlap shared by both chunks is long enough to be found";
+
+    @Test
+    void mergeKeepsTheBestTopKInScoreOrder() {
+        List<Document> candidates = List.of(hit("a", 0.5), hit("b", 0.9), hit("c", 0.7), hit("d", 0.8));
+
+        List<Document> merged = TopKMerger.merge(candidates, 3, false);
+
+        assertThat(merged).extracting(Document::getId).containsExactly("b", "d", "c");
+    }
+
+    @Test
+    void mergeReturnsNothingForANonPositiveTopK() {
+        assertThat(TopKMerger.merge(List.of(hit("a", 0.5)), 0, false)).isEmpty();
+    }
+
+    @Test
+    void duplicateHitsKeepTheirBestScore() {
+        List<Document> merged = TopKMerger.merge(List.of(hit("a", 0.5), hit("b", 0.6), hit("a", 0.9)), 5, false);
+
+        assertThat(merged).extracting(Document::getId).containsExactly("a", "b");
+        assertThat(merged.get(0).getScore()).isEqualTo(0.9);
+    }
+
+    @Test
+    void scoreFallsBackToTheVectorScoreMetadata() {
+        Document document = Document.builder()
+                .id("a")
+                .text("text")
+                .metadata(Map.of(RedisKnnSearcher.SCORE_FIELD, "0.75"))
+                .build();
+
+        assertThat(TopKMerger.score(document)).isEqualTo(0.75);
+    }
+
+    @Test
+    void adjacentChunksOfOneDocumentAreCollapsedWithoutTheirOverlap() {
+        Document first = chunk("a-0", "Start of the document. " + OVERLAP, 0.8, "guide.md", "guide.md", 0);
+        Document second = chunk("a-1", OVERLAP + " and the second chunk goes on.", 0.9, "guide.md", "guide.md", 1);
+        Document distant = chunk("a-3", "A chunk further down.", 0.7, "guide.md", "guide.md", 3);
+
+        List<Document> merged = TopKMerger.merge(List.of(second, distant, first), 5, true);
+
+        assertThat(merged).extracting(Document::getId).containsExactly("a-0", "a-3");
+        Document collapsed = merged.get(0);
+        assertThat(collapsed.getText()).isEqualTo("Start of the document. " + OVERLAP + " and the second chunk goes on.");
+        assertThat(collapsed.getScore()).isEqualTo(0.9);
+        assertThat(collapsed.getMetadata()).containsEntry("chunk_end_index", 1);
+    }
+
+    @Test
+    void overlapIsTheLongestSuffixThatStartsTheNextChunk() {
+        assertThat(TopKMerger.overlap("Start. " + OVERLAP, OVERLAP + " tail")).isEqualTo(OVERLAP.length());
+        assertThat(TopKMerger.overlap("hello world", "world")).isEqualTo(5);
+        assertThat(TopKMerger.overlap("nothing in common with the next one", "a completely different chunk of text"))
+                .isZero();
+        assertThat(TopKMerger.overlap("anything", "")).isZero();
+    }
+
+    @Test
+    void adjacentChunksOfDifferentUploadsAreNotCollapsed() {
+        Document first = chunk("a-0", "upload A ends here", 0.95, "manual-upload", "a.txt", 0);
+        Document second = chunk("b-1", "upload B starts here", 0.94, "manual-upload", "b.txt", 1);
+
+        List<Document> merged = TopKMerger.merge(List.of(first, second), 5, true);
+
+        assertThat(merged).extracting(Document::getId).containsExactly("a-0", "b-1");
+        assertThat(merged).extracting(Document::getText).containsExactly("upload A ends here", "upload B starts here");
+    }
+
+    static Document hit(String id, double score) {
+        return Document.builder().id(id).text("text of " + id).score(score).build();
+    }
+
+    static Document chunk(String id, String text, double score, String source, String filename, int chunkIndex) {
+        return Document.builder()
+                .id(id)
+                .text(text)
+                .metadata(Map.of("source", source, "filename", filename, "document_type", "text",
+                        "chunk_index", chunkIndex))
+                .score(score)
+                .build();
+    }
+}
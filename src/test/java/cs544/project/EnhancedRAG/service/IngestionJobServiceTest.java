@@ -0,0 +1,107 @@
+package cs544.project.EnhancedRAG.service;
+
+import cs544.project.EnhancedRAG.config.IngestionProperties;
+import cs544.project.EnhancedRAG.ingestion.IngestionPipeline;
+import cs544.project.EnhancedRAG.ingestion.TextChunker;
+import cs544.project.EnhancedRAG.model.IngestionJob;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class IngestionJobServiceTest {
+
+    private final IngestionProperties properties = new IngestionProperties();
+    private final DocumentIngestionService documentIngestionService = mock(DocumentIngestionService.class);
+    private final IngestionPipeline pipeline = new IngestionPipeline(null, mock(TextChunker.class), null, null, null,
+            null, null, properties);
+    private final CountDownLatch started = new CountDownLatch(1);
+    private IngestionJobService service;
+
+    @BeforeEach
+    void setUp() {
+        properties.setMaxConcurrentJobs(1);
+        service = new IngestionJobService(documentIngestionService, properties);
+
+        // A run lasts until it is cancelled, and then reports itself as cancelled like the pipeline does
+        when(documentIngestionService.newIngestionRun()).thenAnswer(invocation -> pipeline.newRun());
+        when(documentIngestionService.ingestAllDocuments(any(IngestionPipeline.Run.class))).thenAnswer(invocation -> {
+            IngestionPipeline.Run run = invocation.getArgument(0);
+            started.countDown();
+            await().atMost(Duration.ofSeconds(10)).until(run::isCancelled);
+            return run.stats();
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.close();
+    }
+
+    @Test
+    void aRunningJobStopsThroughItsPipelineRun() throws InterruptedException {
+        String jobId = service.submit().getJobId();
+        started.await();
+
+        assertThat(service.cancel(jobId)).get().extracting(IngestionJob::getMessage).isEqualTo("Cancelling");
+
+        await().atMost(Duration.ofSeconds(5))
+                .until(() -> service.getJob(jobId).orElseThrow().getStatus() == IngestionJob.Status.CANCELLED);
+        assertThat(service.getJob(jobId).orElseThrow().getMessage()).isEqualTo("Cancelled while running");
+    }
+
+    @Test
+    void aQueuedJobIsCancelledWithoutEverStarting() throws InterruptedException {
+        String running = service.submit().getJobId();
+        started.await();
+        String queued = service.submit().getJobId();
+
+        IngestionJob cancelled = service.cancel(queued).orElseThrow();
+        service.cancel(running);
+
+        assertThat(cancelled.getStatus()).isEqualTo(IngestionJob.Status.CANCELLED);
+        assertThat(cancelled.getMessage()).isEqualTo("Cancelled before it started");
+        await().atMost(Duration.ofSeconds(5))
+                .until(() -> service.getJob(running).orElseThrow().getStatus() == IngestionJob.Status.CANCELLED);
+        verify(documentIngestionService, times(1)).newIngestionRun();
+    }
+
+    @Test
+    void aJobIsCancellableAsSoonAsItIsListed() throws Exception {
+        properties.setRetainedJobs(1000);
+        AtomicBoolean submitting = new AtomicBoolean(true);
+        CompletableFuture<Void> canceller = CompletableFuture.runAsync(() -> {
+            while (submitting.get()) {
+                service.getJobs().forEach(job -> service.cancel(job.getJobId()));
+            }
+        });
+
+        for (int i = 0; i < 500; i++) {
+            service.submit();
+        }
+        submitting.set(false);
+        canceller.get(10, TimeUnit.SECONDS);
+
+        service.getJobs().forEach(job -> service.cancel(job.getJobId()));
+        await().atMost(Duration.ofSeconds(5)).until(() -> service.getJobs().stream()
+                .allMatch(job -> job.getStatus() == IngestionJob.Status.CANCELLED));
+    }
+
+    @Test
+    void unknownJobsCannotBeCancelled() {
+        assertThat(service.cancel("no-such-job")).isEmpty();
+    }
+}
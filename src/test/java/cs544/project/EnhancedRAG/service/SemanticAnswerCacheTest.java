@@ -0,0 +1,127 @@
+package cs544.project.EnhancedRAG.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import cs544.project.EnhancedRAG.config.CacheProperties;
+import cs544.project.EnhancedRAG.model.MultiDocumentResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import redis.clients.jedis.JedisPooled;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.Response;
+import redis.clients.jedis.search.Document;
+import redis.clients.jedis.search.Query;
+import redis.clients.jedis.search.SearchResult;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class SemanticAnswerCacheTest {
+
+    private static final String INDEX = "idx:answer-cache";
+    private static final String GENERATION_KEY = INDEX + ":generation";
+    private static final float[] QUESTION = {1, 0, 0};
+
+    private final JedisPooled jedis = mock(JedisPooled.class);
+    private final Pipeline pipeline = mock(Pipeline.class);
+    private final CacheProperties cacheProperties = new CacheProperties();
+    private SemanticAnswerCache cache;
+
+    @BeforeEach
+    void setUp() {
+        when(jedis.ftList()).thenReturn(Set.of(INDEX));
+        when(jedis.pipelined()).thenReturn(pipeline);
+        cache = new SemanticAnswerCache(jedis, cacheProperties);
+    }
+
+    @Test
+    void anAnswerOfTheCurrentGenerationIsReturned() throws Exception {
+        cachedAnswer("2", "2");
+
+        assertThat(cache.lookup(QUESTION)).get().extracting(MultiDocumentResponse::getAnswer).isEqualTo("Use Redis");
+        assertThat(cache.getHits()).isEqualTo(1);
+    }
+
+    @Test
+    void anAnswerOfAnEarlierGenerationIsIgnored() throws Exception {
+        cachedAnswer("1", "2");
+
+        assertThat(cache.lookup(QUESTION)).isEmpty();
+        assertThat(cache.getMisses()).isEqualTo(1);
+    }
+
+    @Test
+    void theGenerationIsReadInTheSameRoundTripAsTheSearch() throws Exception {
+        cachedAnswer("2", "2");
+
+        cache.lookup(QUESTION);
+
+        verify(pipeline).sync();
+        verify(jedis, never()).get(GENERATION_KEY);
+        verify(jedis, never()).ftSearch(any(String.class), any(Query.class));
+    }
+
+    @Test
+    void anAnswerRetrievedBeforeAnInvalidationIsNotStored() {
+        when(jedis.get(GENERATION_KEY)).thenReturn("3");
+
+        cache.store("How do I configure the cache?", QUESTION, answer(), 2);
+
+        verify(jedis, never()).hset(any(byte[].class), anyMap());
+    }
+
+    @Test
+    void anInvalidationBumpsTheGenerationBeforeDroppingTheIndex() {
+        cache.invalidateAll();
+
+        InOrder order = inOrder(jedis);
+        order.verify(jedis).incr(GENERATION_KEY);
+        order.verify(jedis).ftDropIndexDD(INDEX);
+    }
+
+    @Test
+    void aSubSecondTtlIsKeptInMilliseconds() {
+        cacheProperties.getAnswer().setTtl(Duration.ofMillis(500));
+
+        cache.store("How do I configure the cache?", QUESTION, answer(), 0);
+
+        verify(jedis).hset(any(byte[].class), anyMap());
+        verify(jedis).pexpire(any(byte[].class), eq(500L));
+    }
+
+    @SuppressWarnings("unchecked")
+    private void cachedAnswer(String entryGeneration, String currentGeneration) throws Exception {
+        Document hit = new Document("cache:answer:1", Map.of(
+                "question", "How is the cache configured?",
+                "response", new ObjectMapper().writeValueAsString(answer()),
+                "vector_score", "0.01",
+                "generation", entryGeneration));
+        SearchResult result = mock(SearchResult.class);
+        when(result.getDocuments()).thenReturn(List.of(hit));
+
+        Response<String> generation = mock(Response.class);
+        when(generation.get()).thenReturn(currentGeneration);
+        Response<SearchResult> search = mock(Response.class);
+        when(search.get()).thenReturn(result);
+        when(pipeline.get(GENERATION_KEY)).thenReturn(generation);
+        when(pipeline.ftSearch(eq(INDEX), any(Query.class))).thenReturn(search);
+    }
+
+    private static MultiDocumentResponse answer() {
+        MultiDocumentResponse response = new MultiDocumentResponse();
+        response.setAnswer("Use Redis");
+        return response;
+    }
+}